@@ -0,0 +1,85 @@
+package com.test.gitclient.benchmark;
+
+import com.test.gitclient.GitClient;
+import com.test.gitclient.branch.BranchSummary;
+import com.test.gitclient.graph.AheadBehind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分支列表与分支关系查询，提交图索引在准备阶段建立。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BranchBenchmark {
+
+    @Param("500")
+    public int files;
+
+    @Param("2000")
+    public int depth;
+
+    @Param({"10", "100"})
+    public int branches;
+
+    private SyntheticRepository repository;
+    private String path;
+    private String branch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        repository = SyntheticRepository.create(files, depth, branches, 0, 0);
+        path = repository.getPath();
+        branch = repository.getBranches().get(0);
+        GitClient.branchSummaries(path);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        GitClient.getRepositoryManager().invalidate(path);
+        repository.close();
+    }
+
+    @Benchmark
+    public List<String> localBranchList() {
+        return GitClient.getLocalBranchList(path);
+    }
+
+    @Benchmark
+    public List<BranchSummary> branchSummaries() {
+        return GitClient.branchSummaries(path);
+    }
+
+    @Benchmark
+    public AheadBehind aheadBehind() {
+        return GitClient.aheadBehind(path, branch, "master");
+    }
+
+    @Benchmark
+    public boolean isMerged() {
+        return GitClient.isMerged(path, branch, "master");
+    }
+
+    @Benchmark
+    public String mergeBase() {
+        return GitClient.mergeBase(path, branch, "master");
+    }
+}
@@ -0,0 +1,154 @@
+package com.test.gitclient.benchmark;
+
+import com.test.gitclient.GitClient;
+import com.test.gitclient.format.ContentFormatter;
+import com.test.gitclient.format.DiffStat;
+import com.test.gitclient.format.FormatEntry;
+import com.test.gitclient.repository.RepositoryHandle;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 比较两个提交：当前基于编辑列表的实现、并行实现，以及原来先输出 unified diff 文本再由
+ * {@link ContentFormatter#parserEntry(String)} 解析的实现。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiffBenchmark {
+
+    @Param("2000")
+    public int files;
+
+    @Param({"10", "100"})
+    public int diffFiles;
+
+    @Param({"10", "100"})
+    public int diffLines;
+
+    private SyntheticRepository repository;
+    private String path;
+    private String oldCommit;
+    private String newCommit;
+    private List<String> unifiedDiffs;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        repository = SyntheticRepository.create(files, 50, 0, diffFiles, diffLines);
+        path = repository.getPath();
+        oldCommit = repository.getMasterCommit();
+        newCommit = repository.getDiffCommit();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        unifiedDiffs = new ArrayList<>();
+        try (RepositoryHandle handle = GitClient.getRepositoryManager().open(path)) {
+            for (DiffEntry entry : diffEntries(handle.getGit())) {
+                unifiedDiffs.add(render(handle.getRepository(), entry));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        GitClient.getRepositoryManager().invalidate(path);
+        repository.close();
+    }
+
+    @Benchmark
+    public List<FormatEntry> commitDiff() {
+        return GitClient.commitDiff(path, oldCommit, newCommit);
+    }
+
+    @Benchmark
+    public List<FormatEntry> commitDiffParallel() {
+        return GitClient.commitDiff(path, oldCommit, newCommit, executor);
+    }
+
+    @Benchmark
+    public DiffStat commitDiffStat() {
+        return GitClient.commitDiffStat(path, oldCommit, newCommit);
+    }
+
+    @Benchmark
+    public DiffStat commitDiffNames() {
+        return GitClient.commitDiffStat(path, oldCommit, newCommit, null, false);
+    }
+
+    /**
+     * 原来的 showDiff：每个文件用 DiffFormatter 输出文本，再解析为 FormatEntry。
+     */
+    @Benchmark
+    public List<FormatEntry> legacyFormatAndParse() throws Exception {
+        List<FormatEntry> ret = new ArrayList<>();
+        try (RepositoryHandle handle = GitClient.getRepositoryManager().open(path)) {
+            for (DiffEntry entry : diffEntries(handle.getGit())) {
+                ret.addAll(ContentFormatter.parserEntry(render(handle.getRepository(), entry)));
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * 只解析预先输出的文本，不含对象读取与差异计算。
+     */
+    @Benchmark
+    public void legacyParseOnly(Blackhole blackhole) {
+        for (String diff : unifiedDiffs) {
+            blackhole.consume(ContentFormatter.parserEntry(diff));
+        }
+    }
+
+    private List<DiffEntry> diffEntries(Git git) throws Exception {
+        Repository repo = git.getRepository();
+        return git.diff().setShowNameAndStatusOnly(true)
+                .setOldTree(treeParser(repo, oldCommit)).setNewTree(treeParser(repo, newCommit)).call();
+    }
+
+    private static String render(Repository repo, DiffEntry entry) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DiffFormatter formatter = new DiffFormatter(out)) {
+            formatter.setRepository(repo);
+            formatter.format(entry);
+        }
+        return out.toString();
+    }
+
+    private static CanonicalTreeParser treeParser(Repository repo, String commit) throws Exception {
+        try (ObjectReader reader = repo.newObjectReader(); RevWalk walk = new RevWalk(reader)) {
+            CanonicalTreeParser parser = new CanonicalTreeParser();
+            parser.reset(reader, walk.parseCommit(ObjectId.fromString(commit)).getTree());
+            return parser;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.test.gitclient.benchmark;
+
+import com.test.gitclient.GitClient;
+import com.test.gitclient.log.LogPage;
+import com.test.gitclient.log.LogQuery;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提交历史：分页查询第一页、按路径过滤的第一页，以及遍历全部历史。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogBenchmark {
+
+    @Param("500")
+    public int files;
+
+    @Param({"1000", "10000"})
+    public int depth;
+
+    private SyntheticRepository repository;
+    private String path;
+    private LogQuery firstPage;
+    private LogQuery pathPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        repository = SyntheticRepository.create(files, depth, 0, 0, 0);
+        path = repository.getPath();
+        firstPage = new LogQuery();
+        pathPage = new LogQuery();
+        pathPage.addPath("dir01");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        GitClient.getRepositoryManager().invalidate(path);
+        repository.close();
+    }
+
+    @Benchmark
+    public LogPage logsFirstPage() {
+        return GitClient.logs(path, firstPage);
+    }
+
+    @Benchmark
+    public LogPage logsPathFilter() {
+        return GitClient.logs(path, pathPage);
+    }
+
+    @Benchmark
+    public int logsWalkAll() {
+        int count = 0;
+        for (RevCommit ignored : GitClient.logs(path)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,72 @@
+package com.test.gitclient.benchmark;
+
+import com.test.gitclient.GitClient;
+import com.test.gitclient.format.FormatEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 工作区状态与工作区差异，工作区中有 {@link SyntheticRepository#DIRTY_FILES} 个已修改文件。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatusBenchmark {
+
+    @Param({"1000", "10000"})
+    public int files;
+
+    @Param("20")
+    public int depth;
+
+    private SyntheticRepository repository;
+    private String path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        repository = SyntheticRepository.create(files, depth, 0, 0, 0);
+        path = repository.getPath();
+        // 建立增量状态的监听与首次完整结果
+        GitClient.gitStatus(path, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        GitClient.stopStatusTracking(path);
+        GitClient.getRepositoryManager().invalidate(path);
+        repository.close();
+    }
+
+    @Benchmark
+    public Map<String, List<String>> gitStatus() {
+        return GitClient.gitStatus(path);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> gitStatusIncremental() {
+        return GitClient.gitStatus(path, true);
+    }
+
+    @Benchmark
+    public List<FormatEntry> localDiff() {
+        return GitClient.localDiff(path);
+    }
+}
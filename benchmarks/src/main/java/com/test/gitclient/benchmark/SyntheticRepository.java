@@ -0,0 +1,233 @@
+package com.test.gitclient.benchmark;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试使用的合成仓库，在本地临时目录中直接写入对象生成，不访问网络，相同参数生成的内容相同。
+ * <ul>
+ * <li>master 有 depth 个提交，每个提交修改 {@link #CHANGES_PER_COMMIT} 个文件，最终包含 files 个文件</li>
+ * <li>branches 个分支从随机的历史提交分出，各有 1 到 3 个自己的提交，上游为 master</li>
+ * <li>diff 分支在 master 之上修改 diffFiles 个文件，每个文件修改 diffLines 行</li>
+ * <li>工作区检出 master，并修改 {@link #DIRTY_FILES} 个文件</li>
+ * </ul>
+ */
+public final class SyntheticRepository implements AutoCloseable {
+
+    static final int LINES_PER_FILE = 200;
+    static final int CHANGES_PER_COMMIT = 5;
+    static final int DIRTY_FILES = 10;
+    static final String DIFF_BRANCH = "diff";
+    static final long BASE_TIME = 1500000000000L;
+
+    private final File directory;
+    private final int files;
+    private final Random random = new Random(42);
+    private final int[] versions;
+    private final List<String> branches = new ArrayList<>();
+    private ObjectId masterTip;
+    private ObjectId diffTip;
+    private long time;
+
+    private SyntheticRepository(File directory, int files) {
+        this.directory = directory;
+        this.files = files;
+        this.versions = new int[files];
+    }
+
+    public static SyntheticRepository create(int files, int depth, int branches, int diffFiles, int diffLines)
+            throws IOException, GitAPIException {
+        File directory = Files.createTempDirectory("gitclient-bench").toFile();
+        SyntheticRepository ret = new SyntheticRepository(directory, files);
+        try {
+            ret.generate(depth, branches, diffFiles, diffLines);
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            ret.close();
+            throw e;
+        }
+        return ret;
+    }
+
+    public String getPath() {
+        return directory.getAbsolutePath();
+    }
+
+    public String getMasterCommit() {
+        return masterTip.name();
+    }
+
+    public String getDiffCommit() {
+        return diffTip.name();
+    }
+
+    public List<String> getBranches() {
+        return branches;
+    }
+
+    private void generate(int depth, int branchCount, int diffFiles, int diffLines)
+            throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(directory).call()) {
+            Repository repository = git.getRepository();
+            DirCache index = DirCache.newInCore();
+            try (ObjectInserter inserter = repository.newObjectInserter()) {
+                // 第一个提交包含所有文件，之后每个提交修改少量文件
+                List<ObjectId> history = new ArrayList<>();
+                DirCacheBuilder builder = index.builder();
+                for (int file = 0; file < files; file++) {
+                    DirCacheEntry entry = new DirCacheEntry(path(file));
+                    entry.setFileMode(FileMode.REGULAR_FILE);
+                    entry.setObjectId(inserter.insert(Constants.OBJ_BLOB,
+                            content(file, 0, 0).getBytes(StandardCharsets.UTF_8)));
+                    builder.add(entry);
+                }
+                builder.finish();
+                ObjectId parent = commit(inserter, index, null);
+                history.add(parent);
+                for (int i = 1; i < depth; i++) {
+                    for (int c = 0; c < CHANGES_PER_COMMIT; c++) {
+                        int file = random.nextInt(files);
+                        versions[file]++;
+                        put(index, inserter, file, content(file, versions[file], 3));
+                    }
+                    parent = commit(inserter, index, parent);
+                    history.add(parent);
+                }
+                masterTip = parent;
+                updateRef(repository, Constants.R_HEADS + Constants.MASTER, masterTip);
+
+                StoredConfig config = repository.getConfig();
+                for (int b = 0; b < branchCount; b++) {
+                    String name = "branch" + b;
+                    ObjectId tip = history.get(random.nextInt(history.size()));
+                    DirCache branchIndex = readTree(repository, tip);
+                    int own = 1 + random.nextInt(3);
+                    for (int i = 0; i < own; i++) {
+                        int file = random.nextInt(files);
+                        put(branchIndex, inserter, file, content(file, 1000 + b, 3));
+                        tip = commit(inserter, branchIndex, tip);
+                    }
+                    updateRef(repository, Constants.R_HEADS + name, tip);
+                    config.setString("branch", name, "remote", ".");
+                    config.setString("branch", name, "merge", Constants.R_HEADS + Constants.MASTER);
+                    branches.add(name);
+                }
+                config.save();
+
+                DirCache diffIndex = readTree(repository, masterTip);
+                for (int i = 0; i < diffFiles && i < files; i++) {
+                    int file = (int) ((long) i * files / Math.min(diffFiles, files));
+                    put(diffIndex, inserter, file, content(file, versions[file] + 1, diffLines));
+                }
+                diffTip = commit(inserter, diffIndex, masterTip);
+                updateRef(repository, Constants.R_HEADS + DIFF_BRANCH, diffTip);
+                inserter.flush();
+            }
+
+            git.gc().call();
+            checkout(repository);
+            for (int i = 0; i < DIRTY_FILES && i < files; i++) {
+                int file = i * files / Math.min(DIRTY_FILES, files);
+                Files.write(new File(directory, path(file)).toPath(),
+                        content(file, versions[file] + 2, 5).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void checkout(Repository repository) throws IOException {
+        RefUpdate head = repository.updateRef(Constants.HEAD);
+        head.disableRefLog();
+        head.link(Constants.R_HEADS + Constants.MASTER);
+        DirCache dirCache = repository.lockDirCache();
+        try (RevWalk walk = new RevWalk(repository)) {
+            new DirCacheCheckout(repository, dirCache, walk.parseCommit(masterTip).getTree()).checkout();
+        } finally {
+            dirCache.unlock();
+        }
+    }
+
+    private ObjectId commit(ObjectInserter inserter, DirCache index, ObjectId parent) throws IOException {
+        // writeTree 会缓存树，直接修改条目后需要重建索引清除缓存，否则提交的仍是上一次的树
+        DirCacheBuilder rebuild = index.builder();
+        rebuild.keep(0, index.getEntryCount());
+        rebuild.finish();
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(index.writeTree(inserter));
+        if (parent != null) {
+            commit.setParentId(parent);
+        }
+        time += 60000;
+        PersonIdent ident = new PersonIdent("bench", "bench@example.com", BASE_TIME + time, 0);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage("commit " + time / 60000 + "\n");
+        return inserter.insert(commit);
+    }
+
+    private DirCache readTree(Repository repository, ObjectId commit) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader)) {
+            return DirCache.read(reader, walk.parseCommit(commit).getTree());
+        }
+    }
+
+    private void put(DirCache index, ObjectInserter inserter, int file, String content) throws IOException {
+        ObjectId blob = inserter.insert(Constants.OBJ_BLOB, content.getBytes(StandardCharsets.UTF_8));
+        // 文件都在第一个提交中加入，之后只修改内容
+        index.getEntry(path(file)).setObjectId(blob);
+    }
+
+    private static void updateRef(Repository repository, String name, ObjectId id) throws IOException {
+        RefUpdate update = repository.updateRef(name);
+        update.setNewObjectId(id);
+        update.setForceUpdate(true);
+        update.disableRefLog();
+        update.update();
+    }
+
+    static String path(int file) {
+        return String.format("dir%02d/file%06d.txt", file % 32, file);
+    }
+
+    /**
+     * 文件内容，version 改变时每隔若干行修改一行，共修改 changedLines 行。
+     */
+    static String content(int file, int version, int changedLines) {
+        StringBuilder ret = new StringBuilder(LINES_PER_FILE * 40);
+        int step = changedLines == 0 ? Integer.MAX_VALUE : Math.max(1, LINES_PER_FILE / changedLines);
+        for (int line = 0; line < LINES_PER_FILE; line++) {
+            boolean changed = line % step == 0 && line / step < changedLines;
+            ret.append("file ").append(file).append(" line ").append(line)
+                    .append(changed ? " version " + version : " unchanged").append('\n');
+        }
+        return ret.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileUtils.delete(directory, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+    }
+}
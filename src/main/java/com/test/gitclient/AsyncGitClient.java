@@ -0,0 +1,224 @@
+package com.test.gitclient;
+
+import com.test.gitclient.branch.BranchSummaries;
+import com.test.gitclient.branch.BranchSummary;
+import com.test.gitclient.clone.CloneOptions;
+import com.test.gitclient.format.DiffOptions;
+import com.test.gitclient.format.FormatEntry;
+import com.test.gitclient.log.CommitLog;
+import com.test.gitclient.log.LogPage;
+import com.test.gitclient.log.LogQuery;
+import com.test.gitclient.metrics.OperationRecorder;
+import com.test.gitclient.repository.RepositoryHandle;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.PushResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link GitClient} 的异步版本，每个操作在 executor 中执行并立即返回 future。
+ * 操作成功时 future 的值为 JGit 的结果对象；失败时以 {@link GitOperationException} 结束，不记录日志也不返回空值。
+ * <p>
+ * 对返回的 future 调用 cancel 时，尚未开始的操作不再执行；正在执行的克隆、获取、拉取与推送
+ * 通过 ProgressMonitor 通知 JGit 在下一个检查点停止。取消不会中断线程，中断可能关闭 JGit 正在读取的包文件。
+ * <p>
+ * 默认 executor 在 JDK 21 及以上为每个任务一个虚拟线程，等待网络与磁盘时不占用平台线程；
+ * 更早的 JDK 上为固定大小的平台线程池，超出的操作排队等待。
+ */
+public class AsyncGitClient {
+
+    final static Logger logger = LoggerFactory.getLogger(AsyncGitClient.class);
+
+    public static final int DEFAULT_PLATFORM_THREADS = 64;
+
+    private static volatile Executor defaultExecutor;
+
+    private final GitClient client;
+    private final Executor executor;
+
+    public AsyncGitClient(GitClient client) {
+        this(client, defaultExecutor());
+    }
+
+    public AsyncGitClient(GitClient client, Executor executor) {
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /**
+     * 在仓库上执行的操作，monitor 用于响应取消，可以传给支持 ProgressMonitor 的 JGit 命令。
+     */
+    public interface RepositoryTask<T> {
+        T call(Git git, ProgressMonitor monitor) throws Exception;
+    }
+
+    /**
+     * @return 所有未指定 executor 的实例共用的 executor
+     */
+    public static Executor defaultExecutor() {
+        Executor ret = defaultExecutor;
+        if (ret == null) {
+            synchronized (AsyncGitClient.class) {
+                ret = defaultExecutor;
+                if (ret == null) {
+                    ret = newDefaultExecutor();
+                    defaultExecutor = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    static ExecutorService newDefaultExecutor() {
+        try {
+            // 源码以 Java 8 编译，JDK 21 的虚拟线程通过反射获取；JDK 19、20 中为预览特性，调用会失败
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.info("虚拟线程不可用，使用 {} 个平台线程", DEFAULT_PLATFORM_THREADS);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(DEFAULT_PLATFORM_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "gitclient-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<Void> clone(String remoteUri, String localPath) {
+        return clone(remoteUri, localPath, new CloneOptions());
+    }
+
+    public CompletableFuture<Void> clone(String remoteUri, String localPath, CloneOptions options) {
+        return submit("clone", localPath, monitor -> {
+            client.cloneRepository(remoteUri, localPath, options, monitor);
+            return null;
+        });
+    }
+
+    public CompletableFuture<FetchResult> fetch(String localGit) {
+        return submit("fetch", localGit, monitor -> client.fetchRepository(localGit, monitor));
+    }
+
+    /**
+     * 检出冲突时以 cause 为 CheckoutConflictException 的异常结束，合并冲突在 PullResult 的合并结果中。
+     */
+    public CompletableFuture<PullResult> pull(String localGit) {
+        return submit("pull", localGit, monitor -> client.pullRepository(localGit, monitor));
+    }
+
+    public CompletableFuture<Iterable<PushResult>> push(String localGit) {
+        return submit("push", localGit, monitor -> client.pushRepository(localGit, monitor));
+    }
+
+    /**
+     * 结果与 {@link GitClient#gitStatus(String, boolean)} 相同。
+     */
+    public CompletableFuture<Map<String, List<String>>> status(String localGit, boolean incremental) {
+        return submit("status", localGit, monitor -> GitClient.readStatus(localGit, incremental));
+    }
+
+    public CompletableFuture<List<FormatEntry>> commitDiff(String localGit, String oldCommit, String newCommit) {
+        return commitDiff(localGit, oldCommit, newCommit, null);
+    }
+
+    /**
+     * 结果与 {@link GitClient#commitDiff(String, String, String, DiffOptions)} 相同。
+     */
+    public CompletableFuture<List<FormatEntry>> commitDiff(String localGit, String oldCommit, String newCommit,
+                                                           DiffOptions options) {
+        return submit("commitDiff", localGit,
+                monitor -> GitClient.readCommitDiff(localGit, oldCommit, newCommit, options, null));
+    }
+
+    public CompletableFuture<LogPage> logs(String localGit, LogQuery query) {
+        return execute("logs", localGit, true, (git, monitor) -> CommitLog.page(git.getRepository(), query));
+    }
+
+    public CompletableFuture<List<BranchSummary>> branchSummaries(String localGit) {
+        return execute("branchSummaries", localGit, true, (git, monitor) -> BranchSummaries.list(git.getRepository()));
+    }
+
+    /**
+     * 通过 {@link GitClient#getRepositoryManager()} 打开仓库并以独占方式执行 task，执行结束后释放仓库。
+     *
+     * @param operation 操作名，用于 {@link GitOperationException#getOperation()} 与 {@link GitClient#getMetrics()}
+     */
+    public <T> CompletableFuture<T> execute(String operation, String localGit, RepositoryTask<T> task) {
+        return execute(operation, localGit, false, task);
+    }
+
+    /**
+     * @param readOnly 为 true 时加共享锁，与同一仓库上的其他只读操作并发执行
+     */
+    public <T> CompletableFuture<T> execute(String operation, String localGit, boolean readOnly,
+                                            RepositoryTask<T> task) {
+        return submit(operation, localGit, monitor -> {
+            OperationRecorder op = GitClient.getMetrics().start(operation, localGit);
+            try (RepositoryHandle handle = readOnly
+                    ? GitClient.openForRead(localGit) : GitClient.openForWrite(localGit)) {
+                return task.call(handle.getGit(), op.monitor(monitor));
+            } catch (Exception e) {
+                op.failed(e);
+                throw e;
+            } finally {
+                op.close();
+            }
+        });
+    }
+
+    private interface Task<T> {
+        T call(ProgressMonitor monitor) throws Exception;
+    }
+
+    private <T> CompletableFuture<T> submit(String operation, String localPath, Task<T> task) {
+        CancellableMonitor monitor = new CancellableMonitor();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                monitor.cancelled = true;
+            }
+        });
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // 已取消
+                    return;
+                }
+                try {
+                    future.complete(task.call(monitor));
+                } catch (Exception e) {
+                    future.completeExceptionally(new GitOperationException(operation, localPath, e));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new GitOperationException(operation, localPath, e));
+        }
+        return future;
+    }
+
+    private static class CancellableMonitor extends EmptyProgressMonitor {
+
+        volatile boolean cancelled;
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
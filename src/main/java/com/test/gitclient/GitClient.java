@@ -3,37 +3,90 @@ package com.test.gitclient;
 import com.test.gitclient.auth.GitAuthStrategy;
 import com.test.gitclient.auth.HttpAuthStrategy;
 import com.test.gitclient.auth.SshAuthStrategy;
-import com.test.gitclient.format.ContentFormatter;
+import com.test.gitclient.blame.BlameCache;
+import com.test.gitclient.blame.Blamer;
+import com.test.gitclient.blame.FileBlame;
+import com.test.gitclient.branch.BranchSummaries;
+import com.test.gitclient.branch.BranchSummary;
+import com.test.gitclient.clone.CloneOptions;
+import com.test.gitclient.clone.ReferenceCache;
+import com.test.gitclient.clone.SparseCheckout;
+import com.test.gitclient.format.DiffCache;
+import com.test.gitclient.format.DiffEntryFormatter;
+import com.test.gitclient.format.DiffHandler;
+import com.test.gitclient.format.DiffIterator;
+import com.test.gitclient.format.DiffOptions;
+import com.test.gitclient.format.DiffStat;
 import com.test.gitclient.format.FormatEntry;
+import com.test.gitclient.format.LimitedDiffHandler;
+import com.test.gitclient.format.ParallelDiffFormatter;
+import com.test.gitclient.graph.AheadBehind;
+import com.test.gitclient.graph.CommitGraphIndex;
+import com.test.gitclient.index.IndexUpdateResult;
+import com.test.gitclient.index.IndexUpdater;
+import com.test.gitclient.log.CommitLog;
+import com.test.gitclient.log.LogPage;
+import com.test.gitclient.log.LogQuery;
+import com.test.gitclient.merge.MergePreview;
+import com.test.gitclient.merge.MergePreviewer;
+import com.test.gitclient.metrics.GitMetrics;
+import com.test.gitclient.metrics.OperationRecorder;
+import com.test.gitclient.repository.RepositoryHandle;
+import com.test.gitclient.repository.RepositoryLocks;
+import com.test.gitclient.repository.RepositoryManager;
+import com.test.gitclient.search.ContentSearch;
+import com.test.gitclient.search.SearchHandler;
+import com.test.gitclient.search.SearchQuery;
+import com.test.gitclient.status.StatusTracker;
 import org.eclipse.jgit.api.*;
 import org.eclipse.jgit.api.errors.CheckoutConflictException;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.ContentSource;
 import org.eclipse.jgit.diff.DiffEntry;
-import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.lib.*;
 
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.transport.TagOpt;
+import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.util.FileUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 public class GitClient {
 
     final static Logger logger = LoggerFactory.getLogger(GitClient.class);
 
+    private static volatile DiffCache diffCache;
+
+    private static volatile BlameCache blameCache = new BlameCache();
+
+    private static volatile GitMetrics metrics = GitMetrics.NOOP;
+
     private final GitAuthStrategy authStrategy;
 
     public GitClient(String privateKeyPath) {
@@ -49,131 +102,516 @@ public class GitClient {
         CloneCommand cloneCommand = Git.cloneRepository()
                 .setURI(remoteUri)
                 .setDirectory(new File(localPath));
+        OperationRecorder op = metrics.start("clone", localPath);
+        cloneCommand.setProgressMonitor(op.monitor(NullProgressMonitor.INSTANCE));
+        RepositoryLocks.Lease lease = null;
         try {
-            this.authStrategy.auth(cloneCommand).call();
+            lease = RepositoryManager.getDefault().getLocks().write(localPath);
+            try (Git git = (Git) this.authStrategy.auth(cloneCommand).call()) {
+                RepositoryManager.getDefault().invalidate(localPath);
+                recordPackBytes(op, git.getRepository().getDirectory(), 0);
+            }
             return true;
-        }catch (GitAPIException e){
+        }catch (IOException | GitAPIException e){
+            op.failed(e);
             logger.error("克隆代码报错异常: {}", e.getMessage());
             return false;
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+            op.close();
         }
     }
 
-    public static List<String> getLocalBranchList(String localPath) {
+    /**
+     * 按选项克隆，可以只获取单个分支、不获取标签、不检出或只检出部分路径。
+     */
+    public boolean clone(String remoteUri, String localPath, CloneOptions options) {
+        try {
+            cloneRepository(remoteUri, localPath, options, NullProgressMonitor.INSTANCE);
+            return true;
+        } catch (IOException | GitAPIException | URISyntaxException | IllegalArgumentException e) {
+            logger.error("克隆代码报错异常: {}", e.getMessage());
+            return false;
+        }
+    }
 
+    /**
+     * 与 {@link #clone(String, String, CloneOptions)} 相同，失败时抛出原始异常而不是返回 false。
+     */
+    public void cloneRepository(String remoteUri, String localPath, CloneOptions options, ProgressMonitor monitor)
+            throws IOException, GitAPIException, URISyntaxException {
+        OperationRecorder op = metrics.start("clone", localPath);
+        ProgressMonitor phases = op.monitor(monitor);
+        RepositoryLocks.Lease lease = null;
         try {
-            return Git.open(new File(localPath)).branchList().call()
+            // 克隆目标还不是仓库，直接对路径加独占锁
+            lease = RepositoryManager.getDefault().getLocks().write(localPath);
+            if (options.getReferenceCache() != null) {
+                File gitDir = cloneWithReference(remoteUri, localPath, options, phases);
+                recordPackBytes(op, gitDir, 0);
+                return;
+            }
+            boolean sparse = !options.getSparsePaths().isEmpty() && !options.isBare() && !options.isNoCheckout();
+            CloneCommand cloneCommand = Git.cloneRepository()
+                    .setURI(remoteUri)
+                    .setDirectory(new File(localPath))
+                    .setBare(options.isBare())
+                    .setNoCheckout(options.isNoCheckout() || sparse)
+                    .setProgressMonitor(phases);
+            String branch = options.getBranch();
+            if ((options.isSingleBranch() || sparse) && branch == null) {
+                branch = remoteHeadBranch(remoteUri);
+            }
+            if (branch != null) {
+                cloneCommand.setBranch(branch);
+            }
+            if (options.isSingleBranch()) {
+                cloneCommand.setCloneAllBranches(false)
+                        .setBranchesToClone(Collections.singletonList(toBranchRef(branch)));
+            }
+            if (options.isNoTags()) {
+                cloneCommand.setNoTags();
+            }
+            try (Git git = (Git) this.authStrategy.auth(cloneCommand).call()) {
+                recordPackBytes(op, git.getRepository().getDirectory(), 0);
+                if (sparse) {
+                    long start = System.nanoTime();
+                    ObjectId head = checkoutHead(git, branch);
+                    SparseCheckout.checkout(git.getRepository(), head, options.getSparsePaths());
+                    op.phase("Sparse checkout", System.nanoTime() - start);
+                }
+            }
+            RepositoryManager.getDefault().invalidate(localPath);
+        } catch (IOException | GitAPIException | URISyntaxException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+            op.close();
+        }
+    }
+
+    /**
+     * 借用本地对象缓存克隆：先更新缓存中的镜像，新仓库通过 alternates 引用镜像的对象，
+     * 再从远程仓库获取，只传输与保存镜像中没有的对象。
+     * 与 {@link CloneCommand} 相同，目标必须不存在或是空目录，失败时删除已创建的内容。
+     */
+    private File cloneWithReference(String remoteUri, String localPath, CloneOptions options, ProgressMonitor monitor)
+            throws IOException, GitAPIException, URISyntaxException {
+        ReferenceCache cache = options.getReferenceCache();
+        boolean sparse = !options.getSparsePaths().isEmpty() && !options.isBare() && !options.isNoCheckout();
+        File directory = new File(localPath);
+        boolean existed = directory.exists();
+        String[] children = directory.list();
+        if (existed && (children == null || children.length > 0)) {
+            throw new IllegalArgumentException("克隆目标已存在且不是空目录: " + localPath);
+        }
+        File gitDir;
+        try {
+            try (Git init = Git.init().setDirectory(directory).setBare(options.isBare()).call()) {
+                gitDir = init.getRepository().getDirectory();
+            }
+            cache.borrow(remoteUri, this.authStrategy, gitDir);
+            cloneFromRemote(gitDir, remoteUri, options, sparse, monitor);
+        } catch (IOException | GitAPIException | URISyntaxException | RuntimeException e) {
+            deleteFailedClone(directory, existed);
+            throw e;
+        }
+        RepositoryManager.getDefault().invalidate(localPath);
+        try {
+            cache.evict();
+        } catch (IOException e) {
+            logger.warn("清理对象缓存异常: {}", e.getMessage());
+        }
+        return gitDir;
+    }
+
+    private static void deleteFailedClone(File directory, boolean existed) {
+        try {
+            if (existed) {
+                File[] children = directory.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        FileUtils.delete(child, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+                    }
+                }
+            } else {
+                FileUtils.delete(directory, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+            }
+        } catch (IOException e) {
+            logger.warn("清理克隆目录异常: {}", e.getMessage());
+        }
+    }
+
+    private void cloneFromRemote(File gitDir, String remoteUri, CloneOptions options, boolean sparse,
+                                 ProgressMonitor monitor) throws IOException, GitAPIException, URISyntaxException {
+        try (Git git = Git.open(gitDir)) {
+            Repository repository = git.getRepository();
+            String branch = options.getBranch();
+            if (options.isSingleBranch() && branch == null) {
+                branch = remoteHeadBranch(remoteUri);
+            }
+            String destination = options.isBare() ? Constants.R_HEADS
+                    : Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/";
+            RefSpec refSpec = options.isSingleBranch()
+                    ? new RefSpec("+" + toBranchRef(branch) + ":" + destination + Repository.shortenRefName(toBranchRef(branch)))
+                    : new RefSpec("+" + Constants.R_HEADS + "*:" + destination + "*");
+            StoredConfig config = repository.getConfig();
+            RemoteConfig remote = new RemoteConfig(config, Constants.DEFAULT_REMOTE_NAME);
+            remote.addURI(new URIish(remoteUri));
+            remote.addFetchRefSpec(refSpec);
+            if (options.isNoTags()) {
+                remote.setTagOpt(TagOpt.NO_TAGS);
+            }
+            remote.update(config);
+            config.save();
+
+            FetchCommand fetch = git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME).setProgressMonitor(monitor);
+            FetchResult result = (FetchResult) this.authStrategy.auth(fetch).call();
+            if (branch == null) {
+                branch = advertisedHeadBranch(result);
+            }
+            if (options.isBare()) {
+                RefUpdate update = repository.updateRef(Constants.HEAD);
+                update.disableRefLog();
+                update.link(toBranchRef(branch));
+            } else {
+                ObjectId head = checkoutHead(git, branch);
+                if (sparse) {
+                    SparseCheckout.checkout(repository, head, options.getSparsePaths());
+                } else if (!options.isNoCheckout()) {
+                    try (RevWalk walk = new RevWalk(repository)) {
+                        DirCache dirCache = repository.lockDirCache();
+                        try {
+                            new DirCacheCheckout(repository, dirCache, walk.parseCommit(head).getTree()).checkout();
+                        } finally {
+                            dirCache.unlock();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 与 CloneCommand 相同：优先使用远程 HEAD 的符号引用，否则选择与 HEAD 指向同一提交的分支。
+     */
+    private static String advertisedHeadBranch(FetchResult result) {
+        Ref head = result.getAdvertisedRef(Constants.HEAD);
+        if (head == null || head.getObjectId() == null) {
+            return null;
+        }
+        if (head.isSymbolic()) {
+            return head.getTarget().getName();
+        }
+        Ref master = result.getAdvertisedRef(Constants.R_HEADS + Constants.MASTER);
+        if (master != null && head.getObjectId().equals(master.getObjectId())) {
+            return master.getName();
+        }
+        for (Ref ref : result.getAdvertisedRefs()) {
+            if (ref.getName().startsWith(Constants.R_HEADS) && head.getObjectId().equals(ref.getObjectId())) {
+                return ref.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 为单分支克隆补充获取其他分支，之后 pull 也会同步这些分支。
+     */
+    public boolean fetchBranches(String localGit, List<String> branches) {
+
+        OperationRecorder op = metrics.start("fetchBranches", localGit);
+        try (RepositoryHandle handle = openForWrite(localGit)) {
+            Repository repository = handle.getRepository();
+            StoredConfig config = repository.getConfig();
+            List<String> fetch = new ArrayList<>(Arrays.asList(
+                    config.getStringList("remote", Constants.DEFAULT_REMOTE_NAME, "fetch")));
+            List<RefSpec> specs = new ArrayList<>();
+            for (String branch : branches) {
+                String ref = toBranchRef(branch);
+                RefSpec spec = new RefSpec("+" + ref + ":" + Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME
+                        + "/" + Repository.shortenRefName(ref));
+                specs.add(spec);
+                if (!fetch.contains(spec.toString())) {
+                    fetch.add(spec.toString());
+                }
+            }
+            config.setStringList("remote", Constants.DEFAULT_REMOTE_NAME, "fetch", fetch);
+            config.save();
+            FetchCommand fetchCommand = handle.getGit().fetch().setRefSpecs(specs);
+            this.authStrategy.auth(fetchCommand).call();
+            CommitGraphIndex.refreshIfPresent(repository);
+            return true;
+        } catch (IOException | GitAPIException e) {
+            op.failed(e);
+            logger.error("获取分支失败: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return false;
+    }
+
+    /**
+     * 部分检出的仓库中追加检出 paths 下的文件。
+     */
+    public static boolean extendSparseCheckout(String localGit, List<String> paths) {
+
+        OperationRecorder op = metrics.start("extendSparseCheckout", localGit);
+        try (RepositoryHandle handle = openForWrite(localGit)) {
+            SparseCheckout.extend(handle.getRepository(), paths);
+            StatusTracker.release(handle.getRepository());
+            return true;
+        } catch (IOException | GitAPIException e) {
+            op.failed(e);
+            logger.error("扩展检出路径失败: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return false;
+    }
+
+    /**
+     * 不检出的克隆不会创建本地分支，这里创建跟踪远程分支的本地分支并让 HEAD 指向它，只更新引用，不写工作区。
+     */
+    private static ObjectId checkoutHead(Git git, String branch) throws IOException, GitAPIException {
+        Repository repository = git.getRepository();
+        String name = Repository.shortenRefName(toBranchRef(branch));
+        Ref remoteRef = repository.exactRef(Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/" + name);
+        if (remoteRef == null) {
+            throw new IllegalArgumentException("远程分支不存在: " + name);
+        }
+        git.branchCreate().setName(name).setStartPoint(remoteRef.getName())
+                .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK).call();
+        RefUpdate update = repository.updateRef(Constants.HEAD);
+        update.disableRefLog();
+        update.link(Constants.R_HEADS + name);
+        return remoteRef.getObjectId();
+    }
+
+    private String remoteHeadBranch(String remoteUri) throws GitAPIException {
+        LsRemoteCommand lsRemote = Git.lsRemoteRepository().setRemote(remoteUri);
+        Map<String, Ref> refs = ((LsRemoteCommand) this.authStrategy.auth(lsRemote)).callAsMap();
+        Ref head = refs.get(Constants.HEAD);
+        if (head != null && head.isSymbolic()) {
+            return head.getTarget().getName();
+        }
+        return refs.containsKey(Constants.R_HEADS + Constants.MASTER) ? Constants.MASTER : null;
+    }
+
+    private static String toBranchRef(String branch) {
+        if (branch == null) {
+            throw new IllegalArgumentException("无法确定远程仓库的默认分支");
+        }
+        return branch.startsWith(Constants.R_HEADS) ? branch : Constants.R_HEADS + branch;
+    }
+
+    public static List<String> getLocalBranchList(String localPath) {
+
+        OperationRecorder op = metrics.start("getLocalBranchList", localPath);
+        try (RepositoryHandle handle = openForRead(localPath)) {
+            return handle.getGit().branchList().call()
                     .stream().map(ref-> Repository.shortenRefName(ref.getName()))
                     .collect(Collectors.toList());
         }catch (IOException | GitAPIException e){
+            op.failed(e);
             logger.error("获取本地分支异常: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return new ArrayList<>();
     }
 
     public static List<String> getRemoteBranchList(String localPath) {
-        try {
-            return Git.open(new File(localPath))
+        OperationRecorder op = metrics.start("getRemoteBranchList", localPath);
+        try (RepositoryHandle handle = openForRead(localPath)) {
+            return handle.getGit()
                     .branchList().setListMode(ListBranchCommand.ListMode.REMOTE)
 
                     .call()
                     .stream().map(ref-> Repository.shortenRefName(ref.getName()))
                     .collect(Collectors.toList());
         }catch (IOException | GitAPIException e){
+            op.failed(e);
             logger.error("获取远程分支异常: {}", e.getMessage());
+        } finally {
+            op.close();
         }
 
         return new ArrayList<>();
     }
 
     public static boolean newBranch(String localPath, String branchName){
-        try {
-            Git.open(new File(localPath)).branchCreate()
+        OperationRecorder op = metrics.start("newBranch", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            handle.getGit().branchCreate()
                     .setName(branchName).call();
             return true;
         }catch (IOException | GitAPIException e){
+            op.failed(e);
             logger.error("创建分支异常: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return false;
     }
 
     public static boolean deleteBranch(String localPath, String branchName){
-        try {
-            Git.open(new File(localPath)).branchDelete().setBranchNames(branchName).call();
+        OperationRecorder op = metrics.start("deleteBranch", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            handle.getGit().branchDelete().setBranchNames(branchName).call();
             return true;
         }catch (IOException | GitAPIException e){
+            op.failed(e);
             logger.error("删除分支异常: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return false;
     }
 
     public static boolean newBranch(String localPath, String branchName, String trackingBranchName){
-        try {
-            Git.open(new File(localPath)).branchCreate()
+        OperationRecorder op = metrics.start("newBranch", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            handle.getGit().branchCreate()
                     .setName(branchName).setStartPoint(trackingBranchName).call();
             return true;
         }catch (IOException | GitAPIException e){
+            op.failed(e);
             logger.error("创建远程分支异常: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return false;
     }
 
     public static List<String> checkout(String localPath,String branchName) {
 
-        try {
-            Git.open(new File(localPath)).checkout().setName(branchName).call();
+        OperationRecorder op = metrics.start("checkout", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            handle.getGit().checkout().setName(branchName).call();
         } catch (CheckoutConflictException e){
+            op.failed(e);
             return e.getConflictingPaths();
         } catch (IOException | GitAPIException e) {
+            op.failed(e);
             logger.error("切换分支异常: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return new ArrayList<>();
     }
 
     public static boolean add(String localPath, String[] fileNames) {
 
-        try {
-            AddCommand add = Git.open(new File(localPath)).add();
+        OperationRecorder op = metrics.start("add", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            AddCommand add = handle.getGit().add();
             Arrays.stream(fileNames).forEach(add::addFilepattern);
             add.call();
             return true;
         } catch (IOException | GitAPIException e) {
+            op.failed(e);
             logger.error("添加失败: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return false;
     }
 
     public static String getTrackingBranch(String localPath){
-        try {
-            Repository repository = Git.open(new File(localPath)).getRepository();
+        OperationRecorder op = metrics.start("getTrackingBranch", localPath);
+        try (RepositoryHandle handle = openForRead(localPath)) {
+            Repository repository = handle.getRepository();
             String branch = repository.getBranch();
             BranchConfig branchConfig = new BranchConfig(repository.getConfig(), branch);
             return Repository.shortenRefName(branchConfig.getTrackingBranch());
         } catch (IOException e) {
+            op.failed(e);
             logger.error("获取追踪的分支失败: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return null;
     }
 
     public static boolean commit(String localPath, String desc) {
-        try {
-            Git.open(new File(localPath)).commit().setMessage(desc).call();
+        OperationRecorder op = metrics.start("commit", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            handle.getGit().commit().setMessage(desc).call();
+            CommitGraphIndex.refreshIfPresent(handle.getRepository());
             return true;
         } catch (IOException | GitAPIException e) {
+            op.failed(e);
             logger.error("提交失败: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return false;
     }
 
+    /**
+     * 按路径列表批量加入索引，已删除的路径从索引中移除，只写一次索引，适合一次加入大量文件。
+     * 不支持通配符，目录不展开，详见 {@link IndexUpdater}。
+     */
+    public static IndexUpdateResult bulkAdd(String localPath, Iterable<String> paths) {
+        return bulkAdd(localPath, paths, ForkJoinPool.commonPool());
+    }
+
+    public static IndexUpdateResult bulkAdd(String localPath, Iterable<String> paths, Executor executor) {
+        OperationRecorder op = metrics.start("bulkAdd", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            return new IndexUpdater(handle.getRepository(), executor).update(paths);
+        } catch (IOException | IllegalArgumentException | NoWorkTreeException e) {
+            op.failed(e);
+            logger.error("批量添加失败: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    /**
+     * 按路径列表批量更新索引并提交，只提交索引中已有的内容与这些路径的变化，不运行钩子。
+     */
+    public static IndexUpdateResult bulkCommit(String localPath, Iterable<String> paths, String desc) {
+        return bulkCommit(localPath, paths, desc, ForkJoinPool.commonPool());
+    }
+
+    public static IndexUpdateResult bulkCommit(String localPath, Iterable<String> paths, String desc,
+                                               Executor executor) {
+        OperationRecorder op = metrics.start("bulkCommit", localPath);
+        try (RepositoryHandle handle = openForWrite(localPath)) {
+            IndexUpdateResult result = new IndexUpdater(handle.getRepository(), executor).commit(paths, desc);
+            CommitGraphIndex.refreshIfPresent(handle.getRepository());
+            return result;
+        } catch (IOException | GitAPIException | IllegalArgumentException | NoWorkTreeException e) {
+            op.failed(e);
+            logger.error("批量提交失败: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
     public static String getRemoteUrl(String localPath) {
         String remoteUrl = null;
-        try {
-            StoredConfig config = Git.open(new File(localPath)).getRepository().getConfig();
+        OperationRecorder op = metrics.start("getRemoteUrl", localPath);
+        try (RepositoryHandle handle = openForRead(localPath)) {
+            StoredConfig config = handle.getRepository().getConfig();
             Set<String> remote = config.getSubsections("remote");
             for (String remoteName: remote) {
                 remoteUrl = config.getString("remote", remoteName, "url");
             }
         } catch (IOException e) {
+            op.failed(e);
             logger.error("获取远程地址异常: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return remoteUrl;
     }
@@ -181,8 +619,7 @@ public class GitClient {
     public boolean push(String localGit) {
 
         try {
-            PushCommand push = Git.open(new File(localGit)).push();
-            this.authStrategy.auth(push).call();
+            pushRepository(localGit, NullProgressMonitor.INSTANCE);
             return true;
         } catch (IOException | GitAPIException e) {
             logger.error("推送失败: {}", e.getMessage());
@@ -190,11 +627,28 @@ public class GitClient {
         return false;
     }
 
+    /**
+     * 与 {@link #push(String)} 相同，失败时抛出原始异常而不是返回 false。
+     */
+    @SuppressWarnings("unchecked")
+    public Iterable<PushResult> pushRepository(String localGit, ProgressMonitor monitor) throws IOException, GitAPIException {
+        OperationRecorder op = metrics.start("push", localGit);
+        // 推送会更新 refs/remotes 下的远程跟踪分支，需要独占仓库
+        try (RepositoryHandle handle = openForWrite(localGit)) {
+            PushCommand push = handle.getGit().push().setProgressMonitor(op.monitor(monitor));
+            return (Iterable<PushResult>) this.authStrategy.auth(push).call();
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.close();
+        }
+    }
+
     public List<String> pull(String localGit) {
 
         try {
-            PullCommand pull = Git.open(new File(localGit)).pull();
-            this.authStrategy.auth(pull).call();
+            pullRepository(localGit, NullProgressMonitor.INSTANCE);
         } catch (CheckoutConflictException e){
             return e.getConflictingPaths();
         } catch (IOException | GitAPIException e) {
@@ -203,6 +657,66 @@ public class GitClient {
         return new ArrayList<>();
     }
 
+    /**
+     * 与 {@link #pull(String)} 相同，失败时抛出原始异常，检出冲突时抛出 {@link CheckoutConflictException}。
+     */
+    public PullResult pullRepository(String localGit, ProgressMonitor monitor) throws IOException, GitAPIException {
+        OperationRecorder op = metrics.start("pull", localGit);
+        try (RepositoryHandle handle = openForWrite(localGit)) {
+            File gitDir = handle.getRepository().getDirectory();
+            long packBytes = op.isRecording() ? packBytes(gitDir) : 0;
+            PullCommand pull = handle.getGit().pull().setProgressMonitor(op.monitor(monitor));
+            PullResult result = (PullResult) this.authStrategy.auth(pull).call();
+            recordPackBytes(op, gitDir, packBytes);
+            CommitGraphIndex.refreshIfPresent(handle.getRepository());
+            return result;
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.close();
+        }
+    }
+
+    public FetchResult fetchRepository(String localGit, ProgressMonitor monitor) throws IOException, GitAPIException {
+        OperationRecorder op = metrics.start("fetch", localGit);
+        try (RepositoryHandle handle = openForWrite(localGit)) {
+            File gitDir = handle.getRepository().getDirectory();
+            long packBytes = op.isRecording() ? packBytes(gitDir) : 0;
+            FetchCommand fetch = handle.getGit().fetch().setProgressMonitor(op.monitor(monitor));
+            FetchResult result = (FetchResult) this.authStrategy.auth(fetch).call();
+            recordPackBytes(op, gitDir, packBytes);
+            CommitGraphIndex.refreshIfPresent(handle.getRepository());
+            return result;
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.close();
+        }
+    }
+
+    /**
+     * 以新增包文件的大小近似从远程接收的字节数，只在记录度量时统计。
+     */
+    private static void recordPackBytes(OperationRecorder op, File gitDir, long before) {
+        if (op.isRecording()) {
+            op.count(OperationRecorder.BYTES_RECEIVED, Math.max(0, packBytes(gitDir) - before));
+        }
+    }
+
+    private static long packBytes(File gitDir) {
+        File[] packs = new File(gitDir, Constants.OBJECTS + "/pack").listFiles(
+                (dir, name) -> name.endsWith(".pack"));
+        long ret = 0;
+        if (packs != null) {
+            for (File pack : packs) {
+                ret += pack.length();
+            }
+        }
+        return ret;
+    }
+
     /**
      *
      * @param localGit
@@ -212,8 +726,9 @@ public class GitClient {
      */
     public static MergeResult.MergeStatus merge(String localGit, String branchName, List<String> conflictFiles) {
 
-        try {
-            Git git = Git.open(new File(localGit));
+        OperationRecorder op = metrics.start("merge", localGit);
+        try (RepositoryHandle handle = openForWrite(localGit)) {
+            Git git = handle.getGit();
             Repository repository = git.getRepository();
             MergeResult merge = git.merge().include(repository.resolve(branchName))
                     .setCommit(true)
@@ -228,21 +743,289 @@ public class GitClient {
                     conflictFiles.add(entry.getKey());
                 }
             }
+            CommitGraphIndex.refreshIfPresent(repository);
             return merge.getMergeStatus();
         }catch (IOException | GitAPIException e) {
+            op.failed(e);
             logger.error("同步失败: {}", e.getMessage());
+        } finally {
+            op.close();
         }
         return MergeResult.MergeStatus.FAILED;
     }
 
+    /**
+     * 预览把 branchName 合并到 targetBranch 的结果，只访问对象库，不修改工作区、索引与引用。
+     *
+     * @return 查询异常时返回 null
+     */
+    public static MergePreview mergePreview(String localGit, String targetBranch, String branchName) {
+        return mergePreview(localGit, targetBranch, branchName, false);
+    }
+
+    /**
+     * @param writeCommit 无冲突时把合并结果与合并提交写入对象库，通过 {@link MergePreview#getCommitId()} 获取，
+     *                    不更新任何引用
+     */
+    public static MergePreview mergePreview(String localGit, String targetBranch, String branchName,
+                                            boolean writeCommit) {
+
+        OperationRecorder op = metrics.start("mergePreview", localGit);
+        try (RepositoryHandle handle = writeCommit ? openForWrite(localGit) : openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            return MergePreviewer.preview(repository, resolveCommit(repository, targetBranch),
+                    resolveCommit(repository, branchName), writeCommit ? "Merged " + branchName : null);
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("预览合并异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    /**
+     * 并行预览多个分支分别合并到 targetBranch 的结果，不写入对象。
+     *
+     * @return 按 branchNames 顺序的分支名到预览结果的映射，单个分支查询异常时对应的值为 null
+     */
+    public static Map<String, MergePreview> mergePreview(String localGit, String targetBranch,
+                                                         Collection<String> branchNames, Executor executor) {
+
+        OperationRecorder op = metrics.start("mergePreview", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            ObjectId target = resolveCommit(repository, targetBranch);
+            Map<String, CompletableFuture<MergePreview>> futures = new LinkedHashMap<>();
+            for (String branchName : branchNames) {
+                // 单个分支的任何异常（包括合并器抛出的运行时异常）都只让该分支的结果为 null
+                futures.put(branchName, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return MergePreviewer.preview(repository, target, resolveCommit(repository, branchName), null);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor).exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof UncheckedIOException) {
+                        cause = cause.getCause();
+                    }
+                    logger.error("预览合并异常: {} {}", branchName, cause.getMessage());
+                    return null;
+                }));
+            }
+            Map<String, MergePreview> ret = new LinkedHashMap<>();
+            for (Map.Entry<String, CompletableFuture<MergePreview>> entry : futures.entrySet()) {
+                ret.put(entry.getKey(), entry.getValue().join());
+            }
+            return ret;
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("预览合并异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+
+    /**
+     * 查找 HEAD 中文件每一行的来源提交。
+     */
+    public static FileBlame blame(String localGit, String path) {
+        return blame(localGit, Constants.HEAD, path);
+    }
+
+    /**
+     * 查找 revision 中文件每一行的来源提交与作者，结果按提交与文件缓存，
+     * 已缓存过之前版本时只比较之后修改过该文件的提交，详见 {@link Blamer}。
+     *
+     * @param path 以 / 分隔、相对仓库根目录的路径
+     * @return 文件不存在或查询异常时返回 null
+     */
+    public static FileBlame blame(String localGit, String revision, String path) {
+
+        OperationRecorder op = metrics.start("blame", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            return new Blamer(repository, blameCache).blame(resolveCommit(repository, revision), path);
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("获取文件逐行来源异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    /**
+     * 在历史中查找新增或删除了匹配行的提交，结果按提交顺序流式交给 handler，详见 {@link ContentSearch}。
+     *
+     * @return 全部搜索完成返回 true；被 handler 中止或搜索异常返回 false
+     */
+    public static boolean searchHistory(String localGit, SearchQuery query, SearchHandler handler) {
+        return searchHistory(localGit, query, handler, ForkJoinPool.commonPool());
+    }
+
+    public static boolean searchHistory(String localGit, SearchQuery query, SearchHandler handler,
+                                        Executor executor) {
+
+        OperationRecorder op = metrics.start("searchHistory", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            return new ContentSearch(handle.getRepository(), executor).history(query, handler);
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("搜索历史异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return false;
+    }
+
+    /**
+     * 查找 {@link SearchQuery#getRevision()} 中包含匹配行的文件，结果按路径顺序流式交给 handler。
+     *
+     * @return 全部搜索完成返回 true；被 handler 中止或搜索异常返回 false
+     */
+    public static boolean searchContent(String localGit, SearchQuery query, SearchHandler handler) {
+        return searchContent(localGit, query, handler, ForkJoinPool.commonPool());
+    }
+
+    public static boolean searchContent(String localGit, SearchQuery query, SearchHandler handler,
+                                        Executor executor) {
+
+        OperationRecorder op = metrics.start("searchContent", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            return new ContentSearch(handle.getRepository(), executor).content(query, handler);
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("搜索文件内容异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return false;
+    }
 
     public static Iterable<RevCommit> logs(String localGit) {
 
-        try (Git git = Git.open(new File(localGit))) {
+        OperationRecorder op = metrics.start("logs", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Git git = handle.getGit();
             Iterable<RevCommit> commits = git.log().call();
             return commits;
         }catch (Exception e) {
+            op.failed(e);
+            logger.error("gitLogs error! \n" + e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+
+    /**
+     * 判断 branchName 是否已合并到 targetBranch，即 branchName 指向的提交是否为 targetBranch 的祖先。
+     * 使用提交图索引，首次调用时会为仓库建立索引。
+     */
+    public static boolean isMerged(String localGit, String branchName, String targetBranch) {
+
+        OperationRecorder op = metrics.start("isMerged", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            return CommitGraphIndex.of(repository).isAncestor(repository,
+                    resolveCommit(repository, branchName), resolveCommit(repository, targetBranch));
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("判断分支合并状态异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return false;
+    }
+
+    /**
+     * @return 两个版本的最佳公共祖先提交 id，没有公共祖先或查询异常时返回 null
+     */
+    public static String mergeBase(String localGit, String revision, String otherRevision) {
+
+        OperationRecorder op = metrics.start("mergeBase", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            ObjectId base = CommitGraphIndex.of(repository).mergeBase(repository,
+                    resolveCommit(repository, revision), resolveCommit(repository, otherRevision));
+            return base == null ? null : base.name();
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("获取合并基异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    /**
+     * 统计 revision 相对 upstream 领先与落后的提交数。
+     *
+     * @return 查询异常时返回 null
+     */
+    public static AheadBehind aheadBehind(String localGit, String revision, String upstream) {
+
+        OperationRecorder op = metrics.start("aheadBehind", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            return CommitGraphIndex.of(repository).aheadBehind(repository,
+                    resolveCommit(repository, revision), resolveCommit(repository, upstream));
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("统计领先落后提交数异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    /**
+     * 汇总所有本地分支的最新提交、上游分支、领先落后提交数与最新提交时间，所有分支共用一次提交图遍历。
+     *
+     * @return 查询异常时返回 null
+     */
+    public static List<BranchSummary> branchSummaries(String localGit) {
+
+        OperationRecorder op = metrics.start("branchSummaries", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            return BranchSummaries.list(handle.getRepository());
+        } catch (IOException e) {
+            op.failed(e);
+            logger.error("汇总分支信息异常: {}", e.getMessage());
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    private static ObjectId resolveCommit(Repository repository, String revision) throws IOException {
+        ObjectId id = repository.resolve(revision + "^{commit}");
+        if (id == null) {
+            throw new IllegalArgumentException("无法解析版本: " + revision);
+        }
+        return id;
+    }
+
+    /**
+     * 分页查询提交历史，通过返回的游标获取下一页。
+     *
+     * @return 查询异常时返回 null
+     */
+    public static LogPage logs(String localGit, LogQuery query) {
+
+        OperationRecorder op = metrics.start("logs", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            return CommitLog.page(handle.getRepository(), query);
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
             logger.error("gitLogs error! \n" + e.getMessage());
+        } finally {
+            op.close();
         }
         return null;
     }
@@ -252,10 +1035,14 @@ public class GitClient {
 
         boolean resetFlag = true;
         ResetCommand.ResetType mode = null;
-        try (Git git = Git.open(new File(localGit))) {
-            RevWalk walk = new RevWalk(git.getRepository());
+        OperationRecorder op = metrics.start("reset", localGit);
+        try (RepositoryHandle handle = openForWrite(localGit)) {
+            Git git = handle.getGit();
             ObjectId objectId = git.getRepository().resolve(commitName);
-            RevCommit revCommit = walk.parseCommit(objectId);
+            RevCommit revCommit;
+            try (RevWalk walk = new RevWalk(git.getRepository())) {
+                revCommit = walk.parseCommit(objectId);
+            }
             String perVision = revCommit.getName();
             if(resetType.equals("hard")){
                 mode = ResetCommand.ResetType.HARD;
@@ -268,86 +1055,408 @@ public class GitClient {
             }
             git.reset().setMode(mode).setRef(perVision).call();
         } catch (IOException | GitAPIException e) {
+            op.failed(e);
             resetFlag = false;
             logger.error("Reset error! \n" + e.getMessage());
+        } finally {
+            op.close();
         }
         return resetFlag;
     }
 
     public static List<FormatEntry> localDiff(String localGit) {
+        return localDiff(localGit, null);
+    }
+
+    /**
+     * 按 options 比较 HEAD 与工作区，options 为 null 时使用默认选项。
+     */
+    public static List<FormatEntry> localDiff(String localGit, DiffOptions options) {
         List<FormatEntry> ret = new ArrayList<>();
 
-        try (Git git = Git.open(new File(localGit))) {
+        OperationRecorder op = metrics.start("localDiff", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Git git = handle.getGit();
             Repository repository = git.getRepository();
 
-            OutputStream outputStream = new ByteArrayOutputStream();
-
-            DiffFormatter diffFormatter = new DiffFormatter(outputStream);
-            diffFormatter.setRepository(repository);
-
-            ObjectReader reader = repository.newObjectReader();
-            CanonicalTreeParser oldTree = new CanonicalTreeParser();
-            ObjectId headTree = repository.resolve("HEAD^{tree}");
-            if (headTree == null) return ret;
-            oldTree.reset(reader, headTree);
-            FileTreeIterator newTree = new FileTreeIterator(repository);
-            diffFormatter.format(oldTree, newTree);
-            ret = ContentFormatter.parserEntry(outputStream.toString());
+            try (DiffEntryFormatter formatter = new DiffEntryFormatter(repository);
+                 ObjectReader reader = repository.newObjectReader()) {
+                formatter.setOptions(options);
+                CanonicalTreeParser oldTree = new CanonicalTreeParser();
+                ObjectId headTree = repository.resolve("HEAD^{tree}");
+                if (headTree == null) return ret;
+                oldTree.reset(reader, headTree);
+                FileTreeIterator newTree = new FileTreeIterator(repository);
+                ret = formatter.format(oldTree, newTree);
+                op.count(OperationRecorder.FILES_DIFFED, ret.size());
+            }
             return ret;
         } catch (IOException e) {
+            op.failed(e);
             logger.error("显示差异异常: ", e);
+        } finally {
+            op.close();
         }
         return ret;
     }
 
     public static List<FormatEntry> branchDiff(String localGit, String oldBranch, String newBranch) {
+        return branchDiff(localGit, oldBranch, newBranch, (DiffOptions) null);
+    }
+
+    /**
+     * 按 options 比较两个分支，可以检测重命名并限制二进制文件与大文件，options 为 null 时使用默认选项。
+     */
+    public static List<FormatEntry> branchDiff(String localGit, String oldBranch, String newBranch,
+                                               DiffOptions options) {
 
-        try (Git git = Git.open(new File(localGit))) {
+        OperationRecorder op = metrics.start("branchDiff", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Git git = handle.getGit();
             Repository repository = git.getRepository();
             Ref oldRef = repository.findRef(oldBranch);
             Ref newRef = repository.findRef(newBranch);
 
-            AbstractTreeIterator oldTree = prepareTreeParser(repository, oldRef);
-            AbstractTreeIterator newTree = prepareTreeParser(repository, newRef);
-
-            return showDiff(git, oldTree, newTree);
+            return diffCommits(git, oldRef.getObjectId(), newRef.getObjectId(), options, null, op);
         } catch (IOException | GitAPIException e) {
+            op.failed(e);
             logger.error("显示差异异常: ", e);
+        } finally {
+            op.close();
         }
         return null;
     }
 
     public static List<FormatEntry> commitDiff(String localGit, String oldCommit, String newCommit) {
+        return commitDiff(localGit, oldCommit, newCommit, (DiffOptions) null, null);
+    }
+
+    /**
+     * 按 options 比较两个提交，参见 {@link #branchDiff(String, String, String, DiffOptions)}。
+     */
+    public static List<FormatEntry> commitDiff(String localGit, String oldCommit, String newCommit,
+                                               DiffOptions options) {
+        return commitDiff(localGit, oldCommit, newCommit, options, null);
+    }
+
+    /**
+     * 按 options 比较两个提交，executor 不为 null 时并行比较。
+     */
+    public static List<FormatEntry> commitDiff(String localGit, String oldCommit, String newCommit,
+                                               DiffOptions options, Executor executor) {
+
+        try {
+            return readCommitDiff(localGit, oldCommit, newCommit, options, executor);
+        } catch (IOException | GitAPIException e) {
+            logger.error("显示差异异常: ", e);
+        }
+        return null;
+    }
+
+    /**
+     * 统计两个分支之间每个文件的增删行数，不生成差异内容，参见 {@link #commitDiffStat(String, String, String, DiffOptions, boolean)}。
+     */
+    public static DiffStat branchDiffStat(String localGit, String oldBranch, String newBranch) {
+        return branchDiffStat(localGit, oldBranch, newBranch, null, true);
+    }
+
+    public static DiffStat branchDiffStat(String localGit, String oldBranch, String newBranch,
+                                          DiffOptions options, boolean countLines) {
+        return branchDiffStat(localGit, oldBranch, newBranch, options, countLines, null);
+    }
+
+    public static DiffStat branchDiffStat(String localGit, String oldBranch, String newBranch,
+                                          DiffOptions options, boolean countLines, Executor executor) {
+
+        OperationRecorder op = metrics.start("diffStat", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            return diffStat(repository, repository.findRef(oldBranch).getObjectId(),
+                    repository.findRef(newBranch).getObjectId(), options, countLines, executor, op);
+        } catch (IOException e) {
+            op.failed(e);
+            logger.error("统计差异异常: ", e);
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    /**
+     * 统计两个提交之间每个文件的增删行数，相当于 {@code git diff --numstat}。
+     */
+    public static DiffStat commitDiffStat(String localGit, String oldCommit, String newCommit) {
+        return commitDiffStat(localGit, oldCommit, newCommit, null, true);
+    }
+
+    /**
+     * 直接由编辑列表统计行数，不生成差异内容；countLines 为 false 时只比较树，相同的子树直接跳过，
+     * 不读取任何文件内容，只返回变更的文件与类型，增删行数均为 -1。
+     * options 中的重命名检测、二进制文件阈值与文件大小上限同样生效，options 为 null 时使用默认选项。
+     */
+    public static DiffStat commitDiffStat(String localGit, String oldCommit, String newCommit,
+                                          DiffOptions options, boolean countLines) {
+        return commitDiffStat(localGit, oldCommit, newCommit, options, countLines, null);
+    }
+
+    /**
+     * executor 不为 null 时，差异文件数达到 {@link ParallelDiffFormatter#DEFAULT_PARALLEL_THRESHOLD} 后并行统计。
+     */
+    public static DiffStat commitDiffStat(String localGit, String oldCommit, String newCommit,
+                                          DiffOptions options, boolean countLines, Executor executor) {
+
+        OperationRecorder op = metrics.start("diffStat", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            return diffStat(handle.getRepository(), ObjectId.fromString(oldCommit), ObjectId.fromString(newCommit),
+                    options, countLines, executor, op);
+        } catch (IOException e) {
+            op.failed(e);
+            logger.error("统计差异异常: ", e);
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    private static DiffStat diffStat(Repository repository, ObjectId oldCommit, ObjectId newCommit, DiffOptions options,
+                                     boolean countLines, Executor executor, OperationRecorder op) throws IOException {
+        AbstractTreeIterator oldTree = prepareTreeParser(repository, oldCommit);
+        AbstractTreeIterator newTree = prepareTreeParser(repository, newCommit);
+        try (DiffEntryFormatter formatter = new DiffEntryFormatter(repository)) {
+            formatter.setOptions(options);
+            List<DiffEntry> entries = formatter.scan(oldTree, newTree);
+            DiffStat ret;
+            if (executor == null) {
+                ret = formatter.stat(entries, formatter.newContentSource(oldTree, newTree), countLines);
+            } else {
+                ParallelDiffFormatter parallel = new ParallelDiffFormatter(repository, executor);
+                parallel.setOptions(options);
+                ret = parallel.stat(entries, countLines);
+            }
+            op.count(OperationRecorder.FILES_DIFFED, ret.getFileCount());
+            return ret;
+        }
+    }
+
+    public static List<FormatEntry> showDiff(Git git, AbstractTreeIterator oldTree, AbstractTreeIterator newTree) throws GitAPIException {
+        return showDiff(git, oldTree, newTree, null, null);
+    }
+
+
+    /**
+     * 使用线程池并行比较两个分支，结果顺序与 {@link #branchDiff(String, String, String)} 一致。
+     */
+    public static List<FormatEntry> branchDiff(String localGit, String oldBranch, String newBranch, Executor executor) {
+
+        OperationRecorder op = metrics.start("branchDiff", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Git git = handle.getGit();
+            Repository repository = git.getRepository();
+
+            return diffCommits(git, repository.findRef(oldBranch).getObjectId(),
+                    repository.findRef(newBranch).getObjectId(), null, executor, op);
+        } catch (IOException | GitAPIException e) {
+            op.failed(e);
+            logger.error("显示差异异常: ", e);
+        } finally {
+            op.close();
+        }
+        return null;
+    }
+
+    /**
+     * 使用线程池并行比较两个提交，结果顺序与 {@link #commitDiff(String, String, String)} 一致。
+     */
+    public static List<FormatEntry> commitDiff(String localGit, String oldCommit, String newCommit, Executor executor) {
+        return commitDiff(localGit, oldCommit, newCommit, null, executor);
+    }
+
+    static List<FormatEntry> readCommitDiff(String localGit, String oldCommit, String newCommit, DiffOptions options,
+                                            Executor executor) throws IOException, GitAPIException {
+        OperationRecorder op = metrics.start("commitDiff", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            return diffCommits(handle.getGit(), ObjectId.fromString(oldCommit), ObjectId.fromString(newCommit),
+                    options, executor, op);
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.close();
+        }
+    }
+
+    /**
+     * 差异文件数达到 {@link ParallelDiffFormatter#DEFAULT_PARALLEL_THRESHOLD} 时在 executor 中并行比较，否则顺序比较。
+     * 新旧树都必须来自对象库。
+     */
+    public static List<FormatEntry> showDiff(Git git, AbstractTreeIterator oldTree, AbstractTreeIterator newTree,
+                                             Executor executor) throws GitAPIException {
+        return showDiff(git, oldTree, newTree, null, executor);
+    }
+
+    /**
+     * 按 options 比较两棵树，options 为 null 时使用默认选项。executor 为 null 时顺序比较，
+     * 否则与 {@link #showDiff(Git, AbstractTreeIterator, AbstractTreeIterator, Executor)} 相同，新旧树都必须来自对象库。
+     */
+    public static List<FormatEntry> showDiff(Git git, AbstractTreeIterator oldTree, AbstractTreeIterator newTree,
+                                             DiffOptions options, Executor executor) throws GitAPIException {
+        try (DiffEntryFormatter formatter = new DiffEntryFormatter(git.getRepository())) {
+            formatter.setDiffCache(diffCache);
+            formatter.setOptions(options);
+            List<DiffEntry> diff = formatter.scan(oldTree, newTree);
+            if (executor == null) {
+                return formatter.format(diff, formatter.newContentSource(oldTree, newTree));
+            }
+            ParallelDiffFormatter parallel = new ParallelDiffFormatter(git.getRepository(), executor);
+            parallel.setDiffCache(diffCache);
+            parallel.setOptions(options);
+            return parallel.format(diff);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 流式比较两个分支，每计算完一个文件（byHunk 为 true 时为一个区块）就交给 handler，不保留完整结果。
+     * 可配合 {@link LimitedDiffHandler} 限制文件数与行数。
+     *
+     * @return 全部处理完成返回 true；被 handler 中止或比较异常返回 false
+     */
+    public static boolean branchDiff(String localGit, String oldBranch, String newBranch,
+                                     DiffHandler handler, boolean byHunk) {
+        return branchDiff(localGit, oldBranch, newBranch, null, handler, byHunk);
+    }
+
+    /**
+     * 按 options 流式比较两个分支，options 为 null 时使用默认选项。
+     */
+    public static boolean branchDiff(String localGit, String oldBranch, String newBranch, DiffOptions options,
+                                     DiffHandler handler, boolean byHunk) {
 
-        try (Git git = Git.open(new File(localGit))) {
+        OperationRecorder op = metrics.start("branchDiff", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Git git = handle.getGit();
+            Repository repository = git.getRepository();
+
+            AbstractTreeIterator oldTree = prepareTreeParser(repository, repository.findRef(oldBranch));
+            AbstractTreeIterator newTree = prepareTreeParser(repository, repository.findRef(newBranch));
+            // 不限制数量，只用来统计交给 handler 的文件数
+            LimitedDiffHandler counter = new LimitedDiffHandler(handler, Integer.MAX_VALUE, Long.MAX_VALUE);
+            boolean ret = showDiff(git, oldTree, newTree, options, counter, byHunk);
+            op.count(OperationRecorder.FILES_DIFFED, counter.getFiles());
+            return ret;
+        } catch (IOException | GitAPIException e) {
+            op.failed(e);
+            logger.error("显示差异异常: ", e);
+        } finally {
+            op.close();
+        }
+        return false;
+    }
+
+    /**
+     * 流式比较两个提交，参见 {@link #branchDiff(String, String, String, DiffHandler, boolean)}。
+     */
+    public static boolean commitDiff(String localGit, String oldCommit, String newCommit,
+                                     DiffHandler handler, boolean byHunk) {
+        return commitDiff(localGit, oldCommit, newCommit, null, handler, byHunk);
+    }
+
+    /**
+     * 按 options 流式比较两个提交，options 为 null 时使用默认选项。
+     */
+    public static boolean commitDiff(String localGit, String oldCommit, String newCommit, DiffOptions options,
+                                     DiffHandler handler, boolean byHunk) {
+
+        OperationRecorder op = metrics.start("commitDiff", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Git git = handle.getGit();
             Repository repository = git.getRepository();
 
             AbstractTreeIterator oldTree = prepareTreeParser(repository, oldCommit);
             AbstractTreeIterator newTree = prepareTreeParser(repository, newCommit);
-            return showDiff(git, oldTree, newTree);
+            LimitedDiffHandler counter = new LimitedDiffHandler(handler, Integer.MAX_VALUE, Long.MAX_VALUE);
+            boolean ret = showDiff(git, oldTree, newTree, options, counter, byHunk);
+            op.count(OperationRecorder.FILES_DIFFED, counter.getFiles());
+            return ret;
         } catch (IOException | GitAPIException e) {
+            op.failed(e);
             logger.error("显示差异异常: ", e);
+        } finally {
+            op.close();
+        }
+        return false;
+    }
+
+    /**
+     * 以迭代器形式按需比较两个提交，调用方每取一个文件才计算一个文件，使用完毕后必须关闭。
+     * 迭代器持有仓库的读锁直到关闭，必须在调用本方法的线程中关闭；操作耗时与取出的文件数在关闭时记录。
+     */
+    public static DiffIterator commitDiffIterator(String localGit, String oldCommit, String newCommit) {
+        return commitDiffIterator(localGit, oldCommit, newCommit, null);
+    }
+
+    /**
+     * 按 options 以迭代器形式比较两个提交，options 为 null 时使用默认选项。
+     */
+    public static DiffIterator commitDiffIterator(String localGit, String oldCommit, String newCommit,
+                                                  DiffOptions options) {
+        OperationRecorder op = metrics.start("commitDiff", localGit);
+        RepositoryHandle handle = null;
+        DiffEntryFormatter formatter = null;
+        try {
+            handle = openForRead(localGit);
+            Repository repository = handle.getRepository();
+
+            AbstractTreeIterator oldTree = prepareTreeParser(repository, oldCommit);
+            AbstractTreeIterator newTree = prepareTreeParser(repository, newCommit);
+            formatter = new DiffEntryFormatter(repository);
+            formatter.setDiffCache(diffCache);
+            formatter.setOptions(options);
+            List<DiffEntry> diff = formatter.scan(oldTree, newTree);
+            DiffIterator iterator = new DiffIterator(formatter, diff, formatter.newContentSource(oldTree, newTree),
+                    handle, op);
+            // 句柄、读锁、对象读取器与操作记录交给迭代器，在 DiffIterator.close() 中释放
+            handle = null;
+            formatter = null;
+            op = null;
+            return iterator;
+        } catch (IOException | IllegalArgumentException e) {
+            op.failed(e);
+            logger.error("显示差异异常: ", e);
+        } finally {
+            if (formatter != null) {
+                formatter.close();
+            }
+            if (handle != null) {
+                handle.close();
+            }
+            if (op != null) {
+                op.close();
+            }
         }
         return null;
     }
 
-    public static List<FormatEntry> showDiff(Git git, AbstractTreeIterator oldTree, AbstractTreeIterator newTree) throws GitAPIException {
-        List<FormatEntry> ret = new ArrayList<>();
-        List<DiffEntry> diff = git.diff().setOldTree(oldTree).setNewTree(newTree).call();
-        diff.stream().forEach(entity -> {
-            OutputStream outputStream = new ByteArrayOutputStream();
-            DiffFormatter diffFormatter = new DiffFormatter(outputStream);
-            diffFormatter.setRepository(git.getRepository());
-            try {
-                diffFormatter.format(entity);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-            ret.addAll(ContentFormatter.parserEntry(outputStream.toString()));
-        });
-        return ret;
+    public static boolean showDiff(Git git, AbstractTreeIterator oldTree, AbstractTreeIterator newTree,
+                                   DiffHandler handler, boolean byHunk) throws GitAPIException, IOException {
+        return showDiff(git, oldTree, newTree, null, handler, byHunk);
     }
 
+    /**
+     * 按 options 流式比较两棵树，options 为 null 时使用默认选项。
+     */
+    public static boolean showDiff(Git git, AbstractTreeIterator oldTree, AbstractTreeIterator newTree,
+                                   DiffOptions options, DiffHandler handler, boolean byHunk)
+            throws GitAPIException, IOException {
+        try (DiffEntryFormatter formatter = new DiffEntryFormatter(git.getRepository())) {
+            formatter.setDiffCache(diffCache);
+            formatter.setOptions(options);
+            List<DiffEntry> diff = formatter.scan(oldTree, newTree);
+            ContentSource.Pair source = formatter.newContentSource(oldTree, newTree);
+            return byHunk ? formatter.formatHunks(diff, source, handler) : formatter.format(diff, source, handler);
+        }
+    }
 
     private static AbstractTreeIterator prepareTreeParser(Repository repository, Ref ref) throws IOException {
         return prepareTreeParser(repository, ref.getObjectId());
@@ -358,25 +1467,124 @@ public class GitClient {
     }
 
     private static AbstractTreeIterator prepareTreeParser(Repository repository, ObjectId objectId) throws IOException {
+        return prepareTreeParser(repository, resolveTree(repository, objectId));
+    }
+
+    private static AbstractTreeIterator prepareTreeParser(Repository repository, RevTree tree) throws IOException {
+        CanonicalTreeParser treeParser = new CanonicalTreeParser();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            treeParser.reset(reader, tree.getId());
+        }
+        return treeParser;
+    }
+
+    private static RevTree resolveTree(Repository repository, ObjectId objectId) throws IOException {
         try (RevWalk walk = new RevWalk(repository)) {
             RevCommit commit = walk.parseCommit(objectId);
-            RevTree tree = walk.parseTree(commit.getTree().getId());
-            CanonicalTreeParser treeParser = new CanonicalTreeParser();
-            try (ObjectReader reader = repository.newObjectReader()) {
-                treeParser.reset(reader, tree.getId());
-            }
+            return walk.parseTree(commit.getTree().getId());
+        }
+    }
 
-            walk.dispose();
+    /**
+     * 比较两个提交的树，设置了 {@link #setDiffCache(DiffCache)} 时先按树 id 查找缓存。
+     * executor 为 null 时顺序比较。
+     */
+    static List<FormatEntry> diffCommits(Git git, ObjectId oldCommit, ObjectId newCommit, DiffOptions options,
+                                         Executor executor, OperationRecorder op) throws IOException, GitAPIException {
+        Repository repository = git.getRepository();
+        RevTree oldTreeId = resolveTree(repository, oldCommit);
+        RevTree newTreeId = resolveTree(repository, newCommit);
+
+        DiffCache cache = diffCache;
+        String optionsKey = DiffEntryFormatter.optionsKey(repository, options);
+        if (cache != null) {
+            List<FormatEntry> cached = cache.getTreeDiff(oldTreeId, newTreeId, optionsKey);
+            if (cached != null) {
+                op.count(OperationRecorder.FILES_DIFFED, cached.size());
+                return cached;
+            }
+        }
 
-            return treeParser;
+        AbstractTreeIterator oldTree = prepareTreeParser(repository, oldTreeId);
+        AbstractTreeIterator newTree = prepareTreeParser(repository, newTreeId);
+        List<FormatEntry> ret = showDiff(git, oldTree, newTree, options, executor);
+        if (cache != null) {
+            cache.putTreeDiff(oldTreeId, newTreeId, optionsKey, ret);
         }
+        op.count(OperationRecorder.FILES_DIFFED, ret.size());
+        return ret;
+    }
+
+    /**
+     * 设置差异结果缓存，对 commitDiff、branchDiff 与 showDiff 生效，为 null 时关闭缓存。
+     */
+    public static void setDiffCache(DiffCache cache) {
+        diffCache = cache;
+    }
+
+    public static DiffCache getDiffCache() {
+        return diffCache;
+    }
+
+    /**
+     * 设置逐行来源缓存，默认使用 {@link BlameCache#DEFAULT_MAX_WEIGHT} 大小的缓存，为 null 时关闭缓存。
+     */
+    public static void setBlameCache(BlameCache cache) {
+        blameCache = cache;
+    }
+
+    public static BlameCache getBlameCache() {
+        return blameCache;
+    }
+
+    /**
+     * 设置操作度量，记录每个操作的耗时、各阶段耗时、传输量与失败次数，为 null 时恢复为不记录。
+     */
+    public static void setMetrics(GitMetrics gitMetrics) {
+        metrics = gitMetrics == null ? GitMetrics.NOOP : gitMetrics;
+    }
+
+    public static GitMetrics getMetrics() {
+        return metrics;
     }
 
 
     public static Map<String,List<String>> gitStatus(String localGit) {
         Map<String,List<String>> map = new HashMap<>();
-        try (Git git = Git.open(new File(localGit))) {
-            Status status = git.status().call();
+        try {
+            map = readStatus(localGit, false);
+        } catch (Exception e) {
+            logger.error("获取git状态异常{}", e.getMessage());
+        }
+        return map;
+    }
+
+
+    /**
+     * 获取工作区状态，incremental 为 true 时使用 {@link StatusTracker}，
+     * 首次调用后只重新检查发生变化的路径，结果与完整状态相同。
+     */
+    public static Map<String,List<String>> gitStatus(String localGit, boolean incremental) {
+        if (!incremental) {
+            return gitStatus(localGit);
+        }
+        try {
+            return readStatus(localGit, true);
+        } catch (IOException | GitAPIException e) {
+            logger.error("获取git状态异常{}", e.getMessage());
+        }
+        return new HashMap<>();
+    }
+
+    static Map<String,List<String>> readStatus(String localGit, boolean incremental) throws IOException, GitAPIException {
+        OperationRecorder op = metrics.start("gitStatus", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Repository repository = handle.getRepository();
+            if (incremental) {
+                return StatusTracker.of(repository).status(repository);
+            }
+            Status status = handle.getGit().status().call();
+            Map<String,List<String>> map = new HashMap<>();
             map.put("Added", setToList(status.getAdded()));
             map.put("Changed",setToList(status.getChanged()));
             map.put("Conflicting",setToList(status.getConflicting()));
@@ -387,17 +1595,31 @@ public class GitClient {
             map.put("Untracked",setToList(status.getUntracked()));
             map.put("UntrackedFolders",setToList(status.getUntrackedFolders()));
             map.put("UncommittedChanges",setToList(status.getUncommittedChanges()));
-
-        } catch (Exception e) {
-            logger.error("获取git状态异常{}", e.getMessage());
+            return map;
+        } catch (IOException | GitAPIException | RuntimeException e) {
+            op.failed(e);
+            throw e;
+        } finally {
+            op.close();
         }
-        return map;
     }
 
+    /**
+     * 停止增量状态对工作区的监听。
+     */
+    public static void stopStatusTracking(String localGit) {
+        try (RepositoryHandle handle = openRepository(localGit)) {
+            StatusTracker.release(handle.getRepository());
+        } catch (IOException e) {
+            logger.error("停止工作区监听异常{}", e.getMessage());
+        }
+    }
 
     public static List<String> gitBranchList(String localGit) {
         List<String> barchList = new ArrayList<>();
-        try (Git git = Git.open(new File(localGit))) {
+        OperationRecorder op = metrics.start("gitBranchList", localGit);
+        try (RepositoryHandle handle = openForRead(localGit)) {
+            Git git = handle.getGit();
             List<Ref> refs = git.branchList().call();
             if (refs.size() > 0) {
                 for (Ref ref : refs) {
@@ -405,11 +1627,36 @@ public class GitClient {
                 }
             }
         } catch (Exception e) {
+            op.failed(e);
             logger.error("获取git分支异常{}", e.getMessage());
+        } finally {
+            op.close();
         }
         return barchList;
     }
 
+    public static RepositoryManager getRepositoryManager() {
+        return RepositoryManager.getDefault();
+    }
+
+    static RepositoryHandle openRepository(String localPath) throws IOException {
+        return RepositoryManager.getDefault().open(localPath);
+    }
+
+    /**
+     * 只读操作使用，同一仓库上的只读操作可以并发执行。
+     */
+    static RepositoryHandle openForRead(String localPath) throws IOException {
+        return RepositoryManager.getDefault().openForRead(localPath);
+    }
+
+    /**
+     * 修改工作区、索引或引用的操作使用，与同一仓库上的其他操作互斥。
+     */
+    static RepositoryHandle openForWrite(String localPath) throws IOException {
+        return RepositoryManager.getDefault().openForWrite(localPath);
+    }
+
     public static List<String> setToList(Set<String> set) {
         List<String> list = new ArrayList<>();
         for(String s: set) {
@@ -0,0 +1,29 @@
+package com.test.gitclient;
+
+/**
+ * {@link AsyncGitClient} 中操作失败时 future 携带的异常，cause 为 JGit 或 IO 的原始异常。
+ */
+public class GitOperationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String operation;
+    private final String localPath;
+
+    public GitOperationException(String operation, String localPath, Throwable cause) {
+        super(operation + " " + localPath + ": " + cause.getMessage(), cause);
+        this.operation = operation;
+        this.localPath = localPath;
+    }
+
+    /**
+     * @return 操作名，如 clone、pull
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+}
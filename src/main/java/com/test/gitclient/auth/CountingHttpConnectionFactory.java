@@ -0,0 +1,53 @@
+package com.test.gitclient.auth;
+
+import org.eclipse.jgit.transport.http.HttpConnection;
+import org.eclipse.jgit.transport.http.HttpConnectionFactory2;
+import org.eclipse.jgit.transport.http.JDKHttpConnectionFactory;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计请求数的 HTTP 连接工厂，连接由 JGit 的 {@link JDKHttpConnectionFactory} 创建。
+ * <p>
+ * 持久连接由 JDK 的 HttpURLConnection 自身的 keep-alive 缓存复用，本工厂不修改任何系统属性；
+ * 每个主机缓存的空闲连接数由 http.maxConnections 决定，需要调整时在 JVM 启动参数中设置。
+ */
+public class CountingHttpConnectionFactory implements HttpConnectionFactory2 {
+
+    private static final CountingHttpConnectionFactory DEFAULT = new CountingHttpConnectionFactory();
+
+    private final JDKHttpConnectionFactory delegate = new JDKHttpConnectionFactory();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    public static CountingHttpConnectionFactory getDefault() {
+        return DEFAULT;
+    }
+
+    @Override
+    public HttpConnection create(URL url) throws IOException {
+        requestCount.incrementAndGet();
+        return delegate.create(url);
+    }
+
+    @Override
+    public HttpConnection create(URL url, Proxy proxy) throws IOException {
+        requestCount.incrementAndGet();
+        return delegate.create(url, proxy);
+    }
+
+    @Override
+    public GitSession newSession() {
+        return delegate.newSession();
+    }
+
+    /**
+     * @return 通过本工厂发起的请求数
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+}
@@ -2,20 +2,41 @@ package com.test.gitclient.auth;
 
 import org.eclipse.jgit.api.GitCommand;
 import org.eclipse.jgit.api.TransportCommand;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.TransportHttp;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.transport.http.HttpConnectionFactory;
 
+/**
+ * 用户名密码认证。凭据与连接工厂在创建时配置一次，所有传输命令共用；
+ * HTTP 传输首次请求即携带 Basic 认证头，省去每次连接先收到 401 再重试的往返。
+ */
 public class HttpAuthStrategy implements GitAuthStrategy{
-    private String userName;
-    private String password;
+    private final String userName;
+    private final String password;
+    private final CredentialsProvider credentialsProvider;
+    private final HttpConnectionFactory connectionFactory;
 
     public HttpAuthStrategy(String userName, String password) {
+        this(userName, password, CountingHttpConnectionFactory.getDefault());
+    }
+
+    public HttpAuthStrategy(String userName, String password, HttpConnectionFactory connectionFactory) {
         this.userName = userName;
         this.password = password;
+        this.credentialsProvider = new UsernamePasswordCredentialsProvider(userName, password);
+        this.connectionFactory = connectionFactory;
     }
 
     @Override
     public GitCommand auth(TransportCommand gitCommand) {
-        UsernamePasswordCredentialsProvider provider = new UsernamePasswordCredentialsProvider(userName, password);
-        return gitCommand.setCredentialsProvider(provider);
+        gitCommand.setTransportConfigCallback(transport -> {
+            if (transport instanceof TransportHttp) {
+                TransportHttp http = (TransportHttp) transport;
+                http.setHttpConnectionFactory(connectionFactory);
+                http.setPreemptiveBasicAuthentication(userName, password);
+            }
+        });
+        return gitCommand.setCredentialsProvider(credentialsProvider);
     }
 }
@@ -0,0 +1,346 @@
+package com.test.gitclient.auth;
+
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.JschConfigSessionFactory;
+import org.eclipse.jgit.transport.JschSession;
+import org.eclipse.jgit.transport.OpenSshConfig;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按私钥共享的 SSH 会话池。私钥只解析一次；已认证的会话按 user@host:port 缓存，
+ * 操作结束后不断开而是放回池中，下一次访问同一服务器时直接在已有会话上打开新通道，省去密钥交换与认证。
+ * <p>
+ * 每个服务器的会话数不超过 maxSessionsPerHost，达到上限后新的操作与已有会话共用连接（多个通道复用一个连接）；
+ * 空闲超过 idleTimeoutMillis 的会话在下一次获取或释放会话、或调用 {@link #cleanUp()} 时断开。
+ */
+public class SshSessionPool {
+
+    final static Logger logger = LoggerFactory.getLogger(SshSessionPool.class);
+
+    public static final int DEFAULT_MAX_SESSIONS_PER_HOST = 4;
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    // 空闲会话的保活间隔
+    static final int SERVER_ALIVE_INTERVAL_MILLIS = 30000;
+
+    private static final Map<String, SshSessionPool> POOLS = new ConcurrentHashMap<>();
+
+    private final String privateKeyPath;
+    private final int maxSessionsPerHost;
+    private final long idleTimeoutMillis;
+    private final PooledSessionFactory sessionFactory = new PooledSessionFactory();
+
+    // 以下状态由 this 保护
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+    private JSch jsch;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public SshSessionPool(String privateKeyPath, int maxSessionsPerHost, long idleTimeoutMillis) {
+        if (maxSessionsPerHost <= 0) {
+            throw new IllegalArgumentException("maxSessionsPerHost must be positive: " + maxSessionsPerHost);
+        }
+        this.privateKeyPath = privateKeyPath;
+        this.maxSessionsPerHost = maxSessionsPerHost;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @return 该私钥共享的会话池，使用默认的会话数与空闲时间
+     */
+    public static SshSessionPool forIdentity(String privateKeyPath) {
+        return POOLS.computeIfAbsent(privateKeyPath,
+                path -> new SshSessionPool(path, DEFAULT_MAX_SESSIONS_PER_HOST, DEFAULT_IDLE_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * 断开所有共享会话池中的会话。
+     */
+    public static void closeAll() {
+        for (SshSessionPool pool : POOLS.values()) {
+            pool.close();
+        }
+    }
+
+    public SshSessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    /**
+     * 断开空闲超时的会话。
+     */
+    public void cleanUp() {
+        List<PooledSession> expired;
+        synchronized (this) {
+            expired = evictIdle(System.currentTimeMillis());
+        }
+        disconnectAll(expired);
+    }
+
+    /**
+     * 断开所有空闲会话，正在使用的会话在释放时断开。
+     */
+    public void close() {
+        List<PooledSession> idle = new ArrayList<>();
+        synchronized (this) {
+            for (Endpoint endpoint : endpoints.values()) {
+                for (Iterator<PooledSession> it = endpoint.sessions.iterator(); it.hasNext(); ) {
+                    PooledSession session = it.next();
+                    session.closed = true;
+                    if (session.users == 0) {
+                        it.remove();
+                        idle.add(session);
+                    }
+                }
+            }
+        }
+        disconnectAll(idle);
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (Endpoint endpoint : endpoints.values()) {
+            size += endpoint.sessions.size();
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private PooledSession acquire(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+            throws TransportException {
+        String key = (uri.getUser() == null ? "" : uri.getUser() + "@") + uri.getHost() + ":" + uri.getPort();
+        List<PooledSession> expired;
+        Endpoint endpoint;
+        PooledSession shared = null;
+        synchronized (this) {
+            expired = evictIdle(System.currentTimeMillis());
+            endpoint = endpoints.get(key);
+            if (endpoint == null) {
+                endpoint = new Endpoint();
+                endpoints.put(key, endpoint);
+            }
+            PooledSession best = null;
+            for (Iterator<PooledSession> it = endpoint.sessions.iterator(); it.hasNext(); ) {
+                PooledSession session = it.next();
+                if (!session.session.isConnected()) {
+                    it.remove();
+                    continue;
+                }
+                if (!session.closed && (best == null || session.users < best.users)) {
+                    best = session;
+                }
+            }
+            // 优先使用空闲会话，会话数达到上限时与负载最小的会话共用连接
+            if (best != null && (best.users == 0
+                    || endpoint.sessions.size() + endpoint.connecting >= maxSessionsPerHost)) {
+                best.users++;
+                shared = best;
+            } else {
+                endpoint.connecting++;
+            }
+        }
+        disconnectAll(expired);
+        if (shared != null) {
+            hitCount.incrementAndGet();
+            return shared;
+        }
+
+        missCount.incrementAndGet();
+        Session session = null;
+        try {
+            // 建立连接不在锁内执行，不同服务器的握手可以并行
+            session = endpoint.factory.connect(uri, credentialsProvider, fs, tms);
+        } finally {
+            synchronized (this) {
+                endpoint.connecting--;
+            }
+        }
+        PooledSession pooled = new PooledSession(session);
+        synchronized (this) {
+            endpoint.sessions.add(pooled);
+        }
+        return pooled;
+    }
+
+    private void release(PooledSession session) {
+        List<PooledSession> expired;
+        boolean disconnect;
+        synchronized (this) {
+            session.users--;
+            session.lastUsed = System.currentTimeMillis();
+            disconnect = session.users == 0 && (session.closed || !session.session.isConnected());
+            if (disconnect) {
+                for (Endpoint endpoint : endpoints.values()) {
+                    endpoint.sessions.remove(session);
+                }
+            }
+            expired = evictIdle(session.lastUsed);
+        }
+        if (disconnect) {
+            session.session.disconnect();
+        }
+        disconnectAll(expired);
+    }
+
+    /**
+     * 移除空闲超时的会话，调用方持有 this 锁，返回的会话在锁外断开。
+     */
+    private List<PooledSession> evictIdle(long now) {
+        List<PooledSession> expired = new ArrayList<>();
+        for (Endpoint endpoint : endpoints.values()) {
+            for (Iterator<PooledSession> it = endpoint.sessions.iterator(); it.hasNext(); ) {
+                PooledSession session = it.next();
+                if (session.users == 0 && now - session.lastUsed >= idleTimeoutMillis) {
+                    it.remove();
+                    expired.add(session);
+                }
+            }
+        }
+        return expired;
+    }
+
+    private static void disconnectAll(List<PooledSession> sessions) {
+        for (PooledSession session : sessions) {
+            session.session.disconnect();
+        }
+    }
+
+    /**
+     * 所有服务器共用一个解析过私钥的 JSch。
+     */
+    private synchronized JSch sharedJSch(EndpointFactory factory, FS fs) throws JSchException {
+        if (jsch == null) {
+            JSch created = factory.createBaseJSch(fs);
+            created.addIdentity(privateKeyPath);
+            jsch = created;
+        }
+        return jsch;
+    }
+
+    private static class PooledSession {
+        final Session session;
+        int users = 1;
+        long lastUsed;
+        boolean closed;
+
+        PooledSession(Session session) {
+            this.session = session;
+        }
+    }
+
+    private class Endpoint {
+        final EndpointFactory factory = new EndpointFactory();
+        final List<PooledSession> sessions = new ArrayList<>();
+        int connecting;
+    }
+
+    /**
+     * 单个服务器的会话工厂。JschConfigSessionFactory 的 getSession 是同步方法，
+     * 每个服务器使用独立的实例，避免不同服务器的握手互相等待。
+     */
+    private class EndpointFactory extends JschConfigSessionFactory {
+
+        private Session configured;
+
+        synchronized Session connect(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+                throws TransportException {
+            configured = null;
+            getSession(uri, credentialsProvider, fs, tms);
+            // 重试时会创建新的会话，最后一次配置的会话即已连接的会话
+            Session session = configured;
+            configured = null;
+            return session;
+        }
+
+        @Override
+        protected void configure(OpenSshConfig.Host host, Session session) {
+            session.setConfig("StrictHostKeyChecking", "no");
+            try {
+                session.setServerAliveInterval(SERVER_ALIVE_INTERVAL_MILLIS);
+            } catch (JSchException e) {
+                logger.warn("设置SSH保活间隔失败: {}", e.getMessage());
+            }
+            configured = session;
+        }
+
+        @Override
+        protected JSch createDefaultJSch(FS fs) throws JSchException {
+            return sharedJSch(this, fs);
+        }
+
+        JSch createBaseJSch(FS fs) throws JSchException {
+            return super.createDefaultJSch(fs);
+        }
+    }
+
+    private class PooledSessionFactory extends SshSessionFactory {
+
+        @Override
+        public RemoteSession getSession(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+                throws TransportException {
+            return new PooledRemoteSession(acquire(uri, credentialsProvider, fs, tms), uri);
+        }
+
+        @Override
+        public String getType() {
+            return "jsch";
+        }
+
+        @Override
+        public void releaseSession(RemoteSession session) {
+            session.disconnect();
+        }
+    }
+
+    /**
+     * disconnect 时把会话放回池中而不是断开连接。
+     */
+    private class PooledRemoteSession extends JschSession {
+
+        private final PooledSession pooled;
+        private boolean released;
+
+        PooledRemoteSession(PooledSession pooled, URIish uri) {
+            super(pooled.session, uri);
+            this.pooled = pooled;
+        }
+
+        @Override
+        public void disconnect() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            release(pooled);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.test.gitclient.batch;
+
+/**
+ * 对单个仓库执行的批量操作。
+ */
+public interface BatchOperation<T> {
+
+    T execute(String localPath) throws Exception;
+
+    /**
+     * 是否访问网络，网络操作与磁盘操作分别受各自的并发上限约束。
+     */
+    default boolean isNetwork() {
+        return false;
+    }
+
+    /**
+     * 网络操作访问的远程主机，同一主机的操作受单主机并发上限约束，不同主机之间轮流调度。
+     */
+    default String remoteHost(String localPath) {
+        return "";
+    }
+}
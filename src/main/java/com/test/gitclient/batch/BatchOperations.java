@@ -0,0 +1,102 @@
+package com.test.gitclient.batch;
+
+import com.test.gitclient.GitClient;
+import com.test.gitclient.clone.CloneOptions;
+import org.eclipse.jgit.api.PullResult;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.URIish;
+
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 常用的批量操作。操作失败时抛出原始异常，对应仓库的 future 以该异常结束。
+ */
+public final class BatchOperations {
+
+    private BatchOperations() {
+    }
+
+    public static BatchOperation<FetchResult> fetch(GitClient client) {
+        return network(localPath -> client.fetchRepository(localPath, NullProgressMonitor.INSTANCE));
+    }
+
+    /**
+     * 检出冲突时 future 以 {@link org.eclipse.jgit.api.errors.CheckoutConflictException} 结束。
+     */
+    public static BatchOperation<PullResult> pull(GitClient client) {
+        return network(localPath -> client.pullRepository(localPath, NullProgressMonitor.INSTANCE));
+    }
+
+    public static BatchOperation<Iterable<PushResult>> push(GitClient client) {
+        return network(localPath -> client.pushRepository(localPath, NullProgressMonitor.INSTANCE));
+    }
+
+    /**
+     * @param remotes 本地路径到远程地址的映射，批量提交的路径必须都在其中
+     */
+    public static BatchOperation<Void> clone(GitClient client, Map<String, String> remotes) {
+        return new BatchOperation<Void>() {
+            @Override
+            public Void execute(String localPath) throws Exception {
+                client.cloneRepository(remotes.get(localPath), localPath, new CloneOptions(),
+                        NullProgressMonitor.INSTANCE);
+                return null;
+            }
+
+            @Override
+            public boolean isNetwork() {
+                return true;
+            }
+
+            @Override
+            public String remoteHost(String localPath) {
+                return host(remotes.get(localPath));
+            }
+        };
+    }
+
+    public static BatchOperation<Map<String, List<String>>> status(boolean incremental) {
+        return localPath -> GitClient.gitStatus(localPath, incremental);
+    }
+
+    /**
+     * 把访问仓库远程地址的操作包装为网络操作，远程主机取自仓库配置。
+     */
+    public static <T> BatchOperation<T> network(BatchOperation<T> operation) {
+        return new BatchOperation<T>() {
+            @Override
+            public T execute(String localPath) throws Exception {
+                return operation.execute(localPath);
+            }
+
+            @Override
+            public boolean isNetwork() {
+                return true;
+            }
+
+            @Override
+            public String remoteHost(String localPath) {
+                return host(GitClient.getRemoteUrl(localPath));
+            }
+        };
+    }
+
+    /**
+     * @return 远程地址中的主机名，无法解析或本地地址时返回空字符串
+     */
+    static String host(String remoteUrl) {
+        if (remoteUrl == null) {
+            return "";
+        }
+        try {
+            String host = new URIish(remoteUrl).getHost();
+            return host == null ? "" : host.toLowerCase();
+        } catch (URISyntaxException e) {
+            return "";
+        }
+    }
+}
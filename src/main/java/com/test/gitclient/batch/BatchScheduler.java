@@ -0,0 +1,251 @@
+package com.test.gitclient.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在多个仓库上并发执行操作。
+ * <p>
+ * 网络操作与磁盘操作使用各自的线程池与并发上限；网络操作按远程主机排队，
+ * 每个主机同时运行的操作数不超过单主机上限，各主机之间轮流取任务，避免某个主机的大量仓库占满所有网络并发。
+ */
+public class BatchScheduler implements AutoCloseable {
+
+    final static Logger logger = LoggerFactory.getLogger(BatchScheduler.class);
+
+    public static final int DEFAULT_NETWORK_CONCURRENCY = 16;
+    public static final int DEFAULT_PER_HOST_CONCURRENCY = 4;
+
+    private final int networkConcurrency;
+    private final int perHostConcurrency;
+
+    private final ExecutorService networkExecutor;
+    private final ExecutorService diskExecutor;
+
+    // 以下状态由 this 保护
+    private final Map<String, Deque<NetworkTask>> hostQueues = new HashMap<>();
+    // 有排队任务的主机，按轮转顺序排列
+    private final Deque<String> hostOrder = new ArrayDeque<>();
+    private final Map<String, Integer> hostRunning = new HashMap<>();
+    private int networkRunning;
+    private boolean closed;
+
+    public BatchScheduler() {
+        this(DEFAULT_NETWORK_CONCURRENCY, Runtime.getRuntime().availableProcessors(), DEFAULT_PER_HOST_CONCURRENCY);
+    }
+
+    public BatchScheduler(int networkConcurrency, int diskConcurrency, int perHostConcurrency) {
+        if (networkConcurrency <= 0 || diskConcurrency <= 0 || perHostConcurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        this.networkConcurrency = networkConcurrency;
+        this.perHostConcurrency = perHostConcurrency;
+        this.networkExecutor = Executors.newFixedThreadPool(networkConcurrency, threadFactory("gitclient-batch-network-"));
+        this.diskExecutor = Executors.newFixedThreadPool(diskConcurrency, threadFactory("gitclient-batch-disk-"));
+    }
+
+    /**
+     * 提交批量操作，立即返回。
+     *
+     * @return 按 localPaths 顺序排列的每个仓库的结果，操作抛出的异常通过对应的 future 返回
+     */
+    public <T> Map<String, CompletableFuture<T>> submit(Collection<String> localPaths, BatchOperation<T> operation) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (String localPath : localPaths) {
+            if (!futures.containsKey(localPath)) {
+                futures.put(localPath, submit(localPath, operation));
+            }
+        }
+        return futures;
+    }
+
+    public <T> CompletableFuture<T> submit(String localPath, BatchOperation<T> operation) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!operation.isNetwork()) {
+            try {
+                if (isClosed()) {
+                    throw closedException();
+                }
+                diskExecutor.execute(() -> run(localPath, operation, future));
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        String host;
+        try {
+            host = operation.remoteHost(localPath);
+        } catch (RuntimeException e) {
+            host = "";
+        }
+        String key = host == null ? "" : host;
+        enqueue(key, new NetworkTask(future, () -> {
+            try {
+                run(localPath, operation, future);
+            } finally {
+                finished(key);
+            }
+        }));
+        return future;
+    }
+
+    /**
+     * 等待所有操作完成，不抛出操作的异常。
+     */
+    public static void awaitAll(Map<String, ? extends CompletableFuture<?>> futures) {
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .join();
+    }
+
+    /**
+     * 不再接受新操作，等待已提交的操作（包括仍在主机队列中排队的网络操作）执行完成后关闭线程池。
+     * 等待期间线程被中断时，仍在排队的操作以 RejectedExecutionException 结束。
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            try {
+                while (networkRunning > 0 || !hostQueues.isEmpty()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejectQueued();
+            }
+        }
+        networkExecutor.shutdown();
+        diskExecutor.shutdown();
+        try {
+            networkExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            diskExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> void run(String localPath, BatchOperation<T> operation, CompletableFuture<T> future) {
+        if (future.isDone()) {
+            // 已取消
+            return;
+        }
+        try {
+            future.complete(operation.execute(localPath));
+        } catch (Exception e) {
+            logger.error("批量操作异常 {}: {}", localPath, e.getMessage());
+            future.completeExceptionally(e);
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private static RejectedExecutionException closedException() {
+        return new RejectedExecutionException("BatchScheduler is closed");
+    }
+
+    private synchronized void enqueue(String host, NetworkTask task) {
+        if (closed) {
+            task.future.completeExceptionally(closedException());
+            return;
+        }
+        Deque<NetworkTask> queue = hostQueues.get(host);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            hostQueues.put(host, queue);
+            hostOrder.addLast(host);
+        }
+        queue.addLast(task);
+        dispatch();
+    }
+
+    private synchronized void finished(String host) {
+        networkRunning--;
+        int running = hostRunning.get(host) - 1;
+        if (running == 0) {
+            hostRunning.remove(host);
+        } else {
+            hostRunning.put(host, running);
+        }
+        dispatch();
+        if (closed) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * 以异常结束所有排队中的网络操作，调用方持有 this 锁。
+     */
+    private void rejectQueued() {
+        for (Deque<NetworkTask> queue : hostQueues.values()) {
+            for (NetworkTask task : queue) {
+                task.future.completeExceptionally(closedException());
+            }
+        }
+        hostQueues.clear();
+        hostOrder.clear();
+    }
+
+    /**
+     * 在并发上限内按主机轮转启动排队的任务，调用方持有 this 锁。
+     */
+    private void dispatch() {
+        int skipped = 0;
+        while (networkRunning < networkConcurrency && skipped < hostOrder.size()) {
+            String host = hostOrder.pollFirst();
+            int running = hostRunning.getOrDefault(host, 0);
+            if (running >= perHostConcurrency) {
+                hostOrder.addLast(host);
+                skipped++;
+                continue;
+            }
+            Deque<NetworkTask> queue = hostQueues.get(host);
+            NetworkTask task = queue.pollFirst();
+            if (queue.isEmpty()) {
+                hostQueues.remove(host);
+            } else {
+                hostOrder.addLast(host);
+            }
+            hostRunning.put(host, running + 1);
+            networkRunning++;
+            skipped = 0;
+            networkExecutor.execute(task.runnable);
+        }
+    }
+
+    private static class NetworkTask {
+        final CompletableFuture<?> future;
+        final Runnable runnable;
+
+        NetworkTask(CompletableFuture<?> future, Runnable runnable) {
+            this.future = future;
+            this.runnable = runnable;
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.test.gitclient.blame;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 (提交, 文件, 路径) 为键缓存逐行来源，只保存在内存中，按估算占用字节数做 LRU 淘汰。
+ * 提交与文件内容都不可变，缓存结果不会过期，不同仓库可以共用一个缓存。
+ */
+public class BlameCache {
+
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private final long maxWeight;
+
+    private final LinkedHashMap<String, CachedBlame> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public BlameCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+    public BlameCache(long maxWeightBytes) {
+        if (maxWeightBytes <= 0) {
+            throw new IllegalArgumentException("maxWeightBytes must be positive: " + maxWeightBytes);
+        }
+        this.maxWeight = maxWeightBytes;
+    }
+
+    BlameData get(AnyObjectId commit, AnyObjectId blob, String path) {
+        CachedBlame cached;
+        synchronized (this) {
+            cached = cache.get(key(commit, blob, path));
+        }
+        if (cached == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return cached.data;
+    }
+
+    void put(AnyObjectId commit, AnyObjectId blob, String path, BlameData data) {
+        CachedBlame value = new CachedBlame(data);
+        synchronized (this) {
+            CachedBlame previous = cache.put(key(commit, blob, path), value);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += value.weight;
+
+            Iterator<Map.Entry<String, CachedBlame>> it = cache.entrySet().iterator();
+            while (weight > maxWeight && it.hasNext()) {
+                Map.Entry<String, CachedBlame> eldest = it.next();
+                it.remove();
+                weight -= eldest.getValue().weight;
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        cache.clear();
+        weight = 0;
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private static String key(AnyObjectId commit, AnyObjectId blob, String path) {
+        return commit.name() + blob.name() + path;
+    }
+
+    private static class CachedBlame {
+        final BlameData data;
+        final long weight;
+
+        CachedBlame(BlameData data) {
+            this.data = data;
+            this.weight = data.estimatedSize();
+        }
+    }
+}
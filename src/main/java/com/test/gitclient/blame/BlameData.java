@@ -0,0 +1,34 @@
+package com.test.gitclient.blame;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * 缓存中保存的逐行来源，不包含行内容。按行下标保存，来源行号从 0 开始，
+ * 来源提交与路径在行之间共用，由增量计算得到的结果也与上一个版本共用。创建后不再修改。
+ */
+final class BlameData {
+    final BlameOrigin[] origins;
+    final String[] sourcePaths;
+    final int[] sourceLines;
+
+    BlameData(BlameOrigin[] origins, String[] sourcePaths, int[] sourceLines) {
+        this.origins = origins;
+        this.sourcePaths = sourcePaths;
+        this.sourceLines = sourceLines;
+    }
+
+    int size() {
+        return origins.length;
+    }
+
+    /**
+     * @return 估算占用字节数，每行三个数组元素，每个不同的来源提交约 200 字节
+     */
+    long estimatedSize() {
+        Set<BlameOrigin> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(distinct, origins);
+        return 64L + origins.length * 16L + distinct.size() * 200L;
+    }
+}
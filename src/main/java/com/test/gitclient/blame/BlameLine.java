@@ -0,0 +1,91 @@
+package com.test.gitclient.blame;
+
+/**
+ * 文件中一行的来源，行号从 1 开始。
+ */
+public class BlameLine {
+    private int lineNumber;
+    private String content;
+    private String commitId;
+    private String authorName;
+    private String authorEmail;
+    private long authorTime;
+    private String sourcePath;
+    private int sourceLine;
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    /**
+     * 引入这一行的提交。
+     */
+    public String getCommitId() {
+        return commitId;
+    }
+
+    public void setCommitId(String commitId) {
+        this.commitId = commitId;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        this.authorName = authorName;
+    }
+
+    public String getAuthorEmail() {
+        return authorEmail;
+    }
+
+    public void setAuthorEmail(String authorEmail) {
+        this.authorEmail = authorEmail;
+    }
+
+    /**
+     * @return 作者时间，毫秒
+     */
+    public long getAuthorTime() {
+        return authorTime;
+    }
+
+    public void setAuthorTime(long authorTime) {
+        this.authorTime = authorTime;
+    }
+
+    /**
+     * 引入这一行时文件的路径，文件重命名过时与当前路径不同。
+     */
+    public String getSourcePath() {
+        return sourcePath;
+    }
+
+    public void setSourcePath(String sourcePath) {
+        this.sourcePath = sourcePath;
+    }
+
+    /**
+     * 这一行在引入它的提交中的行号，从 1 开始。
+     */
+    public int getSourceLine() {
+        return sourceLine;
+    }
+
+    public void setSourceLine(int sourceLine) {
+        this.sourceLine = sourceLine;
+    }
+}
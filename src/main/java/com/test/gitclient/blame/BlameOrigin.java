@@ -0,0 +1,27 @@
+package com.test.gitclient.blame;
+
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * 引入行的提交，同一提交引入的行共用一个对象。
+ */
+final class BlameOrigin {
+    final String commitId;
+    final String authorName;
+    final String authorEmail;
+    final long authorTime;
+
+    private BlameOrigin(String commitId, String authorName, String authorEmail, long authorTime) {
+        this.commitId = commitId;
+        this.authorName = authorName;
+        this.authorEmail = authorEmail;
+        this.authorTime = authorTime;
+    }
+
+    static BlameOrigin of(RevCommit commit) {
+        PersonIdent author = commit.getAuthorIdent();
+        return new BlameOrigin(commit.name(), author.getName(), author.getEmailAddress(),
+                author.getWhen().getTime());
+    }
+}
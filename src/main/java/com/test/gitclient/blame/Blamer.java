@@ -0,0 +1,236 @@
+package com.test.gitclient.blame;
+
+import org.eclipse.jgit.blame.BlameGenerator;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 逐行查找文件内容的来源提交。
+ * <p>
+ * 结果按 (提交, 文件, 路径) 缓存。计算某个提交的结果时沿第一父提交向前查找，
+ * 找到已缓存的版本后依次比较每个提交与其父提交中的文件：未修改的行沿用父提交的来源，新增或修改的行来自该提交，
+ * 与 {@code git blame} 沿单父提交的处理相同。遇到合并提交、文件在父提交中不存在（新增或重命名）
+ * 或超过 {@link #DEFAULT_MAX_STEPS} 个提交仍未找到缓存时，由 {@link BlameGenerator} 从头遍历历史计算。
+ */
+public class Blamer {
+
+    public static final int DEFAULT_MAX_STEPS = 100;
+
+    // 与 BlameGenerator 的默认设置相同，增量结果与从头计算一致
+    private static final DiffAlgorithm DIFF_ALGORITHM = new HistogramDiff();
+
+    private final Repository repository;
+    private final BlameCache cache;
+    private int maxSteps = DEFAULT_MAX_STEPS;
+
+    /**
+     * @param cache 为 null 时不缓存，每次都从头计算
+     */
+    public Blamer(Repository repository, BlameCache cache) {
+        this.repository = repository;
+        this.cache = cache;
+    }
+
+    /**
+     * 向前查找已缓存版本的最大提交数，需要比较的版本数不超过这个值。
+     */
+    public void setMaxSteps(int maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * @param path 以 / 分隔、相对仓库根目录的路径
+     * @return 提交中不存在该文件时返回 null
+     */
+    public FileBlame blame(AnyObjectId commitId, String path) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader();
+             RevWalk walk = new RevWalk(reader)) {
+            RevCommit commit = walk.parseCommit(commitId);
+            ObjectId blob = blobAt(reader, commit, path);
+            if (blob == null) {
+                return null;
+            }
+            BlameData data = compute(reader, walk, commit, blob, path);
+            return toResult(reader, commit, blob, path, data);
+        }
+    }
+
+    private BlameData compute(ObjectReader reader, RevWalk walk, RevCommit commit, ObjectId blob, String path)
+            throws IOException {
+        if (cache == null) {
+            return full(commit, path);
+        }
+        BlameData cached = cache.get(commit, blob, path);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<RevCommit> commits = new ArrayList<>();
+        List<ObjectId> blobs = new ArrayList<>();
+        commits.add(commit);
+        blobs.add(blob);
+        BlameData base = null;
+        ObjectId baseBlob = null;
+        RevCommit current = commit;
+        while (commits.size() <= maxSteps && current.getParentCount() == 1) {
+            RevCommit parent = walk.parseCommit(current.getParent(0));
+            ObjectId parentBlob = blobAt(reader, parent, path);
+            if (parentBlob == null) {
+                break;
+            }
+            base = cache.get(parent, parentBlob, path);
+            if (base != null) {
+                baseBlob = parentBlob;
+                break;
+            }
+            commits.add(parent);
+            blobs.add(parentBlob);
+            current = parent;
+        }
+
+        BlameData data;
+        if (base == null) {
+            data = full(commit, path);
+        } else {
+            data = base;
+            for (int i = commits.size() - 1; i >= 0; i--) {
+                ObjectId parentBlob = i == commits.size() - 1 ? baseBlob : blobs.get(i + 1);
+                data = step(reader, data, parentBlob, blobs.get(i), commits.get(i), path);
+            }
+        }
+        cache.put(commit, blob, path, data);
+        return data;
+    }
+
+    /**
+     * 由父提交的结果计算子提交的结果，文件未修改时直接沿用。
+     */
+    private static BlameData step(ObjectReader reader, BlameData parent, ObjectId parentBlob, ObjectId blob,
+                                  RevCommit commit, String path) throws IOException {
+        if (parentBlob.equals(blob)) {
+            return parent;
+        }
+        RawText a = read(reader, parentBlob);
+        RawText b = read(reader, blob);
+        EditList edits = DIFF_ALGORITHM.diff(RawTextComparator.DEFAULT, a, b);
+
+        int size = b.size();
+        BlameOrigin[] origins = new BlameOrigin[size];
+        String[] sourcePaths = new String[size];
+        int[] sourceLines = new int[size];
+        BlameOrigin origin = BlameOrigin.of(commit);
+        int aPos = 0;
+        int bPos = 0;
+        for (Edit edit : edits) {
+            int unchanged = edit.getBeginB() - bPos;
+            copy(parent, aPos, origins, sourcePaths, sourceLines, bPos, unchanged);
+            for (bPos = edit.getBeginB(); bPos < edit.getEndB(); bPos++) {
+                origins[bPos] = origin;
+                sourcePaths[bPos] = path;
+                sourceLines[bPos] = bPos;
+            }
+            aPos = edit.getEndA();
+        }
+        copy(parent, aPos, origins, sourcePaths, sourceLines, bPos, size - bPos);
+        return new BlameData(origins, sourcePaths, sourceLines);
+    }
+
+    private static void copy(BlameData parent, int from, BlameOrigin[] origins, String[] sourcePaths,
+                             int[] sourceLines, int to, int length) {
+        System.arraycopy(parent.origins, from, origins, to, length);
+        System.arraycopy(parent.sourcePaths, from, sourcePaths, to, length);
+        System.arraycopy(parent.sourceLines, from, sourceLines, to, length);
+    }
+
+    private BlameData full(RevCommit commit, String path) throws IOException {
+        try (BlameGenerator generator = new BlameGenerator(repository, path)) {
+            generator.setDiffAlgorithm(DIFF_ALGORITHM);
+            generator.setTextComparator(RawTextComparator.DEFAULT);
+            generator.push(null, commit);
+            BlameResult result = BlameResult.create(generator);
+            if (result == null) {
+                throw new IOException("cannot blame " + path + " in " + commit.name());
+            }
+            result.computeAll();
+
+            int size = result.getResultContents().size();
+            BlameOrigin[] origins = new BlameOrigin[size];
+            String[] sourcePaths = new String[size];
+            int[] sourceLines = new int[size];
+            Map<RevCommit, BlameOrigin> byCommit = new HashMap<>();
+            Map<String, String> paths = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                RevCommit source = result.getSourceCommit(i);
+                if (source == null) {
+                    source = commit;
+                }
+                origins[i] = byCommit.computeIfAbsent(source, BlameOrigin::of);
+                String sourcePath = result.getSourcePath(i);
+                sourcePaths[i] = paths.computeIfAbsent(sourcePath == null ? path : sourcePath, p -> p);
+                sourceLines[i] = result.getSourceLine(i);
+            }
+            return new BlameData(origins, sourcePaths, sourceLines);
+        }
+    }
+
+    private static FileBlame toResult(ObjectReader reader, RevCommit commit, ObjectId blob, String path,
+                                      BlameData data) throws IOException {
+        RawText text = read(reader, blob);
+        List<BlameLine> lines = new ArrayList<>(data.size());
+        for (int i = 0; i < data.size(); i++) {
+            BlameOrigin origin = data.origins[i];
+            BlameLine line = new BlameLine();
+            line.setLineNumber(i + 1);
+            line.setContent(text.getString(i));
+            line.setCommitId(origin.commitId);
+            line.setAuthorName(origin.authorName);
+            line.setAuthorEmail(origin.authorEmail);
+            line.setAuthorTime(origin.authorTime);
+            line.setSourcePath(data.sourcePaths[i]);
+            line.setSourceLine(data.sourceLines[i] + 1);
+            lines.add(line);
+        }
+        FileBlame ret = new FileBlame();
+        ret.setPath(path);
+        ret.setCommitId(commit.name());
+        ret.setBlobId(blob.name());
+        ret.setLines(lines);
+        return ret;
+    }
+
+    private static RawText read(ObjectReader reader, ObjectId blob) throws IOException {
+        return new RawText(reader.open(blob, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return 路径对应的文件，不存在或不是普通文件时返回 null
+     */
+    private static ObjectId blobAt(ObjectReader reader, RevCommit commit, String path) throws IOException {
+        try (TreeWalk walk = TreeWalk.forPath(reader, path, commit.getTree())) {
+            if (walk == null || (walk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                return null;
+            }
+            return walk.getObjectId(0);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.test.gitclient.blame;
+
+import java.util.List;
+
+/**
+ * 一个文件在某个提交中的逐行来源。
+ */
+public class FileBlame {
+    private String path;
+    private String commitId;
+    private String blobId;
+    private List<BlameLine> lines;
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getCommitId() {
+        return commitId;
+    }
+
+    public void setCommitId(String commitId) {
+        this.commitId = commitId;
+    }
+
+    public String getBlobId() {
+        return blobId;
+    }
+
+    public void setBlobId(String blobId) {
+        this.blobId = blobId;
+    }
+
+    public List<BlameLine> getLines() {
+        return lines;
+    }
+
+    public void setLines(List<BlameLine> lines) {
+        this.lines = lines;
+    }
+}
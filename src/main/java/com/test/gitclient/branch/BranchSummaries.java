@@ -0,0 +1,106 @@
+package com.test.gitclient.branch;
+
+import com.test.gitclient.graph.AheadBehind;
+import com.test.gitclient.graph.CommitGraph;
+import com.test.gitclient.graph.CommitGraphIndex;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次性汇总所有本地分支的最新提交、上游分支与 ahead/behind。
+ * <p>
+ * 所有分支及其上游共用一次提交图遍历（见 {@link CommitGraph#aheadBehind(int[], int[])}），
+ * 分支之间的公共历史只访问一次；最新提交时间直接取自提交图，不解析提交对象。
+ */
+public class BranchSummaries {
+
+    final static Logger logger = LoggerFactory.getLogger(BranchSummaries.class);
+
+    private BranchSummaries() {
+    }
+
+    public static List<BranchSummary> list(Repository repository) throws IOException {
+        List<Ref> refs = repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS);
+        String fullBranch = repository.getFullBranch();
+
+        List<BranchSummary> summaries = new ArrayList<>();
+        List<ObjectId> tips = new ArrayList<>();
+        List<ObjectId> upstreams = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            for (Ref ref : refs) {
+                ObjectId tip = peelCommit(walk, ref);
+                if (tip == null) {
+                    continue;
+                }
+                String name = Repository.shortenRefName(ref.getName());
+                BranchSummary summary = new BranchSummary();
+                summary.setName(name);
+                summary.setTipId(tip.name());
+                summary.setCurrent(ref.getName().equals(fullBranch));
+
+                ObjectId upstream = null;
+                String tracking = new BranchConfig(repository.getConfig(), name).getTrackingBranch();
+                if (tracking != null) {
+                    Ref upstreamRef = repository.exactRef(tracking);
+                    upstream = upstreamRef == null ? null : peelCommit(walk, upstreamRef);
+                    if (upstream != null) {
+                        summary.setUpstream(Repository.shortenRefName(tracking));
+                    }
+                }
+                summaries.add(summary);
+                tips.add(tip);
+                upstreams.add(upstream);
+            }
+        }
+
+        List<ObjectId> ids = new ArrayList<>(tips);
+        for (ObjectId upstream : upstreams) {
+            if (upstream != null) {
+                ids.add(upstream);
+            }
+        }
+        CommitGraph graph = CommitGraphIndex.of(repository).ensure(repository, ids.toArray(new ObjectId[0]));
+
+        int[] localPositions = new int[tips.size()];
+        int[] upstreamPositions = new int[tips.size()];
+        for (int i = 0; i < tips.size(); i++) {
+            localPositions[i] = graph.position(tips.get(i));
+            upstreamPositions[i] = upstreams.get(i) == null ? -1 : graph.position(upstreams.get(i));
+        }
+        AheadBehind[] counts = graph.aheadBehind(localPositions, upstreamPositions);
+        for (int i = 0; i < summaries.size(); i++) {
+            BranchSummary summary = summaries.get(i);
+            summary.setAhead(counts[i].getAhead());
+            summary.setBehind(counts[i].getBehind());
+            summary.setLastCommitTime(graph.commitTime(localPositions[i]) * 1000L);
+        }
+        return summaries;
+    }
+
+    private static ObjectId peelCommit(RevWalk walk, Ref ref) throws IOException {
+        ObjectId id = ref.getObjectId();
+        if (id == null) {
+            return null;
+        }
+        try {
+            RevObject object = walk.peel(walk.parseAny(id));
+            return object.getType() == Constants.OBJ_COMMIT ? object.copy() : null;
+        } catch (MissingObjectException e) {
+            logger.warn("引用指向的对象不存在: {}", ref.getName());
+            return null;
+        }
+    }
+}
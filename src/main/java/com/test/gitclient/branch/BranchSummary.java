@@ -0,0 +1,78 @@
+package com.test.gitclient.branch;
+
+/**
+ * 本地分支的摘要信息，没有上游分支或上游分支不存在时 upstream 为 null，ahead/behind 为 0。
+ */
+public class BranchSummary {
+    private String name;
+    private String tipId;
+    private boolean current;
+    private String upstream;
+    private int ahead;
+    private int behind;
+    private long lastCommitTime;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getTipId() {
+        return tipId;
+    }
+
+    public void setTipId(String tipId) {
+        this.tipId = tipId;
+    }
+
+    public boolean isCurrent() {
+        return current;
+    }
+
+    public void setCurrent(boolean current) {
+        this.current = current;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    public void setUpstream(String upstream) {
+        this.upstream = upstream;
+    }
+
+    public int getAhead() {
+        return ahead;
+    }
+
+    public void setAhead(int ahead) {
+        this.ahead = ahead;
+    }
+
+    public int getBehind() {
+        return behind;
+    }
+
+    public void setBehind(int behind) {
+        this.behind = behind;
+    }
+
+    /**
+     * @return 分支最新提交的提交时间，毫秒
+     */
+    public long getLastCommitTime() {
+        return lastCommitTime;
+    }
+
+    public void setLastCommitTime(long lastCommitTime) {
+        this.lastCommitTime = lastCommitTime;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + tipId + (upstream == null ? "" : " [" + upstream + ": ahead " + ahead + ", behind " + behind + "]");
+    }
+}
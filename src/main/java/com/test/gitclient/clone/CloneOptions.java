@@ -0,0 +1,93 @@
+package com.test.gitclient.clone;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 克隆选项，默认与 {@code git clone} 相同：所有分支、所有标签、检出整个工作区。
+ */
+public class CloneOptions {
+
+    private String branch;
+    private boolean singleBranch;
+    private boolean noTags;
+    private boolean bare;
+    private boolean noCheckout;
+    private List<String> sparsePaths = new ArrayList<>();
+    private ReferenceCache referenceCache;
+
+    /**
+     * 克隆后检出的分支，为 null 时使用远程仓库的 HEAD。
+     */
+    public String getBranch() {
+        return branch;
+    }
+
+    public void setBranch(String branch) {
+        this.branch = branch;
+    }
+
+    /**
+     * 只获取 {@link #getBranch()} 一个分支，之后可以通过 GitClient.fetchBranches 补充其他分支。
+     */
+    public boolean isSingleBranch() {
+        return singleBranch;
+    }
+
+    public void setSingleBranch(boolean singleBranch) {
+        this.singleBranch = singleBranch;
+    }
+
+    public boolean isNoTags() {
+        return noTags;
+    }
+
+    public void setNoTags(boolean noTags) {
+        this.noTags = noTags;
+    }
+
+    public boolean isBare() {
+        return bare;
+    }
+
+    public void setBare(boolean bare) {
+        this.bare = bare;
+    }
+
+    /**
+     * 不检出工作区，索引也为空。
+     */
+    public boolean isNoCheckout() {
+        return noCheckout;
+    }
+
+    public void setNoCheckout(boolean noCheckout) {
+        this.noCheckout = noCheckout;
+    }
+
+    /**
+     * 只检出这些路径（文件或目录），为空时检出整个工作区，参见 {@link SparseCheckout}。
+     */
+    public List<String> getSparsePaths() {
+        return sparsePaths;
+    }
+
+    public void setSparsePaths(List<String> sparsePaths) {
+        this.sparsePaths = sparsePaths;
+    }
+
+    public void addSparsePath(String path) {
+        this.sparsePaths.add(path);
+    }
+
+    /**
+     * 从本地对象缓存借用对象，为 null 时直接从远程仓库克隆全部对象。
+     */
+    public ReferenceCache getReferenceCache() {
+        return referenceCache;
+    }
+
+    public void setReferenceCache(ReferenceCache referenceCache) {
+        this.referenceCache = referenceCache;
+    }
+}
@@ -0,0 +1,308 @@
+package com.test.gitclient.clone;
+
+import com.test.gitclient.auth.GitAuthStrategy;
+import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 本地对象缓存：每个远程地址对应缓存目录下的一个裸镜像仓库，克隆时通过 objects/info/alternates 借用镜像中的对象，
+ * 新仓库只需要获取并保存镜像中没有的对象。
+ * <p>
+ * 镜像的创建、更新与删除在进程内锁与文件锁的保护下进行，多个线程或进程可以同时使用同一个缓存目录。
+ * 借用镜像的仓库登记在镜像的依赖列表中，只要还有依赖仓库存在，镜像就不会被淘汰；
+ * 缓存总大小超过上限时，按最近使用时间从旧到新删除没有依赖的镜像。
+ * 镜像只追加对象，不执行 gc，因此依赖仓库引用的对象不会被删除。
+ */
+public class ReferenceCache {
+
+    final static Logger logger = LoggerFactory.getLogger(ReferenceCache.class);
+
+    public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    static final String DEPENDENTS_FILE = "gitclient-dependents";
+    static final String LAST_USED_FILE = "gitclient-last-used";
+
+    private static final Map<File, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+    private static final Map<File, FileLock> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private final long maxBytes;
+    private long refreshIntervalMillis = DEFAULT_REFRESH_INTERVAL_MILLIS;
+
+    /**
+     * @param maxBytes 缓存总大小上限，仍被依赖的镜像不计入淘汰范围，因此实际大小可能超过上限
+     */
+    public ReferenceCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 距上次获取不足该时间时跳过镜像的更新，克隆自身的获取仍会补齐镜像中缺少的对象。
+     */
+    public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    /**
+     * 创建或更新 remoteUri 的镜像。
+     *
+     * @return 镜像仓库目录
+     */
+    public File update(String remoteUri, GitAuthStrategy authStrategy) throws IOException, GitAPIException {
+        File mirror = mirrorDirectory(remoteUri);
+        lock(mirror);
+        try {
+            update(mirror, remoteUri, authStrategy);
+        } finally {
+            unlock(mirror);
+        }
+        return mirror;
+    }
+
+    /**
+     * 创建或更新 remoteUri 的镜像，让 gitDir 对应的仓库通过 alternates 借用镜像中的对象，并登记为镜像的依赖。
+     * 更新与登记在同一次加锁中完成，期间镜像不会被淘汰。仓库在此之后打开才会读取 alternates。
+     *
+     * @return 镜像仓库目录
+     */
+    public File borrow(String remoteUri, GitAuthStrategy authStrategy, File gitDir)
+            throws IOException, GitAPIException {
+        File mirror = mirrorDirectory(remoteUri);
+        lock(mirror);
+        try {
+            update(mirror, remoteUri, authStrategy);
+            File objects = new File(mirror, Constants.OBJECTS).getAbsoluteFile();
+            File alternates = new File(gitDir, Constants.OBJECTS + "/info/alternates");
+            FileUtils.mkdirs(alternates.getParentFile(), true);
+            Files.write(alternates.toPath(), Collections.singletonList(objects.getPath()), StandardCharsets.UTF_8);
+            Files.write(new File(mirror, DEPENDENTS_FILE).toPath(),
+                    Collections.singletonList(gitDir.getAbsolutePath()),
+                    StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } finally {
+            unlock(mirror);
+        }
+        return mirror;
+    }
+
+    private void update(File mirror, String remoteUri, GitAuthStrategy authStrategy) throws IOException, GitAPIException {
+        File fetchHead = new File(mirror, Constants.FETCH_HEAD);
+        if (!new File(mirror, Constants.OBJECTS).isDirectory()) {
+            FileUtils.delete(mirror, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+            CloneCommand clone = Git.cloneRepository()
+                    .setURI(remoteUri)
+                    .setDirectory(mirror)
+                    .setBare(true)
+                    .setMirror(true);
+            ((Git) authStrategy.auth(clone).call()).close();
+            touch(fetchHead);
+        } else if (System.currentTimeMillis() - fetchHead.lastModified() >= refreshIntervalMillis) {
+            try (Git git = Git.open(mirror)) {
+                FetchCommand fetch = git.fetch().setRemoveDeletedRefs(true);
+                authStrategy.auth(fetch).call();
+            }
+            touch(fetchHead);
+        }
+        touch(new File(mirror, LAST_USED_FILE));
+    }
+
+    /**
+     * 缓存总大小超过上限时，按最近使用时间删除没有依赖的镜像。
+     *
+     * @return 删除的镜像数
+     */
+    public int evict() throws IOException {
+        File[] mirrors = directory.listFiles(file -> file.isDirectory() && file.getName().endsWith(Constants.DOT_GIT_EXT));
+        if (mirrors == null) {
+            return 0;
+        }
+        List<File> candidates = new ArrayList<>();
+        long total = 0;
+        Map<File, Long> sizes = new HashMap<>();
+        for (File mirror : mirrors) {
+            long size = size(mirror.toPath());
+            sizes.put(mirror, size);
+            total += size;
+            candidates.add(mirror);
+        }
+        candidates.sort((a, b) -> Long.compare(new File(a, LAST_USED_FILE).lastModified(),
+                new File(b, LAST_USED_FILE).lastModified()));
+
+        int evicted = 0;
+        for (File mirror : candidates) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (!tryLock(mirror)) {
+                continue;
+            }
+            try {
+                if (!liveDependents(mirror).isEmpty()) {
+                    continue;
+                }
+                FileUtils.delete(mirror, FileUtils.RECURSIVE | FileUtils.SKIP_MISSING);
+                total -= sizes.get(mirror);
+                evicted++;
+            } finally {
+                unlock(mirror);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return 缓存目录下所有镜像的总大小，字节
+     */
+    public long size() throws IOException {
+        return directory.isDirectory() ? size(directory.toPath()) : 0;
+    }
+
+    File mirrorDirectory(String remoteUri) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(remoteUri.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(directory, name + Constants.DOT_GIT_EXT);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 读取依赖列表，去掉已删除或不再借用该镜像的仓库。调用方持有镜像的锁。
+     */
+    private List<String> liveDependents(File mirror) throws IOException {
+        Path file = new File(mirror, DEPENDENTS_FILE).toPath();
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        String objects = new File(mirror, Constants.OBJECTS).getAbsolutePath();
+        List<String> live = new ArrayList<>();
+        for (String gitDir : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            Path alternates = new File(gitDir, Constants.OBJECTS + "/info/alternates").toPath();
+            if (!gitDir.isEmpty() && Files.exists(alternates)
+                    && Files.readAllLines(alternates, StandardCharsets.UTF_8).contains(objects)) {
+                live.add(gitDir);
+            }
+        }
+        Files.write(file, live, StandardCharsets.UTF_8);
+        return live;
+    }
+
+    private void lock(File mirror) throws IOException {
+        ReentrantLock lock = LOCKS.computeIfAbsent(mirror, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            acquireFileLock(mirror, true);
+        } catch (IOException | RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    private boolean tryLock(File mirror) throws IOException {
+        ReentrantLock lock = LOCKS.computeIfAbsent(mirror, k -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            return false;
+        }
+        try {
+            if (acquireFileLock(mirror, false)) {
+                return true;
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+        lock.unlock();
+        return false;
+    }
+
+    private void unlock(File mirror) {
+        ReentrantLock lock = LOCKS.get(mirror);
+        try {
+            if (lock.getHoldCount() == 1) {
+                FileLock fileLock = FILE_LOCKS.remove(mirror);
+                if (fileLock != null) {
+                    fileLock.channel().close();
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("释放镜像文件锁异常: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 进程间互斥，调用方已持有进程内的锁；重入时不再重复加锁。
+     */
+    private boolean acquireFileLock(File mirror, boolean wait) throws IOException {
+        if (FILE_LOCKS.containsKey(mirror)) {
+            return true;
+        }
+        FileUtils.mkdirs(directory, true);
+        FileChannel channel = new RandomAccessFile(new File(directory, mirror.getName() + ".lock"), "rw").getChannel();
+        FileLock fileLock;
+        try {
+            fileLock = wait ? channel.lock() : channel.tryLock();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (fileLock == null) {
+            channel.close();
+            return false;
+        }
+        FILE_LOCKS.put(mirror, fileLock);
+        return true;
+    }
+
+    private static void touch(File file) throws IOException {
+        if (!file.exists()) {
+            Files.createFile(file.toPath());
+        }
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            logger.warn("无法更新文件时间: {}", file);
+        }
+    }
+
+    private static long size(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.test.gitclient.clone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 部分检出：索引包含提交中的所有文件，工作区只写出指定路径下的文件。
+ * <p>
+ * JGit 不支持写入 skip-worktree 标记，这里对未检出的条目设置 assume-valid 标记，
+ * JGit 与 git 的 status 都不会把它们报告为缺失，提交时保持原内容。
+ * 切换到其他分支时，内容有变化的未检出文件会被写出。
+ */
+public final class SparseCheckout {
+
+    private SparseCheckout() {
+    }
+
+    /**
+     * 用 commit 的完整树重建索引，并只检出 paths 下的文件，工作区原有文件不做清理。
+     */
+    public static void checkout(Repository repository, ObjectId commit, List<String> paths)
+            throws IOException, GitAPIException {
+        List<String> prefixes = normalize(paths);
+        DirCache dirCache = repository.lockDirCache();
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk walk = new TreeWalk(repository)) {
+            DirCacheBuilder builder = dirCache.builder();
+            walk.addTree(revWalk.parseCommit(commit).getTree());
+            walk.setRecursive(true);
+            while (walk.next()) {
+                DirCacheEntry entry = new DirCacheEntry(walk.getRawPath());
+                entry.setFileMode(walk.getFileMode(0));
+                entry.setObjectId(walk.getObjectId(0));
+                entry.setAssumeValid(!matches(walk.getPathString(), prefixes));
+                builder.add(entry);
+            }
+            builder.commit();
+        } finally {
+            dirCache.unlock();
+        }
+        checkoutFromIndex(repository, prefixes);
+    }
+
+    /**
+     * 扩大已检出的范围，把 paths 下尚未检出的文件写出到工作区。
+     */
+    public static void extend(Repository repository, List<String> paths) throws IOException, GitAPIException {
+        List<String> prefixes = normalize(paths);
+        DirCache dirCache = repository.lockDirCache();
+        try {
+            boolean changed = false;
+            for (int i = 0; i < dirCache.getEntryCount(); i++) {
+                DirCacheEntry entry = dirCache.getEntry(i);
+                if (entry.isAssumeValid() && matches(entry.getPathString(), prefixes)) {
+                    entry.setAssumeValid(false);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                dirCache.write();
+                dirCache.commit();
+            }
+        } finally {
+            dirCache.unlock();
+        }
+        checkoutFromIndex(repository, prefixes);
+    }
+
+    private static void checkoutFromIndex(Repository repository, List<String> prefixes) throws GitAPIException {
+        if (prefixes.isEmpty()) {
+            return;
+        }
+        new Git(repository).checkout().addPaths(prefixes).call();
+    }
+
+    private static List<String> normalize(List<String> paths) {
+        List<String> prefixes = new ArrayList<>();
+        for (String path : paths) {
+            String prefix = path.replace('\\', '/');
+            while (prefix.startsWith("/")) {
+                prefix = prefix.substring(1);
+            }
+            while (prefix.endsWith("/")) {
+                prefix = prefix.substring(0, prefix.length() - 1);
+            }
+            if (!prefix.isEmpty()) {
+                prefixes.add(prefix);
+            }
+        }
+        return prefixes;
+    }
+
+    static boolean matches(String path, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (path.equals(prefix) || (path.startsWith(prefix) && path.charAt(prefix.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
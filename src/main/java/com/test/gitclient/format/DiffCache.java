@@ -0,0 +1,473 @@
+package com.test.gitclient.format;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以对象 id 为键缓存差异结果。Git 对象内容不可变，相同的树或文件对在任何仓库中差异都相同。
+ * <p>
+ * 缓存分两级：整棵树的差异以 (旧树, 新树, 比较选项) 为键，单个文件的差异以 (旧文件, 新文件, 比较选项) 为键。
+ * 内存中按估算占用字节数做 LRU 淘汰，设置了溢出目录时被淘汰的结果写入磁盘，下次未命中内存时再读回。
+ * 读回的文件随即删除，溢出目录中的文件总大小超过上限时先删除最早写入的文件。
+ * 返回给调用方的都是副本，修改结果不会影响缓存。
+ */
+public class DiffCache {
+
+    final static Logger logger = LoggerFactory.getLogger(DiffCache.class);
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final long maxWeight;
+    private final File spillDirectory;
+    private final long maxSpillBytes;
+
+    // 溢出文件按写入顺序排列，读回或超出上限时删除
+    private final LinkedHashMap<File, Long> spillFiles = new LinkedHashMap<>();
+    private long spillBytes;
+
+    private final LinkedHashMap<String, CachedDiff> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public DiffCache(long maxWeightBytes) {
+        this(maxWeightBytes, null);
+    }
+
+    /**
+     * 溢出目录的大小上限为内存上限的 4 倍。
+     *
+     * @param maxWeightBytes 内存中缓存结果的估算占用上限
+     * @param spillDirectory 溢出目录，为 null 时被淘汰的结果直接丢弃
+     */
+    public DiffCache(long maxWeightBytes, File spillDirectory) {
+        this(maxWeightBytes, spillDirectory, maxWeightBytes * 4);
+    }
+
+    /**
+     * @param maxWeightBytes 内存中缓存结果的估算占用上限
+     * @param spillDirectory 溢出目录，为 null 时被淘汰的结果直接丢弃
+     * @param maxSpillBytes  溢出目录中缓存文件的总大小上限
+     */
+    public DiffCache(long maxWeightBytes, File spillDirectory, long maxSpillBytes) {
+        if (maxWeightBytes <= 0) {
+            throw new IllegalArgumentException("maxWeightBytes must be positive: " + maxWeightBytes);
+        }
+        if (maxSpillBytes <= 0) {
+            throw new IllegalArgumentException("maxSpillBytes must be positive: " + maxSpillBytes);
+        }
+        this.maxWeight = maxWeightBytes;
+        this.spillDirectory = spillDirectory;
+        this.maxSpillBytes = maxSpillBytes;
+        if (spillDirectory != null && !spillDirectory.isDirectory() && !spillDirectory.mkdirs()) {
+            throw new IllegalArgumentException("cannot create spill directory: " + spillDirectory);
+        }
+        if (spillDirectory != null) {
+            indexSpillDirectory();
+        }
+    }
+
+    public List<FormatEntry> getTreeDiff(AnyObjectId oldTree, AnyObjectId newTree, String optionsKey) {
+        return get(key("t", oldTree, newTree, optionsKey));
+    }
+
+    public void putTreeDiff(AnyObjectId oldTree, AnyObjectId newTree, String optionsKey, List<FormatEntry> entries) {
+        put(key("t", oldTree, newTree, optionsKey), entries);
+    }
+
+    /**
+     * @return 文件差异内容，未缓存时返回 null
+     */
+    public List<DiffContent> getFileDiff(AnyObjectId oldBlob, AnyObjectId newBlob, String optionsKey) {
+        List<FormatEntry> entries = get(key("f", oldBlob, newBlob, optionsKey));
+        return entries == null ? null : entries.get(0).getContents();
+    }
+
+    public void putFileDiff(AnyObjectId oldBlob, AnyObjectId newBlob, String optionsKey, List<DiffContent> contents) {
+        FormatEntry holder = new FormatEntry();
+        holder.setContents(contents);
+        put(key("f", oldBlob, newBlob, optionsKey), Collections.singletonList(holder));
+    }
+
+    /**
+     * 与 {@link #getFileDiff(AnyObjectId, AnyObjectId, String)} 相同，同时返回增删行数、是否为二进制文件等信息，
+     * 路径与类型不属于文件差异，需要由调用方设置。
+     *
+     * @return 未缓存时返回 null
+     */
+    public FormatEntry getFileEntry(AnyObjectId oldBlob, AnyObjectId newBlob, String optionsKey) {
+        List<FormatEntry> entries = get(key("f", oldBlob, newBlob, optionsKey));
+        return entries == null ? null : entries.get(0);
+    }
+
+    public void putFileEntry(AnyObjectId oldBlob, AnyObjectId newBlob, String optionsKey, FormatEntry entry) {
+        put(key("f", oldBlob, newBlob, optionsKey), Collections.singletonList(entry));
+    }
+
+    public void invalidateAll() {
+        synchronized (this) {
+            cache.clear();
+            weight = 0;
+        }
+        if (spillDirectory != null) {
+            synchronized (spillFiles) {
+                spillFiles.clear();
+                spillBytes = 0;
+            }
+            File[] files = spillDirectory.listFiles((dir, name) -> name.endsWith(".diff"));
+            if (files != null) {
+                for (File file : files) {
+                    deleteSpillFile(file);
+                }
+            }
+        }
+    }
+
+    public long getSpillBytes() {
+        synchronized (spillFiles) {
+            return spillBytes;
+        }
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private List<FormatEntry> get(String key) {
+        CachedDiff cached;
+        synchronized (this) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return copy(cached.entries);
+        }
+
+        List<FormatEntry> entries = readSpilled(key);
+        if (entries == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        diskHitCount.incrementAndGet();
+        hitCount.incrementAndGet();
+        // 读回的文件已删除，结果重新放入内存，再次淘汰时重新写入
+        putInMemory(key, new CachedDiff(entries));
+        return copy(entries);
+    }
+
+    private void put(String key, List<FormatEntry> entries) {
+        putInMemory(key, new CachedDiff(copy(entries)));
+    }
+
+    private void putInMemory(String key, CachedDiff value) {
+        List<Map.Entry<String, CachedDiff>> evicted = new ArrayList<>();
+        synchronized (this) {
+            CachedDiff previous = cache.put(key, value);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += value.weight;
+
+            Iterator<Map.Entry<String, CachedDiff>> it = cache.entrySet().iterator();
+            while (weight > maxWeight && it.hasNext()) {
+                Map.Entry<String, CachedDiff> eldest = it.next();
+                it.remove();
+                weight -= eldest.getValue().weight;
+                evictionCount.incrementAndGet();
+                evicted.add(eldest);
+            }
+        }
+        for (Map.Entry<String, CachedDiff> entry : evicted) {
+            spill(entry.getKey(), entry.getValue().entries);
+        }
+    }
+
+    private void spill(String key, List<FormatEntry> entries) {
+        if (spillDirectory == null) {
+            return;
+        }
+        File target = spillFile(key);
+        if (target.exists()) {
+            return;
+        }
+        try {
+            // 先写临时文件再改名，并发读取时不会看到写了一半的文件
+            File tmp = File.createTempFile("spill", ".tmp", spillDirectory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                write(out, key, entries);
+            }
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            addSpillFile(target, target.length());
+        } catch (IOException e) {
+            logger.warn("写入差异缓存文件失败: {}", e.getMessage());
+        }
+    }
+
+    private void indexSpillDirectory() {
+        File[] files = spillDirectory.listFiles((dir, name) -> name.endsWith(".diff"));
+        if (files == null) {
+            return;
+        }
+        // 上次运行留下的文件按修改时间排在前面，超出上限时先删除
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            addSpillFile(file, file.length());
+        }
+    }
+
+    private void addSpillFile(File file, long length) {
+        List<File> removed = new ArrayList<>();
+        synchronized (spillFiles) {
+            Long previous = spillFiles.put(file, length);
+            if (previous != null) {
+                spillBytes -= previous;
+            }
+            spillBytes += length;
+
+            Iterator<Map.Entry<File, Long>> it = spillFiles.entrySet().iterator();
+            while (spillBytes > maxSpillBytes && it.hasNext()) {
+                Map.Entry<File, Long> eldest = it.next();
+                it.remove();
+                spillBytes -= eldest.getValue();
+                removed.add(eldest.getKey());
+            }
+        }
+        for (File eldest : removed) {
+            if (eldest.exists() && !eldest.delete()) {
+                logger.warn("删除差异缓存文件失败: {}", eldest);
+            }
+        }
+    }
+
+    private void deleteSpillFile(File file) {
+        synchronized (spillFiles) {
+            Long length = spillFiles.remove(file);
+            if (length != null) {
+                spillBytes -= length;
+            }
+        }
+        if (file.exists() && !file.delete()) {
+            logger.warn("删除差异缓存文件失败: {}", file);
+        }
+    }
+
+    private List<FormatEntry> readSpilled(String key) {
+        if (spillDirectory == null) {
+            return null;
+        }
+        File file = spillFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        List<FormatEntry> entries;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            entries = read(in, key, file.length());
+        } catch (IOException | RuntimeException e) {
+            // 文件损坏或被截断时按未命中处理
+            logger.warn("读取差异缓存文件失败: {} {}", file, e.toString());
+            entries = null;
+        }
+        deleteSpillFile(file);
+        return entries;
+    }
+
+    private File spillFile(String key) {
+        ObjectId name = ObjectId.fromRaw(Constants.newMessageDigest().digest(key.getBytes(StandardCharsets.UTF_8)));
+        return new File(spillDirectory, name.name() + ".diff");
+    }
+
+    private static void write(DataOutputStream out, String key, List<FormatEntry> entries) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, key);
+        out.writeInt(entries.size());
+        for (FormatEntry entry : entries) {
+            out.writeByte(entry.getType() == null ? -1 : entry.getType().ordinal());
+            writeString(out, entry.getFilePath());
+            writeString(out, entry.getOldFilePath());
+            out.writeByte(entry.getSimilarity());
+            out.writeBoolean(entry.isBinary());
+            out.writeBoolean(entry.isTruncated());
+            out.writeInt(entry.getAddedLines());
+            out.writeInt(entry.getDeletedLines());
+            // 行内容直接写入原始字节，读回时与写入前的解码结果相同
+            DiffLines lines = entry.lines();
+            byte[] buffer = lines.getBuffer();
+            out.writeInt(lines.size());
+            for (int j = 0; j < lines.size(); j++) {
+                out.writeByte(lines.getType(j).ordinal());
+                out.writeInt(lines.getLineNumber(j));
+                out.writeInt(lines.getEnd(j) - lines.getStart(j));
+                out.write(buffer, lines.getStart(j), lines.getEnd(j) - lines.getStart(j));
+            }
+        }
+    }
+
+    /**
+     * 读取溢出文件，文件中的数量与长度都不会超过文件大小，类型序号必须有效，否则视为文件损坏。
+     */
+    private static List<FormatEntry> read(DataInputStream in, String key, long size) throws IOException {
+        if (in.readInt() != FORMAT_VERSION || !key.equals(readString(in, size))) {
+            return null;
+        }
+        DiffEntryType[] entryTypes = DiffEntryType.values();
+        ContentType[] contentTypes = ContentType.values();
+        int count = checkLength(in.readInt(), size);
+        List<FormatEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FormatEntry entry = new FormatEntry();
+            int type = in.readByte();
+            if (type >= entryTypes.length || type < -1) {
+                throw new IOException("corrupt spill file: entry type " + type);
+            }
+            entry.setType(type < 0 ? null : entryTypes[type]);
+            entry.setFilePath(readString(in, size));
+            entry.setOldFilePath(readString(in, size));
+            entry.setSimilarity(in.readByte());
+            entry.setBinary(in.readBoolean());
+            entry.setTruncated(in.readBoolean());
+            entry.setAddedLines(in.readInt());
+            entry.setDeletedLines(in.readInt());
+            int lines = checkLength(in.readInt(), size);
+            DiffLines contents = new DiffLines(lines, (int) Math.min(size, lines * 64L));
+            byte[] line = new byte[256];
+            for (int j = 0; j < lines; j++) {
+                int contentType = in.readByte();
+                if (contentType < 0 || contentType >= contentTypes.length) {
+                    throw new IOException("corrupt spill file: content type " + contentType);
+                }
+                int lineNumber = in.readInt();
+                int length = checkLength(in.readInt(), size);
+                if (length > line.length) {
+                    line = new byte[length];
+                }
+                in.readFully(line, 0, length);
+                contents.add(contentTypes[contentType], lineNumber, line, 0, length);
+            }
+            entry.setContents(contents);
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    // writeUTF 限制 64KB，单行内容可能更长
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long size) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        checkLength(length, size);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checkLength(int length, long size) throws IOException {
+        if (length < 0 || length > size) {
+            throw new IOException("corrupt spill file: length " + length + " exceeds file size " + size);
+        }
+        return length;
+    }
+
+    private static String key(String level, AnyObjectId oldId, AnyObjectId newId, String optionsKey) {
+        return level + ':' + oldId.name() + ':' + newId.name() + ':' + optionsKey;
+    }
+
+    static List<FormatEntry> copy(List<FormatEntry> entries) {
+        List<FormatEntry> ret = new ArrayList<>(entries.size());
+        for (FormatEntry entry : entries) {
+            FormatEntry copy = new FormatEntry();
+            copy.copySummary(entry);
+            copy.setContents(copyContents(entry.getContents()));
+            ret.add(copy);
+        }
+        return ret;
+    }
+
+    static List<DiffContent> copyContents(List<DiffContent> contents) {
+        if (contents instanceof DiffLines) {
+            return ((DiffLines) contents).copy();
+        }
+        return DiffLines.of(contents);
+    }
+
+    private static class CachedDiff {
+        final List<FormatEntry> entries;
+        final long weight;
+
+        CachedDiff(List<FormatEntry> entries) {
+            this.entries = entries;
+            this.weight = weigh(entries);
+        }
+
+        // 按对象头、引用与字符数组粗略估算，缓存中的内容都已由 copy 转换为 DiffLines
+        private static long weigh(List<FormatEntry> entries) {
+            long weight = 64;
+            for (FormatEntry entry : entries) {
+                weight += 64 + (length(entry.getFilePath()) + length(entry.getOldFilePath())) * 2L
+                        + entry.lines().estimatedSize();
+            }
+            return weight;
+        }
+
+        private static int length(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+}
@@ -0,0 +1,533 @@
+package com.test.gitclient.format;
+
+import org.eclipse.jgit.diff.ContentSource;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.errors.BinaryBlobException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.eclipse.jgit.util.io.NullOutputStream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 直接由 {@link DiffEntry} 与 {@link EditList} 构建 {@link FormatEntry}，
+ * 不再经过 {@link DiffFormatter} 输出文本再由 {@link ContentFormatter} 解析。
+ */
+public class DiffEntryFormatter implements AutoCloseable {
+
+    public static final int DEFAULT_CONTEXT = 3;
+
+    public static final int DEFAULT_BINARY_FILE_THRESHOLD = PackConfig.DEFAULT_BIG_FILE_THRESHOLD;
+
+    private final Repository repository;
+    private final ObjectReader reader;
+    private final DiffAlgorithm.SupportedAlgorithm algorithm;
+    private final DiffAlgorithm diffAlgorithm;
+    private RawTextComparator comparator = RawTextComparator.DEFAULT;
+    private DiffOptions options = new DiffOptions();
+    private DiffCache diffCache;
+
+    public DiffEntryFormatter(Repository repository) {
+        this.repository = repository;
+        this.reader = repository.newObjectReader();
+        this.algorithm = algorithm(repository.getConfig());
+        this.diffAlgorithm = DiffAlgorithm.getAlgorithm(algorithm);
+    }
+
+    public void setComparator(RawTextComparator comparator) {
+        this.comparator = comparator;
+    }
+
+    public void setContext(int context) {
+        options.setContext(context);
+    }
+
+    public void setBinaryFileThreshold(int binaryFileThreshold) {
+        options.setBinaryFileThreshold(binaryFileThreshold);
+    }
+
+    /**
+     * 设置重命名检测、二进制文件与大文件的处理方式，为 null 时恢复默认选项。
+     */
+    public void setOptions(DiffOptions options) {
+        this.options = options == null ? new DiffOptions() : options.copy();
+    }
+
+    /**
+     * 设置后按文件对象 id 复用已计算的文件差异。
+     */
+    public void setDiffCache(DiffCache diffCache) {
+        this.diffCache = diffCache;
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    /**
+     * 影响差异内容的选项，用作 {@link DiffCache} 键的一部分。
+     */
+    public String getOptionsKey() {
+        return optionsKey(algorithm, comparator, options);
+    }
+
+    /**
+     * 使用默认选项时的 {@link #getOptionsKey()}。
+     */
+    public static String defaultOptionsKey(Repository repository) {
+        return optionsKey(repository, new DiffOptions());
+    }
+
+    /**
+     * 使用默认比较器与给定选项时的 {@link #getOptionsKey()}。
+     */
+    public static String optionsKey(Repository repository, DiffOptions options) {
+        return optionsKey(algorithm(repository.getConfig()), RawTextComparator.DEFAULT,
+                options == null ? new DiffOptions() : options);
+    }
+
+    /**
+     * 比较两棵树并格式化全部差异文件。
+     */
+    public List<FormatEntry> format(AbstractTreeIterator oldTree, AbstractTreeIterator newTree) throws IOException {
+        List<DiffEntry> entries = scan(oldTree, newTree);
+        return format(entries, newContentSource(oldTree, newTree));
+    }
+
+    public List<DiffEntry> scan(AbstractTreeIterator oldTree, AbstractTreeIterator newTree) throws IOException {
+        try (DiffFormatter scanner = new DiffFormatter(NullOutputStream.INSTANCE)) {
+            scanner.setReader(reader, repository.getConfig());
+            if (options.isDetectRenames()) {
+                scanner.setDetectRenames(true);
+                RenameDetector detector = scanner.getRenameDetector();
+                detector.setRenameScore(options.getRenameScore());
+                detector.setRenameLimit(options.getRenameLimit());
+                detector.setSkipContentRenamesForBinaryFiles(true);
+                detector.setBigFileThreshold(bigFileThreshold());
+            }
+            return scanner.scan(oldTree, newTree);
+        }
+    }
+
+    public List<FormatEntry> format(List<DiffEntry> entries, ContentSource.Pair source) throws IOException {
+        List<FormatEntry> ret = new ArrayList<>(entries.size());
+        for (DiffEntry entry : entries) {
+            ret.add(format(entry, source));
+        }
+        return ret;
+    }
+
+    public FormatEntry format(DiffEntry entry, ContentSource.Pair source) throws IOException {
+        FormatEntry formatEntry = newFormatEntry(entry);
+        boolean cacheable = diffCache != null && entry.getOldId().isComplete() && entry.getNewId().isComplete();
+        if (cacheable) {
+            FormatEntry cached = diffCache.getFileEntry(entry.getOldId().toObjectId(),
+                    entry.getNewId().toObjectId(), getOptionsKey());
+            if (cached != null) {
+                copyContentSummary(cached, formatEntry);
+                formatEntry.setContents(cached.getContents());
+                return formatEntry;
+            }
+        }
+
+        FileDiff diff = diff(entry, source, formatEntry);
+        if (diff != null) {
+            appendContents(formatEntry, formatEntry, diff, null);
+        }
+        if (cacheable) {
+            diffCache.putFileEntry(entry.getOldId().toObjectId(), entry.getNewId().toObjectId(),
+                    getOptionsKey(), formatEntry);
+        }
+        return formatEntry;
+    }
+
+    /**
+     * 逐个文件计算差异并交给 handler，不保留已处理的结果。
+     *
+     * @return 全部处理完成返回 true，被 handler 中止返回 false
+     */
+    public boolean format(List<DiffEntry> entries, ContentSource.Pair source, DiffHandler handler) throws IOException {
+        for (DiffEntry entry : entries) {
+            if (!handler.handle(format(entry, source))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与 {@link #format(List, ContentSource.Pair, DiffHandler)} 相同，但每个区块单独返回一个 {@link FormatEntry}，
+     * 适用于单个文件差异也很大的情况。没有内容差异的文件返回一个不含内容的 {@link FormatEntry}。
+     */
+    public boolean formatHunks(List<DiffEntry> entries, ContentSource.Pair source, DiffHandler handler) throws IOException {
+        for (DiffEntry entry : entries) {
+            FormatEntry header = newFormatEntry(entry);
+            FileDiff diff = diff(entry, source, header);
+            boolean proceed = diff == null
+                    ? handler.handle(header)
+                    : appendContents(header, null, diff, handler);
+            if (!proceed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 只统计每个文件的增删行数，不生成差异内容。新增与删除的文件直接数行数，不计算差异；
+     * countLines 为 false 时不读取任何文件内容，增删行数均为 -1。
+     */
+    public DiffStat stat(List<DiffEntry> entries, ContentSource.Pair source, boolean countLines) throws IOException {
+        DiffStat ret = new DiffStat();
+        for (DiffEntry entry : entries) {
+            if (countLines) {
+                ret.add(stat(entry, source));
+            } else {
+                FormatEntry file = newFormatEntry(entry);
+                file.setAddedLines(-1);
+                file.setDeletedLines(-1);
+                ret.add(file);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * 统计单个文件的增删行数，返回的 {@link FormatEntry} 不含差异内容。
+     */
+    public FormatEntry stat(DiffEntry entry, ContentSource.Pair source) throws IOException {
+        FormatEntry file = newFormatEntry(entry);
+        if (entry.getChangeType() == DiffEntry.ChangeType.ADD
+                || entry.getChangeType() == DiffEntry.ChangeType.DELETE) {
+            countLines(entry, source, file);
+        } else {
+            diff(entry, source, file);
+        }
+        return file;
+    }
+
+    /**
+     * 新增或删除的文件，增删行数就是文件行数，与 {@link RawText#size()} 一致。
+     */
+    private void countLines(DiffEntry entry, ContentSource.Pair source, FormatEntry target) throws IOException {
+        if (!hasContent(entry)) {
+            return;
+        }
+        boolean added = entry.getChangeType() == DiffEntry.ChangeType.ADD;
+        DiffEntry.Side side = added ? DiffEntry.Side.NEW : DiffEntry.Side.OLD;
+        long size = size(side, entry, source);
+        if (options.getMaxFileSize() > 0 && size > options.getMaxFileSize()) {
+            target.setTruncated(true);
+            target.setAddedLines(-1);
+            target.setDeletedLines(-1);
+            return;
+        }
+        byte[] raw = size > options.getBinaryFileThreshold()
+                ? null
+                : source.open(side, entry).getCachedBytes(options.getBinaryFileThreshold());
+        if (raw == null || RawText.isBinary(raw)) {
+            target.setBinary(true);
+            target.setAddedLines(-1);
+            target.setDeletedLines(-1);
+            return;
+        }
+        int lines = 0;
+        for (byte b : raw) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        if (raw.length > 0 && raw[raw.length - 1] != '\n') {
+            lines++;
+        }
+        target.setAddedLines(added ? lines : 0);
+        target.setDeletedLines(added ? 0 : lines);
+    }
+
+    /**
+     * 比较文件内容，并在 target 上记录增删行数以及是否为二进制文件、是否超过上限。
+     * 先按对象大小判断，超过上限的文件不读取内容。
+     *
+     * @return 没有可显示的内容差异（模式变更、子模块、二进制、超过上限或内容相同）时返回 null
+     */
+    private FileDiff diff(DiffEntry entry, ContentSource.Pair source, FormatEntry target) throws IOException {
+        if (!hasContent(entry)) {
+            return null;
+        }
+
+        long size = Math.max(size(DiffEntry.Side.OLD, entry, source), size(DiffEntry.Side.NEW, entry, source));
+        if (options.getMaxFileSize() > 0 && size > options.getMaxFileSize()) {
+            target.setTruncated(true);
+            target.setAddedLines(-1);
+            target.setDeletedLines(-1);
+            return null;
+        }
+
+        RawText a;
+        RawText b;
+        try {
+            // 超过阈值的文件不读取内容，与 RawText.load 的判断一致
+            if (size > options.getBinaryFileThreshold()) {
+                throw new BinaryBlobException();
+            }
+            a = open(DiffEntry.Side.OLD, entry, source);
+            b = open(DiffEntry.Side.NEW, entry, source);
+        } catch (BinaryBlobException e) {
+            // 与 "Binary files differ" 一致，二进制文件只保留文件信息
+            target.setBinary(true);
+            target.setAddedLines(-1);
+            target.setDeletedLines(-1);
+            return null;
+        }
+
+        EditList edits = diffAlgorithm.diff(comparator, a, b);
+        int added = 0;
+        int deleted = 0;
+        for (Edit edit : edits) {
+            added += edit.getLengthB();
+            deleted += edit.getLengthA();
+        }
+        target.setAddedLines(added);
+        target.setDeletedLines(deleted);
+        if (options.getMaxLines() > 0 && added + deleted > options.getMaxLines()) {
+            target.setTruncated(true);
+            return null;
+        }
+        return edits.isEmpty() ? null : new FileDiff(a, b, edits);
+    }
+
+    /**
+     * 根据两侧树的类型选择内容来源，工作区直接读取文件，其他情况从对象库读取。
+     */
+    public ContentSource.Pair newContentSource(AbstractTreeIterator oldTree, AbstractTreeIterator newTree) {
+        return new ContentSource.Pair(source(oldTree), source(newTree));
+    }
+
+    /**
+     * 从当前格式化器的对象读取器读取内容，与读取器一样不能跨线程共享。
+     */
+    public ContentSource newObjectSource() {
+        return ContentSource.create(reader);
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+
+    static FormatEntry newFormatEntry(DiffEntry entry) {
+        FormatEntry formatEntry = new FormatEntry();
+        switch (entry.getChangeType()) {
+            case ADD:
+                formatEntry.setType(DiffEntryType.ADD);
+                formatEntry.setFilePath(entry.getNewPath());
+                break;
+            case DELETE:
+                formatEntry.setType(DiffEntryType.DELETE);
+                formatEntry.setFilePath(entry.getOldPath());
+                break;
+            case RENAME:
+            case COPY:
+                formatEntry.setType(entry.getChangeType() == DiffEntry.ChangeType.RENAME
+                        ? DiffEntryType.RENAME : DiffEntryType.COPY);
+                formatEntry.setFilePath(entry.getNewPath());
+                formatEntry.setOldFilePath(entry.getOldPath());
+                formatEntry.setSimilarity(entry.getScore());
+                break;
+            default:
+                formatEntry.setType(DiffEntryType.MODIFY);
+                formatEntry.setFilePath(entry.getNewPath());
+                break;
+        }
+        return formatEntry;
+    }
+
+    static boolean hasContent(DiffEntry entry) {
+        if (entry.getOldMode() == FileMode.GITLINK || entry.getNewMode() == FileMode.GITLINK) {
+            return false;
+        }
+        // 仅修改文件模式或完全相同的重命名没有内容差异
+        return !(entry.getOldId().equals(entry.getNewId())
+                && entry.getChangeType() != DiffEntry.ChangeType.ADD
+                && entry.getChangeType() != DiffEntry.ChangeType.DELETE);
+    }
+
+    private static DiffAlgorithm.SupportedAlgorithm algorithm(Config config) {
+        return config.getEnum(ConfigConstants.CONFIG_DIFF_SECTION, null,
+                ConfigConstants.CONFIG_KEY_ALGORITHM,
+                DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+    }
+
+    private static String optionsKey(DiffAlgorithm.SupportedAlgorithm algorithm, RawTextComparator comparator,
+                                     DiffOptions options) {
+        // RawTextComparator 的预置实例均为匿名类，类名可以区分
+        return algorithm + "/" + comparator.getClass().getName() + "/" + options.key();
+    }
+
+    private static void copyContentSummary(FormatEntry from, FormatEntry to) {
+        to.setBinary(from.isBinary());
+        to.setTruncated(from.isTruncated());
+        to.setAddedLines(from.getAddedLines());
+        to.setDeletedLines(from.getDeletedLines());
+    }
+
+    private int bigFileThreshold() {
+        long threshold = options.getBinaryFileThreshold();
+        if (options.getMaxFileSize() > 0) {
+            threshold = Math.min(threshold, options.getMaxFileSize());
+        }
+        return (int) threshold;
+    }
+
+    private static long size(DiffEntry.Side side, DiffEntry entry, ContentSource.Pair source) throws IOException {
+        return entry.getMode(side) == FileMode.MISSING ? 0 : source.size(side, entry);
+    }
+
+    private RawText open(DiffEntry.Side side, DiffEntry entry, ContentSource.Pair source)
+            throws IOException, BinaryBlobException {
+        if (entry.getMode(side) == FileMode.MISSING) {
+            return RawText.EMPTY_TEXT;
+        }
+        return RawText.load(source.open(side, entry), options.getBinaryFileThreshold());
+    }
+
+    /**
+     * 按 {@link DiffFormatter} 相同的规则将相邻的修改合并为带上下文的区块。
+     * 删除与上下文行的行号为旧文件行号，新增行行号为 -1。
+     * hunkHandler 为空时全部内容写入 target，否则每个区块单独交给 hunkHandler，各区块都带有 header 中的文件信息。
+     *
+     * @return hunkHandler 是否要求继续
+     */
+    private boolean appendContents(FormatEntry header, FormatEntry target, FileDiff diff, DiffHandler hunkHandler) {
+        EditList edits = diff.edits;
+        RawText a = diff.a;
+        RawText b = diff.b;
+        LineCursor aLines = new LineCursor(a);
+        LineCursor bLines = new LineCursor(b);
+        int context = options.getContext();
+        for (int curIdx = 0; curIdx < edits.size(); ) {
+            FormatEntry formatEntry = target;
+            if (hunkHandler != null) {
+                formatEntry = new FormatEntry();
+                formatEntry.copySummary(header);
+            }
+            DiffLines lines = formatEntry.lines();
+            Edit curEdit = edits.get(curIdx);
+            final int endIdx = findCombinedEnd(edits, curIdx);
+            final Edit endEdit = edits.get(endIdx);
+
+            int aCur = Math.max(0, curEdit.getBeginA() - context);
+            int bCur = Math.max(0, curEdit.getBeginB() - context);
+            final int aEnd = Math.min(a.size(), endEdit.getEndA() + context);
+            final int bEnd = Math.min(b.size(), endEdit.getEndB() + context);
+
+            while (aCur < aEnd || bCur < bEnd) {
+                if (aCur < curEdit.getBeginA() || endIdx + 1 < curIdx) {
+                    aLines.append(lines, ContentType.ORIGINAL, aCur + 1, aCur);
+                    aCur++;
+                    bCur++;
+                } else if (aCur < curEdit.getEndA()) {
+                    aLines.append(lines, ContentType.DELETE, aCur + 1, aCur);
+                    aCur++;
+                } else if (bCur < curEdit.getEndB()) {
+                    bLines.append(lines, ContentType.ADD, -1, bCur);
+                    bCur++;
+                }
+
+                if (end(curEdit, aCur, bCur) && ++curIdx < edits.size()) {
+                    curEdit = edits.get(curIdx);
+                }
+            }
+
+            if (hunkHandler != null && !hunkHandler.handle(formatEntry)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int findCombinedEnd(List<Edit> edits, int i) {
+        int end = i + 1;
+        while (end < edits.size()
+                && (combineA(edits, end) || combineB(edits, end))) {
+            end++;
+        }
+        return end - 1;
+    }
+
+    private boolean combineA(List<Edit> e, int i) {
+        return e.get(i).getBeginA() - e.get(i - 1).getEndA() <= 2 * options.getContext();
+    }
+
+    private boolean combineB(List<Edit> e, int i) {
+        return e.get(i).getBeginB() - e.get(i - 1).getEndB() <= 2 * options.getContext();
+    }
+
+    private static boolean end(Edit edit, int a, int b) {
+        return edit.getEndA() <= a && edit.getEndB() <= b;
+    }
+
+    private ContentSource source(AbstractTreeIterator iterator) {
+        if (iterator instanceof WorkingTreeIterator) {
+            return ContentSource.create((WorkingTreeIterator) iterator);
+        }
+        return newObjectSource();
+    }
+
+    /**
+     * 按行号定位 {@link RawText} 原始内容中的行，区块按顺序输出，行号只会增加，
+     * 因此从上次位置向后查找换行符即可，不需要再建立一份行索引。
+     */
+    private static class LineCursor {
+        private final byte[] raw;
+        private int line;
+        private int start;
+
+        LineCursor(RawText text) {
+            this.raw = text.getRawContent();
+        }
+
+        /**
+         * 将第 index 行（从 0 开始，不含换行符）追加到 lines，与 {@link RawText#getString(int)} 的内容相同。
+         */
+        void append(DiffLines lines, ContentType type, int lineNumber, int index) {
+            while (line < index) {
+                start = RawParseUtils.nextLF(raw, start);
+                line++;
+            }
+            int end = RawParseUtils.nextLF(raw, start);
+            if (end > start && raw[end - 1] == '\n') {
+                end--;
+            }
+            lines.add(type, lineNumber, raw, start, end);
+        }
+    }
+
+    private static class FileDiff {
+        final RawText a;
+        final RawText b;
+        final EditList edits;
+
+        FileDiff(RawText a, RawText b, EditList edits) {
+            this.a = a;
+            this.b = b;
+            this.edits = edits;
+        }
+    }
+}
@@ -3,7 +3,9 @@ package com.test.gitclient.format;
 public enum DiffEntryType {
     ADD("add"),
     DELETE("delete"),
-    MODIFY("modify");
+    MODIFY("modify"),
+    RENAME("rename"),
+    COPY("copy");
     private String type;
 
 
@@ -0,0 +1,9 @@
+package com.test.gitclient.format;
+
+/**
+ * 逐个接收差异结果，处理完成后返回 false 可以提前结束比较。
+ * 回调在计算线程中同步执行，处理期间不会继续计算后续文件。
+ */
+public interface DiffHandler {
+    boolean handle(FormatEntry entry);
+}
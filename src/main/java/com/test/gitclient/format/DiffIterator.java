@@ -0,0 +1,82 @@
+package com.test.gitclient.format;
+
+import com.test.gitclient.metrics.OperationRecorder;
+import org.eclipse.jgit.diff.ContentSource;
+import org.eclipse.jgit.diff.DiffEntry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 按需计算差异的迭代器，每次调用 {@link #next()} 才读取并比较下一个文件。
+ * 使用完毕后需要关闭以释放对象读取器、仓库与仓库锁，并结束操作记录。
+ */
+public class DiffIterator implements Iterator<FormatEntry>, AutoCloseable {
+
+    private final DiffEntryFormatter formatter;
+    private final Iterator<DiffEntry> entries;
+    private final ContentSource.Pair source;
+    private final AutoCloseable resource;
+    private final OperationRecorder op;
+    private int files;
+    private boolean closed;
+
+    public DiffIterator(DiffEntryFormatter formatter, List<DiffEntry> entries, ContentSource.Pair source,
+                        AutoCloseable resource) {
+        this(formatter, entries, source, resource, OperationRecorder.NOOP);
+    }
+
+    /**
+     * @param op 关闭时记录取出的文件数 {@link OperationRecorder#FILES_DIFFED} 并结束
+     */
+    public DiffIterator(DiffEntryFormatter formatter, List<DiffEntry> entries, ContentSource.Pair source,
+                        AutoCloseable resource, OperationRecorder op) {
+        this.formatter = formatter;
+        this.entries = entries.iterator();
+        this.source = source;
+        this.resource = resource;
+        this.op = op;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && entries.hasNext();
+    }
+
+    @Override
+    public FormatEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            FormatEntry ret = formatter.format(entries.next(), source);
+            files++;
+            return ret;
+        } catch (IOException e) {
+            op.failed(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        formatter.close();
+        op.count(OperationRecorder.FILES_DIFFED, files);
+        try {
+            if (resource != null) {
+                resource.close();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            op.close();
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.test.gitclient.format;
+
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 紧凑存储的差异行。行类型与行号保存在基本类型数组中，行内容是共享字节缓冲区中的区间，
+ * 保存的是文件原始字节，读取时才按 {@link RawParseUtils#decode(byte[], int, int)} 解码，
+ * 与 {@link org.eclipse.jgit.diff.RawText#getString(int)} 结果相同。
+ * <p>
+ * 作为 {@code List<DiffContent>} 使用时，{@link #get(int)} 返回该行的视图，通过它的 setter 修改会写回列表；
+ * 视图在第一次访问时创建并缓存，随插入、删除移动到新的下标，该行被删除后视图保留删除时的值，不再与列表关联。
+ * 批量处理可以按下标读取 {@link #getType(int)}、{@link #getLineNumber(int)} 与
+ * {@link #getBuffer()} 中 [{@link #getStart(int)}, {@link #getEnd(int)}) 的内容，不产生额外对象。
+ */
+public class DiffLines extends AbstractList<DiffContent> implements RandomAccess {
+
+    private static final ContentType[] TYPES = ContentType.values();
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private byte[] types;
+    private int[] lineNumbers;
+    private int[] starts;
+    private int[] ends;
+    private byte[] buffer;
+    private int bufferLength;
+    private int size;
+    // get 返回的视图，第一次调用 get 时才分配，只按下标批量读取时为 null
+    private Line[] views;
+
+    /**
+     * 添加第一行时才分配数组，没有内容差异的文件不占用额外空间。
+     */
+    public DiffLines() {
+        types = EMPTY_BYTES;
+        lineNumbers = EMPTY_INTS;
+        starts = EMPTY_INTS;
+        ends = EMPTY_INTS;
+        buffer = EMPTY_BYTES;
+    }
+
+    /**
+     * @param lines 预计行数
+     * @param bytes 预计内容字节数
+     */
+    public DiffLines(int lines, int bytes) {
+        types = new byte[Math.max(1, lines)];
+        lineNumbers = new int[types.length];
+        starts = new int[types.length];
+        ends = new int[types.length];
+        buffer = new byte[Math.max(16, bytes)];
+    }
+
+    /**
+     * 转换为紧凑形式，已经是 {@link DiffLines} 时直接返回。
+     */
+    public static DiffLines of(List<DiffContent> contents) {
+        if (contents instanceof DiffLines) {
+            return (DiffLines) contents;
+        }
+        DiffLines ret = new DiffLines(contents.size(), contents.size() * 64);
+        ret.addAll(contents);
+        return ret;
+    }
+
+    /**
+     * 追加一行，内容从 raw 的 [start, end) 复制。
+     */
+    public void add(ContentType type, int lineNumber, byte[] raw, int start, int end) {
+        ensureLines(size + 1);
+        int length = end - start;
+        int offset = append(raw, start, length);
+        types[size] = (byte) type.ordinal();
+        lineNumbers[size] = lineNumber;
+        starts[size] = offset;
+        ends[size] = offset + length;
+        size++;
+        modCount++;
+    }
+
+    public void add(ContentType type, int lineNumber, String content) {
+        byte[] raw = encode(content);
+        add(type, lineNumber, raw, 0, raw.length);
+    }
+
+    @Override
+    public boolean add(DiffContent content) {
+        add(content.getType(), content.getLineNumber(), content.getContent());
+        return true;
+    }
+
+    /**
+     * 在 index 处插入一行，之后的行依次后移。
+     */
+    @Override
+    public void add(int index, DiffContent content) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        if (index == size) {
+            add(content);
+            return;
+        }
+        ContentType type = content.getType();
+        int lineNumber = content.getLineNumber();
+        byte[] raw = encode(content.getContent());
+        ensureLines(size + 1);
+        int moved = size - index;
+        System.arraycopy(types, index, types, index + 1, moved);
+        System.arraycopy(lineNumbers, index, lineNumbers, index + 1, moved);
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(ends, index, ends, index + 1, moved);
+        if (views != null) {
+            System.arraycopy(views, index, views, index + 1, moved);
+            views[index] = null;
+            moveViews(index + 1, size + 1);
+        }
+        int offset = append(raw, 0, raw.length);
+        types[index] = (byte) type.ordinal();
+        lineNumbers[index] = lineNumber;
+        starts[index] = offset;
+        ends[index] = offset + raw.length;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public DiffContent get(int index) {
+        checkIndex(index);
+        if (views == null) {
+            views = new Line[types.length];
+        }
+        Line view = views[index];
+        if (view == null) {
+            view = new Line(index);
+            views[index] = view;
+        }
+        return view;
+    }
+
+    /**
+     * 替换一行，新内容追加到缓冲区末尾，原内容占用的空间在 {@link #copy()} 时回收。
+     *
+     * @return 替换前的内容，与列表无关联
+     */
+    @Override
+    public DiffContent set(int index, DiffContent content) {
+        DiffContent previous = snapshot(index);
+        ContentType type = content.getType();
+        int lineNumber = content.getLineNumber();
+        setContent(index, content.getContent());
+        types[index] = (byte) type.ordinal();
+        lineNumbers[index] = lineNumber;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        truncate(0);
+    }
+
+    /**
+     * 只保留前 newSize 行。
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("size: " + size + ", newSize: " + newSize);
+        }
+        if (newSize == size) {
+            return;
+        }
+        detachViews(newSize, size);
+        size = newSize;
+        bufferLength = newSize == 0 ? 0 : maxEnd(newSize);
+        modCount++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (toIndex != size) {
+            super.removeRange(fromIndex, toIndex);
+            return;
+        }
+        truncate(fromIndex);
+    }
+
+    /**
+     * @return 删除的内容，与列表无关联
+     */
+    @Override
+    public DiffContent remove(int index) {
+        DiffContent previous = snapshot(index);
+        detachViews(index, index + 1);
+        int moved = size - index - 1;
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(lineNumbers, index + 1, lineNumbers, index, moved);
+        System.arraycopy(starts, index + 1, starts, index, moved);
+        System.arraycopy(ends, index + 1, ends, index, moved);
+        if (views != null) {
+            System.arraycopy(views, index + 1, views, index, moved);
+            views[size - 1] = null;
+            moveViews(index, size - 1);
+        }
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    public ContentType getType(int index) {
+        checkIndex(index);
+        return TYPES[types[index]];
+    }
+
+    public int getLineNumber(int index) {
+        checkIndex(index);
+        return lineNumbers[index];
+    }
+
+    public String getContent(int index) {
+        checkIndex(index);
+        return RawParseUtils.decode(buffer, starts[index], ends[index]);
+    }
+
+    /**
+     * 共享的内容缓冲区，只能读取，追加内容后可能被替换为新的数组。
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getStart(int index) {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        checkIndex(index);
+        return ends[index];
+    }
+
+    /**
+     * @return 数组与缓冲区的估算占用字节数
+     */
+    public long estimatedSize() {
+        return 96L + types.length * 13L + buffer.length;
+    }
+
+    /**
+     * 按实际大小复制，只保留仍被引用的内容。
+     */
+    public DiffLines copy() {
+        if (size == 0) {
+            return new DiffLines();
+        }
+        int bytes = 0;
+        for (int i = 0; i < size; i++) {
+            bytes += ends[i] - starts[i];
+        }
+        DiffLines ret = new DiffLines(size, bytes);
+        for (int i = 0; i < size; i++) {
+            ret.types[i] = types[i];
+            ret.lineNumbers[i] = lineNumbers[i];
+            int offset = ret.append(buffer, starts[i], ends[i] - starts[i]);
+            ret.starts[i] = offset;
+            ret.ends[i] = offset + ends[i] - starts[i];
+        }
+        ret.size = size;
+        return ret;
+    }
+
+    private DiffContent snapshot(int index) {
+        checkIndex(index);
+        return new DiffContent(getType(index), lineNumbers[index], getContent(index));
+    }
+
+    private void setContent(int index, String content) {
+        byte[] raw = encode(content);
+        int offset = append(raw, 0, raw.length);
+        starts[index] = offset;
+        ends[index] = offset + raw.length;
+    }
+
+    /**
+     * 更新 [from, to) 中视图记录的下标。
+     */
+    private void moveViews(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (views[i] != null) {
+                views[i].index = i;
+            }
+        }
+    }
+
+    /**
+     * [from, to) 中的行即将删除，视图保留当前值并与列表断开。
+     */
+    private void detachViews(int from, int to) {
+        if (views == null) {
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            Line view = views[i];
+            if (view != null) {
+                view.detach();
+                views[i] = null;
+            }
+        }
+    }
+
+    private int append(byte[] raw, int start, int length) {
+        if (bufferLength + length > buffer.length) {
+            int newLength = Math.max(DEFAULT_BUFFER_SIZE, buffer.length + (buffer.length >> 1));
+            buffer = Arrays.copyOf(buffer, Math.max(bufferLength + length, newLength));
+        }
+        System.arraycopy(raw, start, buffer, bufferLength, length);
+        int offset = bufferLength;
+        bufferLength += length;
+        return offset;
+    }
+
+    private void ensureLines(int capacity) {
+        if (capacity <= types.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, Math.max(DEFAULT_CAPACITY, types.length + (types.length >> 1)));
+        types = Arrays.copyOf(types, newCapacity);
+        lineNumbers = Arrays.copyOf(lineNumbers, newCapacity);
+        starts = Arrays.copyOf(starts, newCapacity);
+        ends = Arrays.copyOf(ends, newCapacity);
+        if (views != null) {
+            views = Arrays.copyOf(views, newCapacity);
+        }
+    }
+
+    private int maxEnd(int lines) {
+        int ret = 0;
+        for (int i = 0; i < lines; i++) {
+            ret = Math.max(ret, ends[i]);
+        }
+        return ret;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+    }
+
+    private static byte[] encode(String content) {
+        return content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@link #get(int)} 返回的视图，index 为 -1 时已与列表断开，读写自身字段。
+     */
+    private class Line extends DiffContent {
+        int index;
+
+        Line(int index) {
+            super(null, 0, null);
+            this.index = index;
+        }
+
+        void detach() {
+            super.setType(DiffLines.this.getType(index));
+            super.setLineNumber(lineNumbers[index]);
+            super.setContent(DiffLines.this.getContent(index));
+            index = -1;
+        }
+
+        @Override
+        public ContentType getType() {
+            return index < 0 ? super.getType() : DiffLines.this.getType(index);
+        }
+
+        @Override
+        public void setType(ContentType type) {
+            if (index < 0) {
+                super.setType(type);
+            } else {
+                types[index] = (byte) type.ordinal();
+            }
+        }
+
+        @Override
+        public int getLineNumber() {
+            return index < 0 ? super.getLineNumber() : lineNumbers[index];
+        }
+
+        @Override
+        public void setLineNumber(int lineNumber) {
+            if (index < 0) {
+                super.setLineNumber(lineNumber);
+            } else {
+                lineNumbers[index] = lineNumber;
+            }
+        }
+
+        @Override
+        public String getContent() {
+            return index < 0 ? super.getContent() : DiffLines.this.getContent(index);
+        }
+
+        @Override
+        public void setContent(String content) {
+            if (index < 0) {
+                super.setContent(content);
+            } else {
+                DiffLines.this.setContent(index, content);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.test.gitclient.format;
+
+import org.eclipse.jgit.diff.RenameDetector;
+
+/**
+ * 差异选项。默认不检测重命名、不限制文件大小与行数，结果与不传选项时相同。
+ */
+public class DiffOptions {
+
+    public static final int DEFAULT_RENAME_SCORE = 60;
+
+    public static final int DEFAULT_RENAME_LIMIT = 400;
+
+    private boolean detectRenames;
+    private int renameScore = DEFAULT_RENAME_SCORE;
+    private int renameLimit = DEFAULT_RENAME_LIMIT;
+    private int context = DiffEntryFormatter.DEFAULT_CONTEXT;
+    private int binaryFileThreshold = DiffEntryFormatter.DEFAULT_BINARY_FILE_THRESHOLD;
+    private long maxFileSize;
+    private int maxLines;
+
+    /**
+     * 检测重命名与复制。内容完全相同的文件按对象 id 配对，不读取内容，
+     * 其余的新增与删除文件按内容相似度配对，配对数超过 {@link #getRenameLimit()} 时只做前一种。
+     */
+    public boolean isDetectRenames() {
+        return detectRenames;
+    }
+
+    public void setDetectRenames(boolean detectRenames) {
+        this.detectRenames = detectRenames;
+    }
+
+    /**
+     * 判定为重命名的最低相似度，0 到 100。
+     */
+    public int getRenameScore() {
+        return renameScore;
+    }
+
+    public void setRenameScore(int renameScore) {
+        if (renameScore < 0 || renameScore > 100) {
+            throw new IllegalArgumentException("renameScore must be in [0, 100]: " + renameScore);
+        }
+        this.renameScore = renameScore;
+    }
+
+    /**
+     * 按内容相似度配对的新增与删除文件数上限，参见 {@link RenameDetector#setRenameLimit(int)}，0 表示不限制。
+     */
+    public int getRenameLimit() {
+        return renameLimit;
+    }
+
+    public void setRenameLimit(int renameLimit) {
+        this.renameLimit = renameLimit;
+    }
+
+    public int getContext() {
+        return context;
+    }
+
+    public void setContext(int context) {
+        if (context < 0) {
+            throw new IllegalArgumentException("context must not be negative: " + context);
+        }
+        this.context = context;
+    }
+
+    /**
+     * 超过该大小或内容中有 NUL 字节的文件视为二进制文件，只返回 {@link FormatEntry#isBinary()} 为 true 的文件信息。
+     */
+    public int getBinaryFileThreshold() {
+        return binaryFileThreshold;
+    }
+
+    public void setBinaryFileThreshold(int binaryFileThreshold) {
+        this.binaryFileThreshold = binaryFileThreshold;
+    }
+
+    /**
+     * 任一侧文件超过该字节数时不读取内容也不比较，返回 {@link FormatEntry#isTruncated()} 为 true、
+     * 增删行数为 -1 的文件信息。0 表示不限制。
+     */
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public void setMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+    }
+
+    /**
+     * 单个文件新增与删除的行数之和超过该值时不返回差异内容，只返回增删行数，
+     * {@link FormatEntry#isTruncated()} 为 true。0 表示不限制。
+     */
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    public void setMaxLines(int maxLines) {
+        this.maxLines = maxLines;
+    }
+
+    public DiffOptions copy() {
+        DiffOptions ret = new DiffOptions();
+        ret.detectRenames = detectRenames;
+        ret.renameScore = renameScore;
+        ret.renameLimit = renameLimit;
+        ret.context = context;
+        ret.binaryFileThreshold = binaryFileThreshold;
+        ret.maxFileSize = maxFileSize;
+        ret.maxLines = maxLines;
+        return ret;
+    }
+
+    /**
+     * 影响差异结果的选项，用作 {@link DiffCache} 键的一部分。
+     */
+    String key() {
+        return (detectRenames ? "r" + renameScore + ":" + renameLimit : "-")
+                + "/" + context + "/" + binaryFileThreshold + "/" + maxFileSize + "/" + maxLines;
+    }
+}
@@ -0,0 +1,42 @@
+package com.test.gitclient.format;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 差异统计，相当于 {@code git diff --numstat} 加上合计。
+ * 每个文件是一个不含差异内容的 {@link FormatEntry}，只有类型、路径与增删行数；
+ * 二进制文件、超过大小上限的文件以及只比较文件名时增删行数为 -1，不计入合计。
+ */
+public class DiffStat {
+
+    private final List<FormatEntry> files = new ArrayList<>();
+    private int addedLines;
+    private int deletedLines;
+
+    public void add(FormatEntry file) {
+        files.add(file);
+        if (file.getAddedLines() > 0) {
+            addedLines += file.getAddedLines();
+        }
+        if (file.getDeletedLines() > 0) {
+            deletedLines += file.getDeletedLines();
+        }
+    }
+
+    public List<FormatEntry> getFiles() {
+        return files;
+    }
+
+    public int getFileCount() {
+        return files.size();
+    }
+
+    public int getAddedLines() {
+        return addedLines;
+    }
+
+    public int getDeletedLines() {
+        return deletedLines;
+    }
+}
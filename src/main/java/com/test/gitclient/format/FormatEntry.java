@@ -1,13 +1,19 @@
 package com.test.gitclient.format;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class FormatEntry {
     private DiffEntryType type;
     private String filePath;
+    private String oldFilePath;
+    private int similarity;
+    private boolean binary;
+    private boolean truncated;
+    private boolean partial;
+    private int addedLines;
+    private int deletedLines;
 
-    private List<DiffContent> contents = new ArrayList<>();
+    private List<DiffContent> contents = new DiffLines();
 
     public DiffEntryType getType() {
         return type;
@@ -25,6 +31,84 @@ public class FormatEntry {
         this.filePath = filePath;
     }
 
+    /**
+     * 重命名或复制前的路径，其他类型与 {@link #getFilePath()} 相同或为 null。
+     */
+    public String getOldFilePath() {
+        return oldFilePath;
+    }
+
+    public void setOldFilePath(String oldFilePath) {
+        this.oldFilePath = oldFilePath;
+    }
+
+    /**
+     * 重命名或复制的内容相似度，0 到 100。
+     */
+    public int getSimilarity() {
+        return similarity;
+    }
+
+    public void setSimilarity(int similarity) {
+        this.similarity = similarity;
+    }
+
+    /**
+     * 二进制文件，没有差异内容，增删行数为 -1。
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * 文件超过 {@link DiffOptions} 的大小或行数上限，只返回文件信息与增删行数。
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * 差异内容被 {@link LimitedDiffHandler} 的行数上限截断，只包含前面的一部分行。
+     * 与 {@link #isTruncated()} 不同，内容没有被完全省略，增删行数仍是完整文件的统计。
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
+    /**
+     * 新增行数，未比较内容时为 -1。
+     */
+    public int getAddedLines() {
+        return addedLines;
+    }
+
+    public void setAddedLines(int addedLines) {
+        this.addedLines = addedLines;
+    }
+
+    /**
+     * 删除行数，未比较内容时为 -1。
+     */
+    public int getDeletedLines() {
+        return deletedLines;
+    }
+
+    public void setDeletedLines(int deletedLines) {
+        this.deletedLines = deletedLines;
+    }
+
     public List<DiffContent> getContents() {
         return contents;
     }
@@ -36,4 +120,29 @@ public class FormatEntry {
     public void addContent(DiffContent content) {
         this.contents.add(content);
     }
+
+    /**
+     * 复制除差异内容以外的文件信息。
+     */
+    public void copySummary(FormatEntry from) {
+        type = from.type;
+        filePath = from.filePath;
+        oldFilePath = from.oldFilePath;
+        similarity = from.similarity;
+        binary = from.binary;
+        truncated = from.truncated;
+        partial = from.partial;
+        addedLines = from.addedLines;
+        deletedLines = from.deletedLines;
+    }
+
+    /**
+     * 以紧凑形式返回差异内容，通过 {@link #setContents(List)} 设置了其他列表时会先转换。
+     * 不使用 getter 命名，避免序列化时与 contents 重复输出。
+     */
+    public DiffLines lines() {
+        DiffLines lines = DiffLines.of(contents);
+        contents = lines;
+        return lines;
+    }
 }
@@ -0,0 +1,64 @@
+package com.test.gitclient.format;
+
+/**
+ * 限制返回的文件数与行数，达到上限后停止比较。超出行数上限的文件只返回前面的行，
+ * 并标记 {@link FormatEntry#isPartial()}，{@link #isLimited()} 表示结果是否因上限而不完整。
+ */
+public class LimitedDiffHandler implements DiffHandler {
+
+    private final DiffHandler delegate;
+    private final int maxFiles;
+    private final long maxLines;
+
+    private int files;
+    private long lines;
+    private String lastPath;
+    private boolean limited;
+
+    public LimitedDiffHandler(DiffHandler delegate, int maxFiles, long maxLines) {
+        this.delegate = delegate;
+        this.maxFiles = maxFiles;
+        this.maxLines = maxLines;
+    }
+
+    @Override
+    public boolean handle(FormatEntry entry) {
+        // 按区块返回时同一文件会连续出现多次，只在路径变化时计数
+        boolean newFile = files == 0 || !entry.getFilePath().equals(lastPath);
+        if ((newFile && files >= maxFiles) || lines >= maxLines) {
+            limited = true;
+            return false;
+        }
+        if (newFile) {
+            files++;
+            lastPath = entry.getFilePath();
+        }
+
+        DiffLines contents = entry.lines();
+        long remaining = maxLines - lines;
+        if (contents.size() > remaining) {
+            contents.truncate((int) remaining);
+            entry.setPartial(true);
+            limited = true;
+        }
+        lines += contents.size();
+
+        // 行数恰好用完时不中止，由下一个条目到达时的检查决定，避免最后一个条目被误判为超限
+        return delegate.handle(entry);
+    }
+
+    /**
+     * @return 是否有文件被截断或因达到上限而没有返回
+     */
+    public boolean isLimited() {
+        return limited;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public long getLines() {
+        return lines;
+    }
+}
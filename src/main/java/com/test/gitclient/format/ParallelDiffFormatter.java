@@ -0,0 +1,157 @@
+package com.test.gitclient.format;
+
+import org.eclipse.jgit.diff.ContentSource;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 将差异文件分批交给线程池并行比较，每个批次使用独立的 {@link DiffEntryFormatter} 与对象读取器，
+ * 结果顺序与顺序比较一致。文件数少于阈值时直接在当前线程顺序比较。
+ * 只能比较对象库中的树，工作区差异请使用 {@link DiffEntryFormatter}。
+ */
+public class ParallelDiffFormatter {
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 64;
+
+    // 每个线程分到的批次数，批次过大时个别大文件会拖慢整体
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final Repository repository;
+    private final Executor executor;
+    private int parallelism;
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private DiffCache diffCache;
+    private DiffOptions options;
+
+    public ParallelDiffFormatter(Repository repository) {
+        this(repository, ForkJoinPool.commonPool());
+    }
+
+    public ParallelDiffFormatter(Repository repository, Executor executor) {
+        this.repository = repository;
+        this.executor = executor;
+        this.parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 文件数小于该值时顺序比较，设置为 0 则总是并行。
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setDiffCache(DiffCache diffCache) {
+        this.diffCache = diffCache;
+    }
+
+    public void setOptions(DiffOptions options) {
+        this.options = options;
+    }
+
+    public List<FormatEntry> format(List<DiffEntry> entries) throws IOException {
+        return map(entries, (formatter, source, entry) -> formatter.format(entry, source));
+    }
+
+    /**
+     * 并行统计增删行数，参见 {@link DiffEntryFormatter#stat(List, ContentSource.Pair, boolean)}。
+     * countLines 为 false 时不读取文件内容，直接在当前线程完成。
+     */
+    public DiffStat stat(List<DiffEntry> entries, boolean countLines) throws IOException {
+        if (!countLines) {
+            try (DiffEntryFormatter formatter = newFormatter()) {
+                return formatter.stat(entries, newContentSource(formatter), false);
+            }
+        }
+        DiffStat ret = new DiffStat();
+        for (FormatEntry file : map(entries, (formatter, source, entry) -> formatter.stat(entry, source))) {
+            ret.add(file);
+        }
+        return ret;
+    }
+
+    private List<FormatEntry> map(List<DiffEntry> entries, EntryTask task) throws IOException {
+        if (entries.size() < parallelThreshold || parallelism == 1) {
+            try (DiffEntryFormatter formatter = newFormatter()) {
+                ContentSource.Pair source = newContentSource(formatter);
+                List<FormatEntry> ret = new ArrayList<>(entries.size());
+                for (DiffEntry entry : entries) {
+                    ret.add(task.apply(formatter, source, entry));
+                }
+                return ret;
+            }
+        }
+
+        FormatEntry[] results = new FormatEntry[entries.size()];
+        int batchSize = Math.max(1, entries.size() / (parallelism * BATCHES_PER_THREAD));
+        AtomicBoolean failed = new AtomicBoolean();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            int start = from;
+            int end = Math.min(entries.size(), from + batchSize);
+            futures.add(CompletableFuture.runAsync(() -> formatBatch(entries, start, end, results, failed, task), executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw e;
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    private void formatBatch(List<DiffEntry> entries, int start, int end, FormatEntry[] results,
+                             AtomicBoolean failed, EntryTask task) {
+        try (DiffEntryFormatter formatter = newFormatter()) {
+            ContentSource.Pair source = newContentSource(formatter);
+            for (int i = start; i < end && !failed.get(); i++) {
+                results[i] = task.apply(formatter, source, entries.get(i));
+            }
+        } catch (IOException e) {
+            failed.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    private DiffEntryFormatter newFormatter() {
+        DiffEntryFormatter formatter = new DiffEntryFormatter(repository);
+        formatter.setDiffCache(diffCache);
+        formatter.setOptions(options);
+        return formatter;
+    }
+
+    private interface EntryTask {
+        FormatEntry apply(DiffEntryFormatter formatter, ContentSource.Pair source, DiffEntry entry) throws IOException;
+    }
+
+    private static ContentSource.Pair newContentSource(DiffEntryFormatter formatter) {
+        ContentSource source = formatter.newObjectSource();
+        return new ContentSource.Pair(source, source);
+    }
+}
@@ -0,0 +1,24 @@
+package com.test.gitclient.graph;
+
+public class AheadBehind {
+    private final int ahead;
+    private final int behind;
+
+    public AheadBehind(int ahead, int behind) {
+        this.ahead = ahead;
+        this.behind = behind;
+    }
+
+    public int getAhead() {
+        return ahead;
+    }
+
+    public int getBehind() {
+        return behind;
+    }
+
+    @Override
+    public String toString() {
+        return "ahead " + ahead + ", behind " + behind;
+    }
+}
@@ -0,0 +1,419 @@
+package com.test.gitclient.graph;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 提交图的不可变快照，由若干层组成，提交以全局位置（int）表示。
+ * 查询只读取映射文件中的父提交与世代号，不解析提交对象。
+ * <p>
+ * 世代号：没有父提交时为 1，否则为所有父提交世代号的最大值加 1。
+ * 祖先的世代号一定小于后代，遍历时按世代号从大到小处理即可保证处理到某个提交时它的所有后代都已处理。
+ */
+public class CommitGraph {
+
+    static final CommitGraph EMPTY = new CommitGraph(Collections.emptyList());
+
+    // 查询时每个位置的状态，低 4 位为标记，高 4 位为该位置在队列中的副本数
+    private static final int QUEUED_ONE = 0x10;
+    private static final int QUEUED_MASK = 0x70;
+
+    // 多组 ahead/behind 位图中每组的第一位（local）
+    private static final long EVEN_BITS = 0x5555555555555555L;
+
+    private static final Comparator<Long> HIGHEST_GENERATION_FIRST = Comparator.reverseOrder();
+
+    private final List<GraphLayer> layers;
+    private final int size;
+
+    // 每个位置可达的提交（包括自身）中最新的提交时间，首次使用时计算
+    private volatile int[] newestReachableTimes;
+
+    CommitGraph(List<GraphLayer> layers) {
+        this.layers = layers;
+        int size = 0;
+        for (GraphLayer layer : layers) {
+            size += layer.getCount();
+        }
+        this.size = size;
+    }
+
+    List<GraphLayer> getLayers() {
+        return layers;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(AnyObjectId id) {
+        return position(id) >= 0;
+    }
+
+    /**
+     * @return 全局位置，不在图中时返回 -1
+     */
+    public int position(AnyObjectId id) {
+        for (GraphLayer layer : layers) {
+            int local = layer.find(id);
+            if (local >= 0) {
+                return layer.getBase() + local;
+            }
+        }
+        return -1;
+    }
+
+    public ObjectId id(int position) {
+        GraphLayer layer = layer(position);
+        return layer.id(position - layer.getBase());
+    }
+
+    public int generation(int position) {
+        GraphLayer layer = layer(position);
+        return layer.generation(position - layer.getBase());
+    }
+
+    /**
+     * @return 提交时间，秒
+     */
+    public int commitTime(int position) {
+        GraphLayer layer = layer(position);
+        return layer.commitTime(position - layer.getBase());
+    }
+
+    public int[] parents(int position) {
+        GraphLayer layer = layer(position);
+        return layer.parents(position - layer.getBase());
+    }
+
+    /**
+     * 从该提交可达的所有提交（包括自身）中最新的提交时间，秒。
+     * 提交时间不一定沿祖先方向递减，按时间下限剪枝时应该使用这个值而不是提交自身的时间。
+     * 首次调用时按世代号从小到大计算整个图，之后直接查表。
+     */
+    public int newestReachableTime(int position) {
+        int[] times = newestReachableTimes;
+        if (times == null) {
+            times = computeNewestReachableTimes();
+            newestReachableTimes = times;
+        }
+        return times[position];
+    }
+
+    /**
+     * ancestor 是否可以从 descendant 沿父提交到达，同一提交视为自身的祖先。
+     */
+    public boolean isAncestor(int ancestor, int descendant) {
+        if (ancestor == descendant) {
+            return true;
+        }
+        int minGeneration = generation(ancestor);
+        if (minGeneration >= generation(descendant)) {
+            return false;
+        }
+
+        byte[] seen = new byte[size];
+        List<Integer> stack = new ArrayList<>();
+        stack.add(descendant);
+        seen[descendant] = 1;
+        while (!stack.isEmpty()) {
+            int position = stack.remove(stack.size() - 1);
+            for (int parent : parents(position)) {
+                if (parent == ancestor) {
+                    return true;
+                }
+                // 世代号不大于 ancestor 的提交不可能是 ancestor 的后代
+                if (seen[parent] == 0 && generation(parent) > minGeneration) {
+                    seen[parent] = 1;
+                    stack.add(parent);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 计算所有最佳公共祖先，按世代号从大到小排列。
+     */
+    public List<Integer> mergeBases(int a, int b) {
+        if (a == b) {
+            return Collections.singletonList(a);
+        }
+        final int parent1 = 1;
+        final int parent2 = 2;
+        final int stale = 4;
+        final int result = 8;
+
+        byte[] state = new byte[size];
+        PriorityQueue<Long> queue = new PriorityQueue<>(HIGHEST_GENERATION_FIRST);
+        int[] nonStale = new int[1];
+        state[a] |= parent1;
+        enqueue(queue, state, a, stale, nonStale);
+        state[b] |= parent2;
+        enqueue(queue, state, b, stale, nonStale);
+
+        List<Integer> candidates = new ArrayList<>();
+        while (nonStale[0] > 0) {
+            int position = dequeue(queue, state, stale, nonStale);
+            int flags = state[position] & (parent1 | parent2 | stale);
+            if ((flags & (parent1 | parent2)) == (parent1 | parent2) && (flags & stale) == 0) {
+                if ((state[position] & result) == 0) {
+                    state[position] |= result;
+                    candidates.add(position);
+                }
+                markStale(state, position, stale, nonStale);
+                flags |= stale;
+            }
+            for (int parent : parents(position)) {
+                if ((state[parent] & flags) == flags) {
+                    continue;
+                }
+                if ((flags & stale) != 0) {
+                    markStale(state, parent, stale, nonStale);
+                }
+                state[parent] |= flags & (parent1 | parent2);
+                enqueue(queue, state, parent, stale, nonStale);
+            }
+        }
+        return removeRedundant(candidates);
+    }
+
+    /**
+     * 统计 a 可达而 b 不可达的提交数（ahead）与 b 可达而 a 不可达的提交数（behind）。
+     */
+    public AheadBehind aheadBehind(int a, int b) {
+        if (a == b) {
+            return new AheadBehind(0, 0);
+        }
+        final int fromA = 1;
+        final int fromB = 2;
+        final int common = fromA | fromB;
+        final int done = 4;
+
+        byte[] state = new byte[size];
+        PriorityQueue<Long> queue = new PriorityQueue<>(HIGHEST_GENERATION_FIRST);
+        // 队列中尚未同时被两侧到达的条目数，为 0 时剩余的提交都是公共祖先
+        int[] pending = new int[1];
+        state[a] |= fromA;
+        enqueue(queue, state, a, common, pending);
+        state[b] |= fromB;
+        enqueue(queue, state, b, common, pending);
+
+        int ahead = 0;
+        int behind = 0;
+        while (pending[0] > 0) {
+            int position = dequeue(queue, state, common, pending);
+            if ((state[position] & done) != 0) {
+                continue;
+            }
+            state[position] |= done;
+            int flags = state[position] & common;
+            if (flags == fromA) {
+                ahead++;
+            } else if (flags == fromB) {
+                behind++;
+            }
+            for (int parent : parents(position)) {
+                if ((state[parent] & flags) == flags) {
+                    continue;
+                }
+                boolean wasPending = (state[parent] & common) != common;
+                state[parent] |= flags;
+                if (wasPending && (state[parent] & common) == common) {
+                    pending[0] -= (state[parent] & QUEUED_MASK) / QUEUED_ONE;
+                }
+                enqueue(queue, state, parent, common, pending);
+            }
+        }
+        return new AheadBehind(ahead, behind);
+    }
+
+    /**
+     * 在一次遍历中同时计算多组 ahead/behind，locals[i] 与 upstreams[i] 为一组，upstreams[i] 为 -1 时该组结果为 0/0。
+     * <p>
+     * 每个提交记录一个位图，第 2i 位表示可从 locals[i] 到达，第 2i+1 位表示可从 upstreams[i] 到达。
+     * 按世代号从大到小处理，出队时位图已经确定；当队列中所有提交的每一组两位都相同时，
+     * 剩余祖先不会再影响任何一组计数，遍历结束。共享历史只遍历一次，代价不随分支数成倍增加。
+     */
+    public AheadBehind[] aheadBehind(int[] locals, int[] upstreams) {
+        int groups = locals.length;
+        int words = (groups * 2 + 63) / 64;
+        int[] ahead = new int[groups];
+        int[] behind = new int[groups];
+
+        Map<Integer, Visit> visits = new HashMap<>();
+        PriorityQueue<Long> queue = new PriorityQueue<>(HIGHEST_GENERATION_FIRST);
+        int[] unbalanced = new int[1];
+        for (int i = 0; i < groups; i++) {
+            if (upstreams[i] < 0 || locals[i] == upstreams[i]) {
+                continue;
+            }
+            mark(visits, queue, unbalanced, locals[i], words, 2 * i);
+            mark(visits, queue, unbalanced, upstreams[i], words, 2 * i + 1);
+        }
+
+        while (unbalanced[0] > 0) {
+            int position = (int) (long) queue.poll();
+            Visit visit = visits.get(position);
+            visit.queued = false;
+            if (!visit.isBalanced()) {
+                unbalanced[0]--;
+            }
+            long[] bits = visit.bits;
+            for (int w = 0; w < words; w++) {
+                long word = bits[w];
+                long differs = (word ^ (word >>> 1)) & EVEN_BITS;
+                while (differs != 0) {
+                    int bit = Long.numberOfTrailingZeros(differs);
+                    int group = (w * 64 + bit) / 2;
+                    if ((word & (1L << bit)) != 0) {
+                        ahead[group]++;
+                    } else {
+                        behind[group]++;
+                    }
+                    differs &= differs - 1;
+                }
+            }
+            for (int parent : parents(position)) {
+                merge(visits, queue, unbalanced, parent, bits);
+            }
+        }
+
+        AheadBehind[] ret = new AheadBehind[groups];
+        for (int i = 0; i < groups; i++) {
+            ret[i] = new AheadBehind(ahead[i], behind[i]);
+        }
+        return ret;
+    }
+
+    private void mark(Map<Integer, Visit> visits, PriorityQueue<Long> queue, int[] unbalanced,
+                      int position, int words, int bit) {
+        long[] bits = new long[words];
+        bits[bit / 64] |= 1L << (bit % 64);
+        merge(visits, queue, unbalanced, position, bits);
+    }
+
+    private void merge(Map<Integer, Visit> visits, PriorityQueue<Long> queue, int[] unbalanced,
+                       int position, long[] bits) {
+        Visit visit = visits.get(position);
+        if (visit == null) {
+            visit = new Visit(bits.length);
+            visits.put(position, visit);
+        }
+        boolean wasUnbalanced = visit.queued && !visit.isBalanced();
+        for (int w = 0; w < bits.length; w++) {
+            visit.bits[w] |= bits[w];
+        }
+        if (!visit.queued) {
+            visit.queued = true;
+            queue.add(((long) generation(position) << 32) | position);
+        }
+        boolean nowUnbalanced = !visit.isBalanced();
+        if (wasUnbalanced != nowUnbalanced) {
+            unbalanced[0] += nowUnbalanced ? 1 : -1;
+        }
+    }
+
+    private List<Integer> removeRedundant(List<Integer> candidates) {
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+        List<Integer> ret = new ArrayList<>();
+        for (int candidate : candidates) {
+            boolean redundant = false;
+            for (int other : candidates) {
+                if (other != candidate && isAncestor(candidate, other)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (!redundant) {
+                ret.add(candidate);
+            }
+        }
+        ret.sort((x, y) -> Integer.compare(generation(y), generation(x)));
+        return ret;
+    }
+
+    private static void markStale(byte[] state, int position, int stale, int[] nonStale) {
+        if ((state[position] & stale) == 0) {
+            state[position] |= stale;
+            nonStale[0] -= (state[position] & QUEUED_MASK) / QUEUED_ONE;
+        }
+    }
+
+    /**
+     * 入队，状态未包含 mask 全部位时计入 counter。
+     */
+    private void enqueue(PriorityQueue<Long> queue, byte[] state, int position, int mask, int[] counter) {
+        state[position] += QUEUED_ONE;
+        queue.add(((long) generation(position) << 32) | position);
+        if ((state[position] & mask) != mask) {
+            counter[0]++;
+        }
+    }
+
+    private static int dequeue(PriorityQueue<Long> queue, byte[] state, int mask, int[] counter) {
+        int position = (int) (long) queue.poll();
+        state[position] -= QUEUED_ONE;
+        if ((state[position] & mask) != mask) {
+            counter[0]--;
+        }
+        return position;
+    }
+
+    private int[] computeNewestReachableTimes() {
+        long[] order = new long[size];
+        for (int position = 0; position < size; position++) {
+            order[position] = ((long) generation(position) << 32) | position;
+        }
+        Arrays.sort(order);
+        int[] times = new int[size];
+        for (long key : order) {
+            int position = (int) key;
+            int time = commitTime(position);
+            for (int parent : parents(position)) {
+                time = Math.max(time, times[parent]);
+            }
+            times[position] = time;
+        }
+        return times;
+    }
+
+    private GraphLayer layer(int position) {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            GraphLayer layer = layers.get(i);
+            if (position >= layer.getBase()) {
+                return layer;
+            }
+        }
+        throw new IndexOutOfBoundsException("position " + position);
+    }
+
+    private static class Visit {
+        final long[] bits;
+        boolean queued;
+
+        Visit(int words) {
+            this.bits = new long[words];
+        }
+
+        boolean isBalanced() {
+            for (long word : bits) {
+                if (((word ^ (word >>> 1)) & EVEN_BITS) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
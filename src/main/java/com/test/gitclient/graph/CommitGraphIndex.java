@@ -0,0 +1,235 @@
+package com.test.gitclient.graph;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 仓库的提交图索引，保存在 .git/gitclient 目录下，用于快速回答祖先、合并基与 ahead/behind 查询。
+ * <p>
+ * 查询涉及的提交不在图中时会先从这些提交出发增量补充，只遍历新增的提交。
+ * 浅克隆边界上的提交在图中没有父提交，因此图与 .git/shallow 的内容绑定：内容变化（加深或取消浅克隆）时丢弃整个图重新建立。
+ * 提交、拉取、合并等操作之后可以调用 {@link #refreshIfPresent(Repository)} 保持图与引用同步。
+ */
+public class CommitGraphIndex {
+
+    final static Logger logger = LoggerFactory.getLogger(CommitGraphIndex.class);
+
+    static final String DIRECTORY = "gitclient";
+
+    // 建立图时 .git/shallow 的内容，不是浅克隆时不存在
+    static final String SHALLOW_FILE = "shallow";
+
+    private static final Map<File, CommitGraphIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final File directory;
+    private volatile CommitGraph graph;
+
+    // 以下两项由 this 保护
+    private byte[] shallow;
+    private FileSnapshot shallowSnapshot;
+
+    private CommitGraphIndex(File directory) throws IOException {
+        this.directory = directory;
+        this.graph = load(directory);
+        this.shallow = readShallow(new File(directory, SHALLOW_FILE));
+    }
+
+    public static CommitGraphIndex of(Repository repository) throws IOException {
+        File directory = new File(repository.getDirectory(), DIRECTORY).getCanonicalFile();
+        CommitGraphIndex index = INDEXES.get(directory);
+        if (index == null) {
+            synchronized (INDEXES) {
+                index = INDEXES.get(directory);
+                if (index == null) {
+                    index = new CommitGraphIndex(directory);
+                    INDEXES.put(directory, index);
+                }
+            }
+        }
+        index.checkShallow(repository);
+        return index;
+    }
+
+    /**
+     * 仓库已经建立过提交图时，把所有引用上的新提交加入图中；没有建立过时什么也不做。
+     */
+    public static void refreshIfPresent(Repository repository) {
+        File chain = new File(new File(repository.getDirectory(), DIRECTORY), CommitGraphWriter.CHAIN_FILE);
+        if (!chain.isFile()) {
+            return;
+        }
+        try {
+            of(repository).update(repository);
+        } catch (IOException e) {
+            logger.error("更新提交图异常: {}", e.getMessage());
+        }
+    }
+
+    public CommitGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * 把所有引用可达的提交加入图中。
+     */
+    public void update(Repository repository) throws IOException {
+        update(repository, refTips(repository));
+    }
+
+    public synchronized void update(Repository repository, Collection<? extends AnyObjectId> tips) throws IOException {
+        graph = new CommitGraphWriter(repository, directory).write(graph, tips);
+    }
+
+    public boolean isAncestor(Repository repository, AnyObjectId ancestor, AnyObjectId descendant) throws IOException {
+        CommitGraph graph = ensure(repository, ancestor, descendant);
+        return graph.isAncestor(graph.position(ancestor), graph.position(descendant));
+    }
+
+    /**
+     * @return 最佳公共祖先，没有公共祖先时返回 null
+     */
+    public ObjectId mergeBase(Repository repository, AnyObjectId a, AnyObjectId b) throws IOException {
+        List<ObjectId> bases = mergeBases(repository, a, b);
+        return bases.isEmpty() ? null : bases.get(0);
+    }
+
+    public List<ObjectId> mergeBases(Repository repository, AnyObjectId a, AnyObjectId b) throws IOException {
+        CommitGraph graph = ensure(repository, a, b);
+        List<ObjectId> ret = new ArrayList<>();
+        for (int position : graph.mergeBases(graph.position(a), graph.position(b))) {
+            ret.add(graph.id(position));
+        }
+        return ret;
+    }
+
+    public AheadBehind aheadBehind(Repository repository, AnyObjectId local, AnyObjectId upstream) throws IOException {
+        CommitGraph graph = ensure(repository, local, upstream);
+        return graph.aheadBehind(graph.position(local), graph.position(upstream));
+    }
+
+    /**
+     * 确保 ids 都在图中，返回包含它们的快照。
+     */
+    public CommitGraph ensure(Repository repository, AnyObjectId... ids) throws IOException {
+        CommitGraph current = graph;
+        List<AnyObjectId> missing = new ArrayList<>();
+        for (AnyObjectId id : ids) {
+            if (!current.contains(id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return current;
+        }
+        update(repository, missing);
+        return graph;
+    }
+
+    /**
+     * .git/shallow 与建立图时不同时删除已有的图。文件未修改时只比较时间戳与大小。
+     */
+    private synchronized void checkShallow(Repository repository) throws IOException {
+        File file = new File(repository.getDirectory(), Constants.SHALLOW);
+        if (shallowSnapshot != null && !shallowSnapshot.isModified(file)) {
+            return;
+        }
+        FileSnapshot snapshot = FileSnapshot.save(file);
+        byte[] current = readShallow(file);
+        if (!Arrays.equals(current, shallow)) {
+            if (graph.size() > 0) {
+                logger.info("浅克隆边界已变化，重新建立提交图: {}", directory);
+            }
+            reset(current);
+        }
+        shallowSnapshot = snapshot;
+    }
+
+    private void reset(byte[] current) throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().equals(CommitGraphWriter.CHAIN_FILE) || file.getName().endsWith(".dat")) {
+                    Files.deleteIfExists(file.toPath());
+                }
+            }
+        }
+        graph = CommitGraph.EMPTY;
+
+        Path record = new File(directory, SHALLOW_FILE).toPath();
+        if (current.length == 0) {
+            Files.deleteIfExists(record);
+        } else {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("cannot create " + directory);
+            }
+            File tmp = File.createTempFile("shallow", ".tmp", directory);
+            Files.write(tmp.toPath(), current);
+            Files.move(tmp.toPath(), record, StandardCopyOption.ATOMIC_MOVE);
+        }
+        shallow = current;
+    }
+
+    private static byte[] readShallow(File file) throws IOException {
+        return file.isFile() ? Files.readAllBytes(file.toPath()) : new byte[0];
+    }
+
+    static CommitGraph load(File directory) throws IOException {
+        File chain = new File(directory, CommitGraphWriter.CHAIN_FILE);
+        if (!chain.isFile()) {
+            return CommitGraph.EMPTY;
+        }
+        List<GraphLayer> layers = new ArrayList<>();
+        for (String name : Files.readAllLines(chain.toPath(), StandardCharsets.UTF_8)) {
+            if (!name.isEmpty()) {
+                layers.add(GraphLayer.open(new File(directory, name)));
+            }
+        }
+        return new CommitGraph(Collections.unmodifiableList(layers));
+    }
+
+    private static Set<ObjectId> refTips(Repository repository) throws IOException {
+        Set<ObjectId> tips = new HashSet<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (Ref ref : repository.getRefDatabase().getRefs()) {
+                ObjectId id = ref.getObjectId();
+                if (id == null) {
+                    continue;
+                }
+                try {
+                    RevObject object = walk.peel(walk.parseAny(id));
+                    if (object.getType() == Constants.OBJ_COMMIT) {
+                        tips.add(object.copy());
+                    }
+                } catch (MissingObjectException e) {
+                    logger.warn("引用指向的对象不存在: {}", ref.getName());
+                }
+            }
+        }
+        return tips;
+    }
+}
@@ -0,0 +1,266 @@
+package com.test.gitclient.graph;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 把提交图中尚不存在的提交写成新的一层，只写新增部分，不重写已有的层。
+ * 层的大小自底向上至少减半，因此层数约为提交数的对数，查询时逐层查找的代价有限。
+ */
+class CommitGraphWriter {
+
+    static final String CHAIN_FILE = "commit-graph-chain";
+
+    static final int MAX_LAYERS = 8;
+
+    private final Repository repository;
+    private final File directory;
+
+    CommitGraphWriter(Repository repository, File directory) {
+        this.repository = repository;
+        this.directory = directory;
+    }
+
+    /**
+     * @return 更新后的快照，没有新提交时返回 current
+     */
+    CommitGraph write(CommitGraph current, Collection<? extends AnyObjectId> tips) throws IOException {
+        List<Node> added = collect(current, tips);
+        if (added.isEmpty()) {
+            return current;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create " + directory);
+        }
+
+        // 与 git 的 split commit-graph 相同：新层不小于顶层的一半或层数超限时，把顶层并入新层，直到条件不再满足
+        List<GraphLayer> layers = new ArrayList<>(current.getLayers());
+        List<GraphLayer> merged = new ArrayList<>();
+        List<Node> nodes = new ArrayList<>(added);
+        while (!layers.isEmpty()) {
+            GraphLayer top = layers.get(layers.size() - 1);
+            if (nodes.size() * 2 < top.getCount() && layers.size() + 1 <= MAX_LAYERS) {
+                break;
+            }
+            layers.remove(layers.size() - 1);
+            merged.add(top);
+            for (int local = 0; local < top.getCount(); local++) {
+                nodes.add(toNode(current, top.getBase() + local));
+            }
+        }
+
+        CommitGraph lower = new CommitGraph(layers);
+        List<String> names = new ArrayList<>();
+        for (GraphLayer layer : layers) {
+            names.add(layer.getName());
+        }
+        names.add(writeLayer(nodes, lower.size(), lower));
+        writeChain(names);
+
+        CommitGraph updated = CommitGraphIndex.load(directory);
+        for (GraphLayer layer : merged) {
+            // 其他线程持有的旧快照仍然映射着这些文件，Linux 下删除不影响已有映射
+            Files.deleteIfExists(new File(directory, layer.getName()).toPath());
+        }
+        return updated;
+    }
+
+    /**
+     * 从 tips 出发找出图中没有的提交，并计算世代号。
+     */
+    private List<Node> collect(CommitGraph current, Collection<? extends AnyObjectId> tips) throws IOException {
+        ObjectIdOwnerMap<Node> nodes = new ObjectIdOwnerMap<>();
+        List<Node> added = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            Deque<Node> pending = new ArrayDeque<>();
+            for (AnyObjectId tip : tips) {
+                Node node = visit(walk, current, nodes, tip);
+                if (node != null) {
+                    pending.push(node);
+                }
+            }
+
+            // 后序遍历：父提交的世代号都确定后再计算自身
+            while (!pending.isEmpty()) {
+                Node node = pending.peek();
+                if (node.generation > 0) {
+                    pending.pop();
+                    continue;
+                }
+                boolean ready = true;
+                int generation = 0;
+                for (ObjectId parentId : node.parents) {
+                    int position = current.position(parentId);
+                    if (position >= 0) {
+                        generation = Math.max(generation, current.generation(position));
+                        continue;
+                    }
+                    Node parent = nodes.get(parentId);
+                    if (parent == null) {
+                        parent = visit(walk, current, nodes, parentId);
+                    }
+                    if (parent.generation == 0) {
+                        ready = false;
+                        pending.push(parent);
+                    } else {
+                        generation = Math.max(generation, parent.generation);
+                    }
+                }
+                if (ready) {
+                    node.generation = generation + 1;
+                    added.add(node);
+                    pending.pop();
+                }
+            }
+        }
+        return added;
+    }
+
+    private Node visit(RevWalk walk, CommitGraph current, ObjectIdOwnerMap<Node> nodes, AnyObjectId id)
+            throws IOException {
+        if (current.contains(id) || nodes.get(id) != null) {
+            return null;
+        }
+        RevCommit commit;
+        try {
+            commit = walk.parseCommit(id);
+        } catch (MissingObjectException e) {
+            // 浅克隆边界上的提交由 RevWalk 按 .git/shallow 报告为没有父提交，图随该文件变化失效（见 CommitGraphIndex）；
+            // 这里是没有记录在 .git/shallow 中却缺失的对象，同样视为没有父提交
+            commit = null;
+        }
+        ObjectId[] parents = new ObjectId[commit == null ? 0 : commit.getParentCount()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = commit.getParent(i).copy();
+        }
+        Node node = new Node(id, parents, commit == null ? 0 : commit.getCommitTime());
+        nodes.add(node);
+        return node;
+    }
+
+    private Node toNode(CommitGraph graph, int position) {
+        int[] parentPositions = graph.parents(position);
+        ObjectId[] parents = new ObjectId[parentPositions.length];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = graph.id(parentPositions[i]);
+        }
+        Node node = new Node(graph.id(position), parents, graph.commitTime(position));
+        node.generation = graph.generation(position);
+        return node;
+    }
+
+    /**
+     * @param lower 新层之下的快照，父提交不在 nodes 中时从这里查找位置
+     */
+    private String writeLayer(List<Node> nodes, int base, CommitGraph lower) throws IOException {
+        nodes.sort((a, b) -> a.compareTo(b));
+        ObjectIdOwnerMap<Node> index = new ObjectIdOwnerMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            node.position = base + i;
+            index.add(node);
+        }
+
+        List<Integer> extras = new ArrayList<>();
+        int[][] edges = new int[nodes.size()][];
+        for (int i = 0; i < nodes.size(); i++) {
+            ObjectId[] parents = nodes.get(i).parents;
+            int[] positions = new int[parents.length];
+            for (int p = 0; p < parents.length; p++) {
+                Node parent = index.get(parents[p]);
+                positions[p] = parent != null ? parent.position : lower.position(parents[p]);
+            }
+            edges[i] = positions;
+        }
+
+        File tmp = File.createTempFile("graph", ".tmp", directory);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            int extraCount = 0;
+            for (int[] positions : edges) {
+                if (positions.length > 2) {
+                    extraCount += positions.length - 1;
+                }
+            }
+            out.writeInt(GraphLayer.MAGIC);
+            out.writeInt(GraphLayer.VERSION);
+            out.writeInt(nodes.size());
+            out.writeInt(base);
+            out.writeInt(extraCount);
+
+            byte[] raw = new byte[20];
+            for (Node node : nodes) {
+                node.copyRawTo(raw, 0);
+                out.write(raw);
+            }
+            for (int i = 0; i < nodes.size(); i++) {
+                int[] positions = edges[i];
+                out.writeInt(positions.length > 0 ? positions[0] : GraphLayer.NO_PARENT);
+                if (positions.length <= 2) {
+                    out.writeInt(positions.length == 2 ? positions[1] : GraphLayer.NO_PARENT);
+                } else {
+                    out.writeInt(GraphLayer.EXTRA_EDGE | extras.size());
+                    for (int p = 1; p < positions.length; p++) {
+                        extras.add(p == positions.length - 1 ? positions[p] | GraphLayer.LAST_EDGE : positions[p]);
+                    }
+                }
+                out.writeInt(nodes.get(i).commitTime);
+                out.writeInt(nodes.get(i).generation);
+            }
+            for (int extra : extras) {
+                out.writeInt(extra);
+            }
+        }
+
+        String name = "graph-" + System.currentTimeMillis() + "-" + Long.toHexString(System.nanoTime()) + ".dat";
+        Files.move(tmp.toPath(), new File(directory, name).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return name;
+    }
+
+    private void writeChain(List<String> names) throws IOException {
+        File tmp = File.createTempFile("chain", ".tmp", directory);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            for (String name : names) {
+                writer.write(name);
+                writer.write('\n');
+            }
+        }
+        Files.move(tmp.toPath(), new File(directory, CHAIN_FILE).toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Node extends ObjectIdOwnerMap.Entry {
+        private static final long serialVersionUID = 1L;
+
+        final ObjectId[] parents;
+        final int commitTime;
+        int generation;
+        int position;
+
+        Node(AnyObjectId id, ObjectId[] parents, int commitTime) {
+            super(id);
+            this.parents = parents;
+            this.commitTime = commitTime;
+        }
+    }
+}
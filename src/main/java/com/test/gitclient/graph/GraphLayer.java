@@ -0,0 +1,145 @@
+package com.test.gitclient.graph;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 提交图的一层，对应一个只读的内存映射文件。
+ * <pre>
+ * 文件头   magic, version, count, base, extraCount      各 4 字节
+ * id 表    count * 20 字节，按 id 排序
+ * 记录表   count * 16 字节：第一个父提交、第二个父提交、提交时间（秒）、世代号
+ * 额外父表 extraCount * 4 字节，三个及以上父提交时第二个父提交字段指向这里
+ * </pre>
+ * 父提交字段保存的是全局位置（所在层的 base 加层内序号），没有父提交时为 -1。
+ */
+final class GraphLayer {
+
+    static final int MAGIC = 0x4743474c; // "GCGL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    static final int RECORD_SIZE = 16;
+
+    static final int NO_PARENT = -1;
+    // 第二个父提交字段最高位为 1 时，低位是额外父表的下标
+    static final int EXTRA_EDGE = 0x80000000;
+    // 额外父表中最后一个父提交的最高位为 1
+    static final int LAST_EDGE = 0x80000000;
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int base;
+    private final int recordsOffset;
+    private final int extrasOffset;
+
+    private GraphLayer(String name, ByteBuffer buffer) throws IOException {
+        this.name = name;
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("invalid commit graph layer: " + name);
+        }
+        this.count = buffer.getInt(8);
+        this.base = buffer.getInt(12);
+        this.recordsOffset = HEADER_SIZE + count * Constants.OBJECT_ID_LENGTH;
+        this.extrasOffset = recordsOffset + count * RECORD_SIZE;
+    }
+
+    static GraphLayer open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // 映射在通道关闭后依然有效
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GraphLayer(file.getName(), buffer);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    int getBase() {
+        return base;
+    }
+
+    /**
+     * @return 层内序号，不存在时返回 -1
+     */
+    int find(AnyObjectId id) {
+        byte[] tmp = new byte[Constants.OBJECT_ID_LENGTH];
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            readId(mid, tmp);
+            int cmp = id.compareTo(tmp, 0);
+            if (cmp == 0) {
+                return mid;
+            } else if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return -1;
+    }
+
+    ObjectId id(int local) {
+        byte[] tmp = new byte[Constants.OBJECT_ID_LENGTH];
+        readId(local, tmp);
+        return ObjectId.fromRaw(tmp);
+    }
+
+    int commitTime(int local) {
+        return buffer.getInt(recordsOffset + local * RECORD_SIZE + 8);
+    }
+
+    int generation(int local) {
+        return buffer.getInt(recordsOffset + local * RECORD_SIZE + 12);
+    }
+
+    int[] parents(int local) {
+        int record = recordsOffset + local * RECORD_SIZE;
+        int first = buffer.getInt(record);
+        if (first == NO_PARENT) {
+            return new int[0];
+        }
+        int second = buffer.getInt(record + 4);
+        if (second == NO_PARENT) {
+            return new int[]{first};
+        }
+        if ((second & EXTRA_EDGE) == 0) {
+            return new int[]{first, second};
+        }
+
+        int extra = second & ~EXTRA_EDGE;
+        int size = 1;
+        while ((buffer.getInt(extrasOffset + (extra + size - 1) * 4) & LAST_EDGE) == 0) {
+            size++;
+        }
+        int[] parents = new int[size + 1];
+        parents[0] = first;
+        for (int i = 0; i < size; i++) {
+            parents[i + 1] = buffer.getInt(extrasOffset + (extra + i) * 4) & ~LAST_EDGE;
+        }
+        return parents;
+    }
+
+    private void readId(int local, byte[] dst) {
+        int offset = HEADER_SIZE + local * Constants.OBJECT_ID_LENGTH;
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = buffer.get(offset + i);
+        }
+    }
+}
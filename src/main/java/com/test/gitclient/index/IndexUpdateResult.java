@@ -0,0 +1,84 @@
+package com.test.gitclient.index;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * 批量更新索引的结果。
+ */
+public class IndexUpdateResult {
+    private int added;
+    private int modified;
+    private int removed;
+    private int unchanged;
+    private int skipped;
+    private ObjectId commitId;
+
+    /**
+     * 原来不在索引中的文件数。
+     */
+    public int getAdded() {
+        return added;
+    }
+
+    /**
+     * 内容或模式有变化的文件数。
+     */
+    public int getModified() {
+        return modified;
+    }
+
+    /**
+     * 工作区中已删除、从索引中移除的文件数，目录按其中的文件计数。
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * 无法加入索引的路径数，例如目录。
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * 同时提交时为新提交的 id，否则为 null。
+     */
+    public ObjectId getCommitId() {
+        return commitId;
+    }
+
+    void added() {
+        added++;
+    }
+
+    void modified() {
+        modified++;
+    }
+
+    void removed() {
+        removed++;
+    }
+
+    void unchanged() {
+        unchanged++;
+    }
+
+    void skipped() {
+        skipped++;
+    }
+
+    void setCommitId(ObjectId commitId) {
+        this.commitId = commitId;
+    }
+
+    @Override
+    public String toString() {
+        return "added " + added + ", modified " + modified + ", removed " + removed
+                + ", unchanged " + unchanged + ", skipped " + skipped;
+    }
+}
@@ -0,0 +1,476 @@
+package com.test.gitclient.index;
+
+import org.eclipse.jgit.api.errors.ConcurrentRefUpdateException;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.WrongRepositoryStateException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.errors.IndexWriteException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackInserter;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectDatabase;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryState;
+import org.eclipse.jgit.storage.pack.PackConfig;
+import org.eclipse.jgit.treewalk.WorkingTreeOptions;
+import org.eclipse.jgit.util.io.AutoLFInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按给定的路径列表批量更新索引：并行读取文件并计算对象 id，新对象通过同一个 {@link ObjectInserter} 写入，
+ * 最后用 {@link DirCacheBuilder} 一次写出索引；提交时直接用内存中的新索引生成树，不再重新读取索引。
+ * <p>
+ * 效果与 {@code git add -A <paths>} 相同：工作区中存在的文件加入索引，已删除的文件或目录从索引中移除。
+ * 与索引中大小、修改时间都相同的文件不重新读取。存在的目录不展开，也不检查忽略规则；
+ * 换行符只按 core.autocrlf 转换，不执行 .gitattributes 中的过滤器。
+ * 文件数达到 {@link #DEFAULT_PACK_THRESHOLD} 时新对象写入一个包文件，而不是大量松散对象。
+ */
+public class IndexUpdater {
+
+    final static Logger logger = LoggerFactory.getLogger(IndexUpdater.class);
+
+    public static final int DEFAULT_PACK_THRESHOLD = 1000;
+
+    private static final int MIN_BATCH_SIZE = 64;
+
+    // 每个线程分到的批次数，批次过大时个别大文件会拖慢整体
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private static final int REMOVE = 0;
+    private static final int SKIP = 1;
+    private static final int UNCHANGED = 2;
+    private static final int ADD = 3;
+    private static final int MODIFY = 4;
+    // 内容未变，只更新索引中的文件大小与修改时间
+    private static final int REFRESH = 5;
+
+    private final Repository repository;
+    private final Executor executor;
+    private int parallelism;
+    private int packThreshold = DEFAULT_PACK_THRESHOLD;
+
+    public IndexUpdater(Repository repository) {
+        this(repository, ForkJoinPool.commonPool());
+    }
+
+    public IndexUpdater(Repository repository, Executor executor) {
+        this.repository = repository;
+        this.executor = executor;
+        this.parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 路径数达到该值时新对象写入包文件，设置为 0 则总是写入包文件。
+     */
+    public void setPackThreshold(int packThreshold) {
+        this.packThreshold = packThreshold;
+    }
+
+    /**
+     * @param paths 相对工作区的路径，也可以是工作区中的绝对路径
+     */
+    public IndexUpdateResult update(Iterable<String> paths) throws IOException {
+        return update(paths, null, null, null);
+    }
+
+    /**
+     * 更新索引并以新索引提交到 HEAD，作者与提交者取自仓库配置。不运行钩子，合并或变基过程中不能使用。
+     */
+    public IndexUpdateResult commit(Iterable<String> paths, String message) throws IOException, GitAPIException {
+        RepositoryState state = repository.getRepositoryState();
+        if (state != RepositoryState.SAFE) {
+            throw new WrongRepositoryStateException("cannot commit in repository state " + state);
+        }
+        PersonIdent ident = new PersonIdent(repository);
+        ObjectId parent = repository.resolve(Constants.HEAD);
+        IndexUpdateResult result = update(paths, message, ident, parent);
+        // 期望的原值保证期间 HEAD 没有被其他提交修改
+        updateHead(result.getCommitId(), parent, message, ident);
+        return result;
+    }
+
+    private IndexUpdateResult update(Iterable<String> paths, String message, PersonIdent ident, ObjectId parent)
+            throws IOException {
+        File workTree = repository.getWorkTree();
+        List<String> sorted = normalize(workTree, paths);
+        IndexUpdateResult result = new IndexUpdateResult();
+
+        DirCache dirCache = repository.lockDirCache();
+        try (ObjectInserter inserter = newInserter(sorted.size())) {
+            File indexFile = repository.getIndexFile();
+            Instant indexTime = indexFile.isFile()
+                    ? Files.getLastModifiedTime(indexFile.toPath()).toInstant()
+                    : Instant.MIN;
+            Hasher hasher = new Hasher(workTree.toPath(), dirCache, inserter, indexTime);
+            Staged[] staged = hasher.hashAll(sorted);
+
+            DirCacheBuilder builder = dirCache.builder();
+            merge(dirCache, builder, sorted, staged, result);
+            builder.finish();
+
+            if (message != null) {
+                CommitBuilder commit = new CommitBuilder();
+                commit.setTreeId(dirCache.writeTree(inserter));
+                if (parent != null) {
+                    commit.setParentId(parent);
+                }
+                commit.setAuthor(ident);
+                commit.setCommitter(ident);
+                commit.setMessage(message);
+                result.setCommitId(inserter.insert(commit));
+            }
+            // 索引与 HEAD 引用的对象必须先写入
+            inserter.flush();
+            dirCache.write();
+            if (!dirCache.commit()) {
+                throw new IndexWriteException();
+            }
+        } finally {
+            dirCache.unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 保留未涉及的条目，替换有变化的条目，移除已删除的文件以及已删除目录下的所有文件。
+     * 同一路径的冲突条目全部移除，只保留新加入的条目。
+     */
+    private static void merge(DirCache dirCache, DirCacheBuilder builder, List<String> paths, Staged[] staged,
+                              IndexUpdateResult result) {
+        Map<String, Staged> byPath = new HashMap<>(paths.size() * 2);
+        Set<String> removed = new HashSet<>();
+        for (int i = 0; i < staged.length; i++) {
+            byPath.put(paths.get(i), staged[i]);
+            if (staged[i].kind == REMOVE) {
+                removed.add(paths.get(i));
+            }
+        }
+
+        String lastRemoved = null;
+        for (int i = 0; i < dirCache.getEntryCount(); i++) {
+            DirCacheEntry entry = dirCache.getEntry(i);
+            String path = entry.getPathString();
+            Staged update = byPath.get(path);
+            if (update == null && !removed.isEmpty() && underRemoved(path, removed)) {
+                update = Staged.REMOVED;
+            }
+            if (update == null || update.kind == SKIP || update.kind == UNCHANGED) {
+                builder.keep(i, 1);
+            } else if (update.kind == REMOVE && !path.equals(lastRemoved)) {
+                result.removed();
+                lastRemoved = path;
+            }
+        }
+
+        for (Staged update : staged) {
+            switch (update.kind) {
+                case ADD:
+                    result.added();
+                    builder.add(update.entry);
+                    break;
+                case MODIFY:
+                    result.modified();
+                    builder.add(update.entry);
+                    break;
+                case REFRESH:
+                    result.unchanged();
+                    builder.add(update.entry);
+                    break;
+                case UNCHANGED:
+                    result.unchanged();
+                    break;
+                case SKIP:
+                    result.skipped();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static boolean underRemoved(String path, Set<String> removed) {
+        for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+            if (removed.contains(path.substring(0, slash))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updateHead(ObjectId commitId, ObjectId parent, String message, PersonIdent ident)
+            throws IOException, ConcurrentRefUpdateException {
+        RefUpdate update = repository.updateRef(Constants.HEAD);
+        update.setNewObjectId(commitId);
+        update.setExpectedOldObjectId(parent == null ? ObjectId.zeroId() : parent);
+        update.setRefLogIdent(ident);
+        int newline = message.indexOf('\n');
+        String shortMessage = newline < 0 ? message : message.substring(0, newline);
+        update.setRefLogMessage((parent == null ? "commit (initial): " : "commit: ") + shortMessage, false);
+        RefUpdate.Result result = update.forceUpdate();
+        switch (result) {
+            case NEW:
+            case FORCED:
+            case FAST_FORWARD:
+                break;
+            default:
+                throw new ConcurrentRefUpdateException("update HEAD failed: " + result, update.getRef(), result);
+        }
+    }
+
+    private ObjectInserter newInserter(int paths) {
+        ObjectDatabase db = repository.getObjectDatabase();
+        if (paths >= packThreshold && db instanceof ObjectDirectory) {
+            PackInserter inserter = ((ObjectDirectory) db).newPackInserter();
+            inserter.setCompressionLevel(repository.getConfig().get(CoreConfig.KEY).getCompression());
+            return inserter;
+        }
+        return db.newInserter();
+    }
+
+    /**
+     * 转换为相对工作区、以 / 分隔的路径，去重并排序。
+     */
+    static List<String> normalize(File workTree, Iterable<String> paths) {
+        Path root = workTree.toPath().toAbsolutePath().normalize();
+        TreeSet<String> ret = new TreeSet<>();
+        for (String path : paths) {
+            Path file = root.resolve(path).normalize();
+            if (!file.startsWith(root) || file.equals(root)) {
+                throw new IllegalArgumentException("path is outside the work tree: " + path);
+            }
+            String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+            if (relative.equals(Constants.DOT_GIT) || relative.startsWith(Constants.DOT_GIT + "/")) {
+                throw new IllegalArgumentException("path is inside the git directory: " + path);
+            }
+            ret.add(relative);
+        }
+        return new ArrayList<>(ret);
+    }
+
+    private static class Staged {
+        static final Staged REMOVED = new Staged(REMOVE, null);
+        static final Staged SKIPPED = new Staged(SKIP, null);
+
+        final int kind;
+        final DirCacheEntry entry;
+
+        Staged(int kind, DirCacheEntry entry) {
+            this.kind = kind;
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * 读取文件并计算对象 id，可以在多个线程中同时使用，写入对象时对共享的 inserter 加锁。
+     */
+    private class Hasher {
+        private final Path workTree;
+        private final DirCache dirCache;
+        private final ObjectInserter inserter;
+        private final Instant indexTime;
+        private final boolean fileMode;
+        private final boolean autoCrlf;
+        // 本次已写入的对象，inserter 刷新前其他读取器看不到
+        private final Set<ObjectId> inserted = new HashSet<>();
+
+        Hasher(Path workTree, DirCache dirCache, ObjectInserter inserter, Instant indexTime) {
+            this.workTree = workTree;
+            this.dirCache = dirCache;
+            this.inserter = inserter;
+            this.indexTime = indexTime;
+            WorkingTreeOptions options = repository.getConfig().get(WorkingTreeOptions.KEY);
+            this.fileMode = options.isFileMode() && repository.getFS().supportsExecute();
+            this.autoCrlf = options.getAutoCRLF() != CoreConfig.AutoCRLF.FALSE;
+        }
+
+        Staged[] hashAll(List<String> paths) throws IOException {
+            Staged[] ret = new Staged[paths.size()];
+            if (paths.size() < MIN_BATCH_SIZE * 2 || parallelism == 1) {
+                hashBatch(paths, 0, paths.size(), ret, new AtomicBoolean());
+                return ret;
+            }
+
+            int batchSize = Math.max(MIN_BATCH_SIZE, paths.size() / (parallelism * BATCHES_PER_THREAD));
+            AtomicBoolean failed = new AtomicBoolean();
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int from = 0; from < paths.size(); from += batchSize) {
+                int start = from;
+                int end = Math.min(paths.size(), from + batchSize);
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        hashBatch(paths, start, end, ret, failed);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor));
+            }
+
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw e;
+            }
+            return ret;
+        }
+
+        private void hashBatch(List<String> paths, int start, int end, Staged[] results, AtomicBoolean failed)
+                throws IOException {
+            try (ObjectReader reader = repository.newObjectReader()) {
+                ObjectInserter.Formatter formatter = new ObjectInserter.Formatter();
+                for (int i = start; i < end && !failed.get(); i++) {
+                    results[i] = hash(paths.get(i), reader, formatter);
+                }
+            } catch (IOException | RuntimeException e) {
+                failed.set(true);
+                throw e;
+            }
+        }
+
+        private Staged hash(String path, ObjectReader reader, ObjectInserter.Formatter formatter) throws IOException {
+            Path file = workTree.resolve(path);
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (NoSuchFileException e) {
+                return Staged.REMOVED;
+            }
+            if (attributes.isDirectory()) {
+                logger.warn("跳过目录: {}", path);
+                return Staged.SKIPPED;
+            }
+
+            FileMode mode = attributes.isSymbolicLink() ? FileMode.SYMLINK
+                    : fileMode && Files.isExecutable(file) ? FileMode.EXECUTABLE_FILE : FileMode.REGULAR_FILE;
+            Instant modified = attributes.lastModifiedTime().toInstant();
+            DirCacheEntry current = dirCache.getEntry(path);
+            if (current != null && current.getStage() == DirCacheEntry.STAGE_0 && !current.isSmudged()
+                    && current.getFileMode() == mode && current.getLength() == attributes.size()
+                    && current.getLastModifiedInstant().equals(modified)
+                    // 修改时间不早于索引的条目可能在写入索引后又被修改
+                    && modified.isBefore(indexTime)) {
+                return new Staged(UNCHANGED, current);
+            }
+
+            ObjectId id;
+            if (attributes.isSymbolicLink()) {
+                id = insert(Constants.encode(repository.getFS().readSymLink(file.toFile())), reader, formatter);
+            } else if (!autoCrlf && attributes.size() > PackConfig.DEFAULT_BIG_FILE_THRESHOLD) {
+                id = insertLarge(file, attributes.size(), reader, formatter);
+            } else {
+                id = insert(read(file, attributes.size()), reader, formatter);
+            }
+
+            DirCacheEntry entry = new DirCacheEntry(path);
+            entry.setFileMode(mode);
+            entry.setObjectId(id);
+            entry.setLength(attributes.size());
+            entry.setLastModified(modified);
+            // 有冲突的文件记为修改
+            int kind = current == null ? ADD
+                    : current.getStage() == DirCacheEntry.STAGE_0 && current.getFileMode() == mode
+                    && current.getObjectId().equals(id) ? REFRESH
+                    : MODIFY;
+            return new Staged(kind, entry);
+        }
+
+        private byte[] read(Path file, long size) throws IOException {
+            if (!autoCrlf) {
+                return Files.readAllBytes(file);
+            }
+            try (InputStream in = AutoLFInputStream.create(Files.newInputStream(file),
+                    AutoLFInputStream.StreamFlag.DETECT_BINARY)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(size, Integer.MAX_VALUE - 8));
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            }
+        }
+
+        private ObjectId insert(byte[] content, ObjectReader reader, ObjectInserter.Formatter formatter)
+                throws IOException {
+            ObjectId id = formatter.idFor(Constants.OBJ_BLOB, content);
+            if (reader.has(id)) {
+                return id;
+            }
+            synchronized (inserter) {
+                if (inserted.add(id)) {
+                    inserter.insert(Constants.OBJ_BLOB, content);
+                }
+            }
+            return id;
+        }
+
+        /**
+         * 大文件不读入内存，先流式计算 id，确认是新对象后再流式写入。
+         */
+        private ObjectId insertLarge(Path file, long size, ObjectReader reader, ObjectInserter.Formatter formatter)
+                throws IOException {
+            ObjectId id;
+            try (InputStream in = Files.newInputStream(file)) {
+                id = formatter.idFor(Constants.OBJ_BLOB, size, in);
+            }
+            if (reader.has(id)) {
+                return id;
+            }
+            synchronized (inserter) {
+                if (inserted.add(id)) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        inserter.insert(Constants.OBJ_BLOB, size, in);
+                    }
+                }
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.test.gitclient.log;
+
+import com.test.gitclient.graph.CommitGraph;
+import com.test.gitclient.graph.CommitGraphIndex;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 按提交时间倒序分页遍历历史，子提交总是先于父提交输出。
+ * <p>
+ * 每页结束时把尚未输出的待遍历提交（遍历前沿）编码为游标，下一页直接从前沿继续。
+ * 提交时间相同或者时钟偏差导致父提交比子提交更新时，仅按时间排序会先输出父提交，下一页又从前沿再次走到它；
+ * 因此用提交图的世代号做拓扑约束（{@link TopoQueue}），一个提交只有在它所有可达的子提交都输出之后才进入前沿。
+ * 提交图已经建立时，没有过滤条件的每页代价只与页大小有关，与历史长度无关。
+ * 遍历时只解析提交头，只有输出或需要按作者过滤的提交才读取提交正文，读取后立即释放。
+ */
+public class CommitLog {
+
+    private static final String CURSOR_SEPARATOR = ",";
+
+    public static LogPage page(Repository repository, LogQuery query) throws IOException {
+        LogPage page = new LogPage();
+        List<ObjectId> starts = starts(repository, query);
+        if (starts.isEmpty()) {
+            return page;
+        }
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            Set<ObjectId> commitIds = new LinkedHashSet<>();
+            for (ObjectId start : starts) {
+                commitIds.add(walk.parseCommit(start).copy());
+            }
+            CommitGraph graph = CommitGraphIndex.of(repository)
+                    .ensure(repository, commitIds.toArray(new ObjectId[0]));
+
+            CommitFilter filter = new CommitFilter(walk, graph, query);
+            TopoQueue queue = new TopoQueue(graph, filter, query.isFirstParent());
+            List<Integer> positions = new ArrayList<>();
+            for (ObjectId id : commitIds) {
+                positions.add(graph.position(id));
+            }
+            queue.start(positions);
+
+            List<CommitSummary> commits = page.getCommits();
+            while (!queue.isEmpty() && commits.size() < query.getPageSize()) {
+                int position = queue.poll();
+                if (filter.isTooOld(position)) {
+                    // 它和所有祖先都早于时间下限，不输出也不展开
+                    continue;
+                }
+                RevCommit commit = walk.parseCommit(graph.id(position));
+                if (filter.matches(commit)) {
+                    commits.add(summarize(walk, commit));
+                }
+                commit.disposeBody();
+            }
+
+            if (!queue.isEmpty()) {
+                page.setNextCursor(encodeCursor(graph, queue.remaining()));
+            }
+        }
+        return page;
+    }
+
+    private static List<ObjectId> starts(Repository repository, LogQuery query) throws IOException {
+        if (query.getCursor() != null && !query.getCursor().isEmpty()) {
+            List<ObjectId> starts = new ArrayList<>();
+            for (String id : query.getCursor().split(CURSOR_SEPARATOR)) {
+                starts.add(ObjectId.fromString(id));
+            }
+            return starts;
+        }
+        ObjectId start = repository.resolve(query.getRevision());
+        return start == null ? Collections.emptyList() : Collections.singletonList(start);
+    }
+
+    private static RevCommit[] parents(RevCommit commit, boolean firstParent) {
+        if (firstParent && commit.getParentCount() > 1) {
+            return new RevCommit[]{commit.getParent(0)};
+        }
+        return commit.getParents();
+    }
+
+    private static int[] parents(CommitGraph graph, int position, boolean firstParent) {
+        int[] parents = graph.parents(position);
+        if (firstParent && parents.length > 1) {
+            return new int[]{parents[0]};
+        }
+        return parents;
+    }
+
+    private static String encodeCursor(CommitGraph graph, Collection<Integer> positions) {
+        StringBuilder cursor = new StringBuilder();
+        for (int position : positions) {
+            if (cursor.length() > 0) {
+                cursor.append(CURSOR_SEPARATOR);
+            }
+            cursor.append(graph.id(position).name());
+        }
+        return cursor.toString();
+    }
+
+    private static CommitSummary summarize(RevWalk walk, RevCommit commit) throws IOException {
+        walk.parseBody(commit);
+        CommitSummary summary = new CommitSummary();
+        summary.setId(commit.name());
+        List<String> parentIds = new ArrayList<>(commit.getParentCount());
+        for (RevCommit parent : commit.getParents()) {
+            parentIds.add(parent.name());
+        }
+        summary.setParentIds(parentIds);
+        PersonIdent author = commit.getAuthorIdent();
+        summary.setAuthorName(author.getName());
+        summary.setAuthorEmail(author.getEmailAddress());
+        summary.setAuthorTime(author.getWhen().getTime());
+        summary.setCommitterName(commit.getCommitterIdent().getName());
+        summary.setCommitTime(commit.getCommitTime() * 1000L);
+        summary.setShortMessage(commit.getShortMessage());
+        return summary;
+    }
+
+    /**
+     * 增量拓扑排序，与 git log --date-order 使用提交图时的做法相同。
+     * <p>
+     * 入度按世代号从大到小统计，只统计到即将释放的父提交的世代号为止：祖先的世代号一定小于后代，
+     * 所以此时该父提交所有可达的子提交都已计入。入度降为 0 的提交进入待输出队列，队列内按提交时间从新到旧排列。
+     * 待输出队列中的提交互相不可达，因此把它作为游标重新开始遍历不会重复输出。
+     */
+    private static class TopoQueue {
+        private final CommitGraph graph;
+        private final CommitFilter filter;
+        private final boolean firstParent;
+        // 已统计入度的提交，值为 1 加上已统计但尚未输出的子提交数
+        private final Map<Integer, Integer> indegrees = new HashMap<>();
+        private final PriorityQueue<Long> indegreeQueue = new PriorityQueue<>(Comparator.reverseOrder());
+        private final PriorityQueue<Integer> ready;
+
+        TopoQueue(CommitGraph graph, CommitFilter filter, boolean firstParent) {
+            this.graph = graph;
+            this.filter = filter;
+            this.firstParent = firstParent;
+            this.ready = new PriorityQueue<>((a, b) -> {
+                int ret = Integer.compare(graph.commitTime(b), graph.commitTime(a));
+                if (ret == 0) {
+                    ret = Integer.compare(graph.generation(b), graph.generation(a));
+                }
+                return ret != 0 ? ret : Integer.compare(a, b);
+            });
+        }
+
+        void start(List<Integer> positions) {
+            int minGeneration = Integer.MAX_VALUE;
+            for (int position : positions) {
+                indegrees.put(position, 1);
+                indegreeQueue.add(key(position));
+                minGeneration = Math.min(minGeneration, graph.generation(position));
+            }
+            walkIndegrees(minGeneration);
+            for (int position : positions) {
+                // 可以从其他起点到达的起点等那个起点展开后再进入队列
+                if (indegrees.get(position) == 1) {
+                    ready.add(position);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return ready.isEmpty();
+        }
+
+        Collection<Integer> remaining() {
+            return ready;
+        }
+
+        int poll() {
+            int position = ready.poll();
+            if (filter.isTooOld(position)) {
+                return position;
+            }
+            for (int parent : parents(graph, position, firstParent)) {
+                walkIndegrees(graph.generation(parent));
+                int indegree = indegrees.get(parent) - 1;
+                indegrees.put(parent, indegree);
+                if (indegree == 1) {
+                    ready.add(parent);
+                }
+            }
+            return position;
+        }
+
+        private void walkIndegrees(int generation) {
+            while (!indegreeQueue.isEmpty() && (int) (indegreeQueue.peek() >>> 32) >= generation) {
+                int position = (int) (long) indegreeQueue.poll();
+                if (filter.isTooOld(position)) {
+                    continue;
+                }
+                for (int parent : parents(graph, position, firstParent)) {
+                    Integer indegree = indegrees.get(parent);
+                    if (indegree == null) {
+                        indegrees.put(parent, 2);
+                        indegreeQueue.add(key(parent));
+                    } else {
+                        indegrees.put(parent, indegree + 1);
+                    }
+                }
+            }
+        }
+
+        private long key(int position) {
+            return ((long) graph.generation(position) << 32) | position;
+        }
+    }
+
+    private static class CommitFilter {
+        private final RevWalk walk;
+        private final CommitGraph graph;
+        private final ObjectReader reader;
+        private final TreeFilter pathFilter;
+        private final String author;
+        private final long since;
+        private final long until;
+        private final boolean firstParent;
+
+        CommitFilter(RevWalk walk, CommitGraph graph, LogQuery query) {
+            this.walk = walk;
+            this.graph = graph;
+            this.reader = walk.getObjectReader();
+            this.pathFilter = query.getPaths() == null || query.getPaths().isEmpty()
+                    ? null
+                    : AndTreeFilter.create(PathFilterGroup.createFromStrings(query.getPaths()), TreeFilter.ANY_DIFF);
+            this.author = query.getAuthor() == null ? null : query.getAuthor().toLowerCase(Locale.ROOT);
+            this.since = query.getSince() == null ? Long.MIN_VALUE : query.getSince().getTime();
+            this.until = query.getUntil() == null ? Long.MAX_VALUE : query.getUntil().getTime();
+            this.firstParent = query.isFirstParent();
+        }
+
+        /**
+         * 该提交及其所有祖先是否都早于时间下限。
+         */
+        boolean isTooOld(int position) {
+            return since != Long.MIN_VALUE && graph.newestReachableTime(position) * 1000L < since;
+        }
+
+        boolean matches(RevCommit commit) throws IOException {
+            long time = commit.getCommitTime() * 1000L;
+            if (time < since || time > until) {
+                return false;
+            }
+            if (author != null) {
+                walk.parseBody(commit);
+                PersonIdent ident = commit.getAuthorIdent();
+                if (!ident.getName().toLowerCase(Locale.ROOT).contains(author)
+                        && !ident.getEmailAddress().toLowerCase(Locale.ROOT).contains(author)) {
+                    return false;
+                }
+            }
+            return pathFilter == null || touchesPaths(commit);
+        }
+
+        /**
+         * 与所有父提交（first-parent 模式下只看第一个父提交）在指定路径上都有差异才算修改了这些路径，
+         * 合并时原样保留某一父提交内容的合并提交不计入。
+         */
+        private boolean touchesPaths(RevCommit commit) throws IOException {
+            if (commit.getParentCount() == 0) {
+                return differs(null, commit);
+            }
+            for (RevCommit parent : parents(commit, firstParent)) {
+                walk.parseHeaders(parent);
+                if (!differs(parent, commit)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean differs(RevCommit parent, RevCommit commit) throws IOException {
+            try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(pathFilter);
+                if (parent == null) {
+                    treeWalk.addTree(new EmptyTreeIterator());
+                } else {
+                    treeWalk.addTree(parent.getTree());
+                }
+                treeWalk.addTree(commit.getTree());
+                return treeWalk.next();
+            }
+        }
+    }
+}
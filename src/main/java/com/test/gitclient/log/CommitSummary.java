@@ -0,0 +1,87 @@
+package com.test.gitclient.log;
+
+import java.util.List;
+
+/**
+ * 提交的摘要信息，不持有 {@link org.eclipse.jgit.revwalk.RevCommit} 及其父提交图。
+ */
+public class CommitSummary {
+    private String id;
+    private List<String> parentIds;
+    private String authorName;
+    private String authorEmail;
+    private long authorTime;
+    private String committerName;
+    private long commitTime;
+    private String shortMessage;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<String> getParentIds() {
+        return parentIds;
+    }
+
+    public void setParentIds(List<String> parentIds) {
+        this.parentIds = parentIds;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        this.authorName = authorName;
+    }
+
+    public String getAuthorEmail() {
+        return authorEmail;
+    }
+
+    public void setAuthorEmail(String authorEmail) {
+        this.authorEmail = authorEmail;
+    }
+
+    /**
+     * @return 作者时间，毫秒
+     */
+    public long getAuthorTime() {
+        return authorTime;
+    }
+
+    public void setAuthorTime(long authorTime) {
+        this.authorTime = authorTime;
+    }
+
+    public String getCommitterName() {
+        return committerName;
+    }
+
+    public void setCommitterName(String committerName) {
+        this.committerName = committerName;
+    }
+
+    /**
+     * @return 提交时间，毫秒
+     */
+    public long getCommitTime() {
+        return commitTime;
+    }
+
+    public void setCommitTime(long commitTime) {
+        this.commitTime = commitTime;
+    }
+
+    public String getShortMessage() {
+        return shortMessage;
+    }
+
+    public void setShortMessage(String shortMessage) {
+        this.shortMessage = shortMessage;
+    }
+}
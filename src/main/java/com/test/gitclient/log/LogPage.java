@@ -0,0 +1,32 @@
+package com.test.gitclient.log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LogPage {
+    private List<CommitSummary> commits = new ArrayList<>();
+    private String nextCursor;
+
+    public List<CommitSummary> getCommits() {
+        return commits;
+    }
+
+    public void setCommits(List<CommitSummary> commits) {
+        this.commits = commits;
+    }
+
+    /**
+     * @return 下一页的游标，传给 {@link LogQuery#setCursor(String)}；没有更多提交时为 null
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
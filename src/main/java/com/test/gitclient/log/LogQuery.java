@@ -0,0 +1,111 @@
+package com.test.gitclient.log;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 分页查询提交历史的条件。
+ */
+public class LogQuery {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    private String revision = "HEAD";
+    private String cursor;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private List<String> paths = new ArrayList<>();
+    private String author;
+    private Date since;
+    private Date until;
+    private boolean firstParent;
+
+    /**
+     * 起始版本，可以是分支名、标签或提交 id，设置了游标时忽略。
+     */
+    public String getRevision() {
+        return revision;
+    }
+
+    public void setRevision(String revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * 上一页返回的 {@link LogPage#getNextCursor()}，为 null 时从第一页开始。
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * 只返回修改了这些路径（文件或目录）的提交。
+     */
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    public void addPath(String path) {
+        this.paths.add(path);
+    }
+
+    /**
+     * 作者名或邮箱包含该字符串，不区分大小写。
+     */
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    /**
+     * 提交时间下限（包含）。
+     */
+    public Date getSince() {
+        return since;
+    }
+
+    public void setSince(Date since) {
+        this.since = since;
+    }
+
+    /**
+     * 提交时间上限（包含）。
+     */
+    public Date getUntil() {
+        return until;
+    }
+
+    public void setUntil(Date until) {
+        this.until = until;
+    }
+
+    public boolean isFirstParent() {
+        return firstParent;
+    }
+
+    public void setFirstParent(boolean firstParent) {
+        this.firstParent = firstParent;
+    }
+}
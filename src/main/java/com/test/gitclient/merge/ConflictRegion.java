@@ -0,0 +1,54 @@
+package com.test.gitclient.merge;
+
+/**
+ * 文件中的一处冲突，行号从 0 开始，区间左闭右开。
+ * base 区间是两侧修改在合并基中覆盖的行，由合并基到两侧的差异计算，两侧修改都是插入时为空区间；
+ * 内容不是文本等无法计算时为 -1。
+ */
+public class ConflictRegion {
+    private final int oursBegin;
+    private final int oursEnd;
+    private final int theirsBegin;
+    private final int theirsEnd;
+    private final int baseBegin;
+    private final int baseEnd;
+
+    public ConflictRegion(int oursBegin, int oursEnd, int theirsBegin, int theirsEnd, int baseBegin, int baseEnd) {
+        this.oursBegin = oursBegin;
+        this.oursEnd = oursEnd;
+        this.theirsBegin = theirsBegin;
+        this.theirsEnd = theirsEnd;
+        this.baseBegin = baseBegin;
+        this.baseEnd = baseEnd;
+    }
+
+    public int getOursBegin() {
+        return oursBegin;
+    }
+
+    public int getOursEnd() {
+        return oursEnd;
+    }
+
+    public int getTheirsBegin() {
+        return theirsBegin;
+    }
+
+    public int getTheirsEnd() {
+        return theirsEnd;
+    }
+
+    public int getBaseBegin() {
+        return baseBegin;
+    }
+
+    public int getBaseEnd() {
+        return baseEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "ours [" + oursBegin + ", " + oursEnd + "), theirs [" + theirsBegin + ", " + theirsEnd
+                + "), base [" + baseBegin + ", " + baseEnd + ")";
+    }
+}
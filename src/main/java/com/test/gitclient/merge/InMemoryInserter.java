@@ -0,0 +1,132 @@
+package com.test.gitclient.merge;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.util.IO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 只在内存中保存对象的 inserter，通过 {@link #newReader()} 可以同时读取这些对象与仓库中的对象，
+ * 用于不写入仓库的合并。只能在一个线程中使用。
+ */
+class InMemoryInserter extends ObjectInserter {
+
+    private final Repository repository;
+    private final Map<ObjectId, ObjectLoader> objects = new HashMap<>();
+
+    InMemoryInserter(Repository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public ObjectId insert(int type, byte[] data, int off, int len) {
+        ObjectId id = idFor(type, data, off, len);
+        if (!objects.containsKey(id)) {
+            objects.put(id, new ObjectLoader.SmallObject(type, Arrays.copyOfRange(data, off, off + len)));
+        }
+        return id;
+    }
+
+    @Override
+    public ObjectId insert(int type, long length, InputStream in) throws IOException {
+        byte[] data = new byte[(int) length];
+        IO.readFully(in, data, 0, data.length);
+        return insert(type, data, 0, data.length);
+    }
+
+    /**
+     * 合并只逐个插入对象，不会解析包文件，因此不支持。
+     */
+    @Override
+    public PackParser newPackParser(InputStream in) {
+        throw new UnsupportedOperationException("InMemoryInserter does not accept pack streams");
+    }
+
+    @Override
+    public ObjectReader newReader() {
+        return new Reader(repository.newObjectReader());
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        objects.clear();
+    }
+
+    private class Reader extends ObjectReader.Filter {
+        private final ObjectReader delegate;
+
+        Reader(ObjectReader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected ObjectReader delegate() {
+            return delegate;
+        }
+
+        @Override
+        public ObjectReader newReader() {
+            return new Reader(delegate.newReader());
+        }
+
+        @Override
+        public ObjectInserter getCreatedFromInserter() {
+            return InMemoryInserter.this;
+        }
+
+        @Override
+        public boolean has(AnyObjectId objectId) throws IOException {
+            return objects.containsKey(objectId) || delegate.has(objectId);
+        }
+
+        @Override
+        public boolean has(AnyObjectId objectId, int typeHint) throws IOException {
+            return objects.containsKey(objectId) || delegate.has(objectId, typeHint);
+        }
+
+        @Override
+        public ObjectLoader open(AnyObjectId objectId) throws IOException {
+            return open(objectId, OBJ_ANY);
+        }
+
+        @Override
+        public ObjectLoader open(AnyObjectId objectId, int typeHint)
+                throws MissingObjectException, IncorrectObjectTypeException, IOException {
+            ObjectLoader loader = objects.get(objectId);
+            if (loader == null) {
+                return delegate.open(objectId, typeHint);
+            }
+            if (typeHint != OBJ_ANY && loader.getType() != typeHint) {
+                throw new IncorrectObjectTypeException(objectId.copy(), typeHint);
+            }
+            return loader;
+        }
+
+        @Override
+        public long getObjectSize(AnyObjectId objectId, int typeHint) throws IOException {
+            ObjectLoader loader = objects.get(objectId);
+            return loader == null ? delegate.getObjectSize(objectId, typeHint) : loader.getSize();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.test.gitclient.merge;
+
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 合并预览的结果。
+ */
+public class MergePreview {
+    private final MergeResult.MergeStatus status;
+    private final ObjectId base;
+    private final ObjectId treeId;
+    private final ObjectId commitId;
+    private final Map<String, List<ConflictRegion>> conflicts;
+
+    MergePreview(MergeResult.MergeStatus status, ObjectId base, ObjectId treeId, ObjectId commitId,
+                 Map<String, List<ConflictRegion>> conflicts) {
+        this.status = status;
+        this.base = base;
+        this.treeId = treeId;
+        this.commitId = commitId;
+        this.conflicts = Collections.unmodifiableMap(conflicts);
+    }
+
+    /**
+     * ALREADY_UP_TO_DATE、FAST_FORWARD、MERGED 或 CONFLICTING，
+     * FAST_FORWARD 表示目标是来源的祖先，按 {@code --no-ff} 合并时结果树与来源相同。
+     */
+    public MergeResult.MergeStatus getStatus() {
+        return status;
+    }
+
+    public boolean isMergeable() {
+        return status != MergeResult.MergeStatus.CONFLICTING;
+    }
+
+    /**
+     * 合并基，有多个合并基时为合并它们得到的虚拟提交，没有公共祖先时为 null。
+     */
+    public ObjectId getBase() {
+        return base;
+    }
+
+    /**
+     * 合并结果的树，有冲突时为 null。只有写入对象时这棵树才保存在仓库中。
+     */
+    public ObjectId getTreeId() {
+        return treeId;
+    }
+
+    /**
+     * 写入的合并提交，父提交依次为目标与来源，不更新任何引用。未要求写入、无需合并或有冲突时为 null。
+     */
+    public ObjectId getCommitId() {
+        return commitId;
+    }
+
+    /**
+     * 冲突文件列表，与 {@link com.test.gitclient.GitClient#merge} 返回的 conflictFiles 相同。
+     */
+    public List<String> getConflictFiles() {
+        return Collections.unmodifiableList(new ArrayList<>(conflicts.keySet()));
+    }
+
+    /**
+     * 冲突文件与其中的冲突区域，删除与修改冲突等非内容冲突的区域列表为空。
+     */
+    public Map<String, List<ConflictRegion>> getConflicts() {
+        return conflicts;
+    }
+
+    @Override
+    public String toString() {
+        return status + (conflicts.isEmpty() ? "" : " " + conflicts.keySet());
+    }
+}
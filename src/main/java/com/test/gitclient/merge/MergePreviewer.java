@@ -0,0 +1,205 @@
+package com.test.gitclient.merge;
+
+import com.test.gitclient.graph.CommitGraphIndex;
+import org.eclipse.jgit.api.MergeResult;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.Sequence;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeChunk;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 只访问对象库的合并：不读写工作区与索引，也不更新引用，可以在多个线程中同时预览同一仓库的不同合并。
+ * <p>
+ * 合并基由 {@link CommitGraphIndex} 计算，只有一个合并基时按 resolve 策略合并，
+ * 有多个合并基时按 recursive 策略先合并出虚拟的合并基。不写入时合并产生的对象只保存在内存中。
+ */
+public final class MergePreviewer {
+
+    private static final int BASE = 0;
+    private static final int OURS = 1;
+    private static final int THEIRS = 2;
+
+    private MergePreviewer() {
+    }
+
+    /**
+     * 预览把 theirs 合并到 ours 的结果。
+     *
+     * @param message 非 null 时把无冲突的合并结果与合并提交写入仓库，不更新任何引用
+     */
+    public static MergePreview preview(Repository repository, AnyObjectId ours, AnyObjectId theirs, String message)
+            throws IOException {
+        List<ObjectId> bases = CommitGraphIndex.of(repository).mergeBases(repository, ours, theirs);
+        boolean write = message != null;
+        try (ObjectInserter inserter = write ? repository.newObjectInserter() : new InMemoryInserter(repository);
+             RevWalk walk = new RevWalk(repository)) {
+            if (bases.size() == 1 && bases.get(0).equals(theirs)) {
+                return new MergePreview(MergeResult.MergeStatus.ALREADY_UP_TO_DATE, bases.get(0),
+                        walk.parseCommit(ours).getTree().copy(), null, Collections.emptyMap());
+            }
+            if (bases.size() == 1 && bases.get(0).equals(ours)) {
+                ObjectId tree = walk.parseCommit(theirs).getTree().copy();
+                ObjectId commit = write ? commit(repository, inserter, tree, ours, theirs, message) : null;
+                return new MergePreview(MergeResult.MergeStatus.FAST_FORWARD, bases.get(0), tree, commit,
+                        Collections.emptyMap());
+            }
+
+            ResolveMerger merger = (ResolveMerger) (bases.size() == 1 ? MergeStrategy.RESOLVE : MergeStrategy.RECURSIVE)
+                    .newMerger(inserter, repository.getConfig());
+            if (bases.size() == 1) {
+                merger.setBase(bases.get(0));
+            }
+            boolean clean = merger.merge(false, ours, theirs);
+            ObjectId base = merger.getBaseCommitId();
+            if (!clean) {
+                return new MergePreview(MergeResult.MergeStatus.CONFLICTING, base, null, null,
+                        conflicts(merger, diffAlgorithm(repository)));
+            }
+            ObjectId tree = merger.getResultTreeId();
+            ObjectId commit = write ? commit(repository, inserter, tree, ours, theirs, message) : null;
+            return new MergePreview(MergeResult.MergeStatus.MERGED, base, tree, commit, Collections.emptyMap());
+        }
+    }
+
+    private static ObjectId commit(Repository repository, ObjectInserter inserter, ObjectId tree,
+                                   AnyObjectId ours, AnyObjectId theirs, String message) throws IOException {
+        PersonIdent ident = new PersonIdent(repository);
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setParentIds(ours, theirs);
+        commit.setAuthor(ident);
+        commit.setCommitter(ident);
+        commit.setMessage(message);
+        ObjectId ret = inserter.insert(commit);
+        inserter.flush();
+        return ret;
+    }
+
+    /**
+     * 与 ResolveMerger 相同，按 diff.algorithm 配置选择差异算法。
+     */
+    private static DiffAlgorithm diffAlgorithm(Repository repository) {
+        return DiffAlgorithm.getAlgorithm(repository.getConfig().getEnum(ConfigConstants.CONFIG_DIFF_SECTION, null,
+                ConfigConstants.CONFIG_KEY_ALGORITHM, DiffAlgorithm.SupportedAlgorithm.HISTOGRAM));
+    }
+
+    private static Map<String, List<ConflictRegion>> conflicts(ResolveMerger merger, DiffAlgorithm algorithm) {
+        Map<String, ? extends org.eclipse.jgit.merge.MergeResult<? extends Sequence>> results = merger.getMergeResults();
+        Map<String, List<ConflictRegion>> ret = new LinkedHashMap<>();
+        for (String path : merger.getUnmergedPaths()) {
+            org.eclipse.jgit.merge.MergeResult<? extends Sequence> result = results.get(path);
+            ret.put(path, result == null ? Collections.emptyList() : regions(result, algorithm));
+        }
+        return ret;
+    }
+
+    /**
+     * 每处冲突由一个 FIRST_CONFLICTING_RANGE 块和随后的 NEXT_CONFLICTING_RANGE 块组成，块按序列区分来源。
+     * 冲突块只包含 ours 与 theirs 两侧，合并基中的区间由合并基到两侧的差异把两侧区间映射回合并基得到。
+     */
+    static List<ConflictRegion> regions(org.eclipse.jgit.merge.MergeResult<? extends Sequence> result,
+                                        DiffAlgorithm algorithm) {
+        EditList[] edits = edits(result, algorithm);
+        List<ConflictRegion> ret = new ArrayList<>();
+        int[] begins = null;
+        int[] ends = null;
+        for (MergeChunk chunk : result) {
+            MergeChunk.ConflictState state = chunk.getConflictState();
+            if (state != MergeChunk.ConflictState.NEXT_CONFLICTING_RANGE && begins != null) {
+                ret.add(region(begins, ends, edits));
+                begins = null;
+            }
+            if (state == MergeChunk.ConflictState.FIRST_CONFLICTING_RANGE) {
+                begins = new int[]{-1, -1, -1};
+                ends = new int[]{-1, -1, -1};
+            }
+            if (begins != null && chunk.getSequenceIndex() <= THEIRS) {
+                begins[chunk.getSequenceIndex()] = chunk.getBegin();
+                ends[chunk.getSequenceIndex()] = chunk.getEnd();
+            }
+        }
+        if (begins != null) {
+            ret.add(region(begins, ends, edits));
+        }
+        return ret;
+    }
+
+    /**
+     * @return 合并基到 ours、theirs 的差异，内容不是文本时返回 null
+     */
+    private static EditList[] edits(org.eclipse.jgit.merge.MergeResult<? extends Sequence> result,
+                                    DiffAlgorithm algorithm) {
+        List<? extends Sequence> sequences = result.getSequences();
+        if (sequences.size() <= THEIRS) {
+            return null;
+        }
+        for (Sequence sequence : sequences) {
+            if (!(sequence instanceof RawText)) {
+                return null;
+            }
+        }
+        RawText base = (RawText) sequences.get(BASE);
+        return new EditList[]{null,
+                algorithm.diff(RawTextComparator.DEFAULT, base, (RawText) sequences.get(OURS)),
+                algorithm.diff(RawTextComparator.DEFAULT, base, (RawText) sequences.get(THEIRS))};
+    }
+
+    private static ConflictRegion region(int[] begins, int[] ends, EditList[] edits) {
+        int baseBegin = -1;
+        int baseEnd = -1;
+        if (edits != null) {
+            baseBegin = Integer.MAX_VALUE;
+            for (int side = OURS; side <= THEIRS; side++) {
+                if (begins[side] >= 0) {
+                    baseBegin = Math.min(baseBegin, toBase(edits[side], begins[side], false));
+                    baseEnd = Math.max(baseEnd, toBase(edits[side], ends[side], true));
+                }
+            }
+            if (baseEnd < 0) {
+                baseBegin = -1;
+            }
+        }
+        return new ConflictRegion(begins[OURS], ends[OURS], begins[THEIRS], ends[THEIRS], baseBegin, baseEnd);
+    }
+
+    /**
+     * 把一侧的行号映射为合并基中的行号。冲突区间的端点落在修改之外或修改的边界上：
+     * 起点落在修改上时取修改在合并基中的起点，终点落在修改内部或紧接删除时取修改在合并基中的终点。
+     */
+    static int toBase(EditList edits, int position, boolean end) {
+        int shift = 0;
+        for (Edit edit : edits) {
+            if (position < edit.getBeginB()) {
+                break;
+            }
+            if (position == edit.getBeginB() && !(end && edit.getLengthB() == 0)) {
+                return edit.getBeginA();
+            }
+            if (position < edit.getEndB()) {
+                return end ? edit.getEndA() : edit.getBeginA();
+            }
+            shift += edit.getLengthB() - edit.getLengthA();
+        }
+        return position - shift;
+    }
+}
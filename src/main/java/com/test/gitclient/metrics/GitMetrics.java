@@ -0,0 +1,16 @@
+package com.test.gitclient.metrics;
+
+/**
+ * GitClient 操作的度量接口，每个操作开始时调用 {@link #start(String, String)}，结束时关闭返回的记录。
+ * 默认为 {@link #NOOP}，不记录任何数据。
+ */
+public interface GitMetrics {
+
+    GitMetrics NOOP = (operation, repository) -> OperationRecorder.NOOP;
+
+    /**
+     * @param operation  操作名，如 clone、pull、diff
+     * @param repository 调用方传入的仓库路径
+     */
+    OperationRecorder start(String operation, String repository);
+}
@@ -0,0 +1,227 @@
+package com.test.gitclient.metrics;
+
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在内存中按操作、以及按操作与仓库累计统计。
+ * 开启 JMX 时每个操作注册为 {@code com.test.gitclient:type=GitOperation,name=<操作名>}，
+ * 按仓库的统计只通过 {@link #getStats(String, String)} 查询，避免仓库很多时 MBean 数量过多。
+ */
+public class InMemoryGitMetrics implements GitMetrics {
+
+    final static Logger logger = LoggerFactory.getLogger(InMemoryGitMetrics.class);
+
+    static final String JMX_DOMAIN = "com.test.gitclient";
+
+    private final boolean jmx;
+
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, OperationStats>> repositories = new ConcurrentHashMap<>();
+
+    public InMemoryGitMetrics() {
+        this(false);
+    }
+
+    public InMemoryGitMetrics(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    @Override
+    public OperationRecorder start(String operation, String repository) {
+        return new Recorder(operation, repository == null ? "" : repository);
+    }
+
+    /**
+     * @return 操作在所有仓库上的统计，没有记录时返回 null
+     */
+    public OperationStats getStats(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @return 操作在某个仓库上的统计，没有记录时返回 null
+     */
+    public OperationStats getStats(String operation, String repository) {
+        Map<String, OperationStats> byRepository = repositories.get(operation);
+        return byRepository == null ? null : byRepository.get(repository);
+    }
+
+    public Set<String> getOperations() {
+        return new TreeSet<>(operations.keySet());
+    }
+
+    /**
+     * 清空统计并注销已注册的 MBean。
+     */
+    public void reset() {
+        if (jmx) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (String operation : operations.keySet()) {
+                try {
+                    server.unregisterMBean(objectName(operation));
+                } catch (JMException e) {
+                    logger.warn("注销 MBean 失败: {}", e.getMessage());
+                }
+            }
+        }
+        operations.clear();
+        repositories.clear();
+    }
+
+    private OperationStats operationStats(String operation) {
+        OperationStats stats = operations.get(operation);
+        if (stats != null) {
+            return stats;
+        }
+        OperationStats created = new OperationStats();
+        stats = operations.putIfAbsent(operation, created);
+        if (stats != null) {
+            return stats;
+        }
+        if (jmx) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(created, objectName(operation));
+            } catch (JMException e) {
+                logger.warn("注册 MBean 失败: {}", e.getMessage());
+            }
+        }
+        return created;
+    }
+
+    private static ObjectName objectName(String operation) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=GitOperation,name=" + ObjectName.quote(operation));
+    }
+
+    private class Recorder implements OperationRecorder {
+
+        private final String operation;
+        private final String repository;
+        private final long start = System.nanoTime();
+        // 只由执行操作的线程访问
+        private final Map<String, Long> phases = new HashMap<>();
+        private final Map<String, Long> counts = new HashMap<>();
+        private Throwable error;
+        private boolean closed;
+
+        Recorder(String operation, String repository) {
+            this.operation = operation;
+            this.repository = repository;
+        }
+
+        @Override
+        public boolean isRecording() {
+            return true;
+        }
+
+        @Override
+        public ProgressMonitor monitor(ProgressMonitor delegate) {
+            return new PhaseMonitor(this, delegate);
+        }
+
+        @Override
+        public void phase(String phase, long nanos) {
+            phases.merge(phase, nanos, Long::sum);
+        }
+
+        @Override
+        public void count(String counter, long value) {
+            counts.merge(counter, value, Long::sum);
+        }
+
+        @Override
+        public void failed(Throwable e) {
+            error = e;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long nanos = System.nanoTime() - start;
+            operationStats(operation).record(nanos, phases, counts, error);
+            repositories.computeIfAbsent(operation, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(repository, k -> new OperationStats())
+                    .record(nanos, phases, counts, error);
+        }
+    }
+
+    /**
+     * 把 JGit 的每个任务记为一个阶段，任务处理的数量记为同名计数，接收与发送的对象数另外记为
+     * {@link OperationRecorder#OBJECTS_RECEIVED} 与 {@link OperationRecorder#OBJECTS_SENT}。
+     */
+    private static class PhaseMonitor implements ProgressMonitor {
+
+        private static final String RECEIVING_OBJECTS = "Receiving objects";
+        private static final String WRITING_OBJECTS = "Writing objects";
+
+        private final OperationRecorder recorder;
+        private final ProgressMonitor delegate;
+        private String task;
+        private long taskStart;
+        private long done;
+
+        PhaseMonitor(OperationRecorder recorder, ProgressMonitor delegate) {
+            this.recorder = recorder;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void start(int totalTasks) {
+            delegate.start(totalTasks);
+        }
+
+        @Override
+        public synchronized void beginTask(String title, int totalWork) {
+            finishTask();
+            task = title;
+            taskStart = System.nanoTime();
+            done = 0;
+            delegate.beginTask(title, totalWork);
+        }
+
+        @Override
+        public synchronized void update(int completed) {
+            done += completed;
+            delegate.update(completed);
+        }
+
+        @Override
+        public synchronized void endTask() {
+            finishTask();
+            delegate.endTask();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return delegate.isCancelled();
+        }
+
+        private void finishTask() {
+            if (task == null) {
+                return;
+            }
+            recorder.phase(task, System.nanoTime() - taskStart);
+            recorder.count(task, done);
+            if (task.equals(RECEIVING_OBJECTS)) {
+                recorder.count(OperationRecorder.OBJECTS_RECEIVED, done);
+            } else if (task.equals(WRITING_OBJECTS)) {
+                recorder.count(OperationRecorder.OBJECTS_SENT, done);
+            }
+            task = null;
+        }
+    }
+}
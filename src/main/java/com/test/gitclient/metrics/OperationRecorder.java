@@ -0,0 +1,62 @@
+package com.test.gitclient.metrics;
+
+import org.eclipse.jgit.lib.ProgressMonitor;
+
+/**
+ * 单次操作的记录，由执行操作的线程使用，{@link #close()} 时记录总耗时。
+ */
+public interface OperationRecorder extends AutoCloseable {
+
+    String BYTES_RECEIVED = "bytesReceived";
+    String OBJECTS_RECEIVED = "objectsReceived";
+    String OBJECTS_SENT = "objectsSent";
+    String FILES_DIFFED = "filesDiffed";
+
+    OperationRecorder NOOP = new OperationRecorder() {
+        @Override
+        public boolean isRecording() {
+            return false;
+        }
+
+        @Override
+        public ProgressMonitor monitor(ProgressMonitor delegate) {
+            return delegate;
+        }
+
+        @Override
+        public void phase(String phase, long nanos) {
+        }
+
+        @Override
+        public void count(String counter, long value) {
+        }
+
+        @Override
+        public void failed(Throwable e) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * @return 为 false 时调用方可以跳过需要额外 IO 的统计，例如计算接收的字节数
+     */
+    boolean isRecording();
+
+    /**
+     * 包装传给 JGit 命令的 ProgressMonitor，按 JGit 的任务名（如 Receiving objects、Resolving deltas、
+     * Checking out files）记录各阶段耗时与处理数量。
+     */
+    ProgressMonitor monitor(ProgressMonitor delegate);
+
+    void phase(String phase, long nanos);
+
+    void count(String counter, long value);
+
+    void failed(Throwable e);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,103 @@
+package com.test.gitclient.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个操作（或一个操作在一个仓库上）的累计统计，可以并发更新。
+ */
+public class OperationStats implements OperationStatsMXBean {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errorCount = new LongAdder();
+    private final Map<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void record(long nanos, Map<String, Long> phases, Map<String, Long> counts, Throwable error) {
+        latency.record(nanos);
+        add(phaseNanos, phases);
+        add(counters, counts);
+        if (error != null) {
+            errorCount.increment();
+            errors.computeIfAbsent(error.getClass().getSimpleName(), k -> new LongAdder()).increment();
+        }
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanMillis();
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxMillis();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return latency.getPercentileMillis(0.95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMillis() {
+        Map<String, Long> ret = new TreeMap<>();
+        phaseNanos.forEach((phase, nanos) -> ret.put(phase, TimeUnit.NANOSECONDS.toMillis(nanos.sum())));
+        return ret;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return snapshot(counters);
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        return snapshot(errors);
+    }
+
+    public long getCounter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private static void add(Map<String, LongAdder> target, Map<String, Long> values) {
+        if (values == null) {
+            return;
+        }
+        values.forEach((key, value) -> target.computeIfAbsent(key, k -> new LongAdder()).add(value));
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> values) {
+        Map<String, Long> ret = new TreeMap<>();
+        values.forEach((key, value) -> ret.put(key, value.sum()));
+        return ret;
+    }
+}
@@ -0,0 +1,35 @@
+package com.test.gitclient.metrics;
+
+import java.util.Map;
+
+/**
+ * 通过 JMX 发布的单个操作的统计。
+ */
+public interface OperationStatsMXBean {
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    /**
+     * @return 各阶段累计耗时，毫秒
+     */
+    Map<String, Long> getPhaseMillis();
+
+    Map<String, Long> getCounters();
+
+    /**
+     * @return 按异常类型统计的失败次数
+     */
+    Map<String, Long> getErrors();
+}
@@ -0,0 +1,48 @@
+package com.test.gitclient.repository;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 从 {@link RepositoryManager} 借出的仓库引用，关闭句柄只会归还引用并释放仓库锁，不会关闭底层仓库。
+ */
+public class RepositoryHandle implements AutoCloseable {
+
+    private final RepositoryManager manager;
+    private final RepositoryManager.CachedRepository entry;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private RepositoryLocks.Lease lease;
+
+    RepositoryHandle(RepositoryManager manager, RepositoryManager.CachedRepository entry) {
+        this.manager = manager;
+        this.entry = entry;
+    }
+
+    void setLease(RepositoryLocks.Lease lease) {
+        this.lease = lease;
+    }
+
+    public Git getGit() {
+        return entry.git;
+    }
+
+    public Repository getRepository() {
+        return entry.git.getRepository();
+    }
+
+    public String getPath() {
+        return entry.path;
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            manager.release(entry);
+            if (lease != null) {
+                lease.close();
+            }
+        }
+    }
+}
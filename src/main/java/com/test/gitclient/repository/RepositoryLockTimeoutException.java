@@ -0,0 +1,22 @@
+package com.test.gitclient.repository;
+
+import java.io.IOException;
+
+/**
+ * 等待仓库锁超时。
+ */
+public class RepositoryLockTimeoutException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+
+    public RepositoryLockTimeoutException(String path, long timeoutMillis) {
+        super("等待仓库锁超时(" + timeoutMillis + "ms): " + path);
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,179 @@
+package com.test.gitclient.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按仓库路径加读写锁：只读操作之间并发执行，修改工作区、索引或引用的操作独占仓库。
+ * <p>
+ * 每个规范化路径一个公平读写锁，按到达顺序获得锁，写操作不会被持续到来的读操作饿死；
+ * 锁在没有持有者与等待者时移除，不同仓库之间互不影响。等待超过超时时间抛出 {@link RepositoryLockTimeoutException}。
+ * 锁只在本进程内有效，并且必须由加锁的线程释放。
+ */
+public class RepositoryLocks {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final long timeoutMillis;
+
+    private final Map<String, PathLock> locks = new ConcurrentHashMap<>();
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong contendedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    public RepositoryLocks(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 获取共享锁，使用完毕后必须调用 {@link Lease#close()} 释放。
+     */
+    public Lease read(String localPath) throws IOException {
+        return acquire(localPath, false);
+    }
+
+    /**
+     * 获取独占锁，使用完毕后必须调用 {@link Lease#close()} 释放。
+     */
+    public Lease write(String localPath) throws IOException {
+        return acquire(localPath, true);
+    }
+
+    /**
+     * @return 当前有持有者或等待者的仓库数
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    /**
+     * @return 等待 localPath 的锁的线程数
+     */
+    public int getQueueLength(String localPath) throws IOException {
+        PathLock lock = locks.get(canonicalPath(localPath));
+        return lock == null ? 0 : lock.lock.getQueueLength();
+    }
+
+    public long getAcquiredCount() {
+        return acquiredCount.get();
+    }
+
+    /**
+     * @return 不能立即获得、需要排队等待的次数
+     */
+    public long getContendedCount() {
+        return contendedCount.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * @return 所有排队等待的累计时间，毫秒
+     */
+    public long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    private Lease acquire(String localPath, boolean exclusive) throws IOException {
+        String key = canonicalPath(localPath);
+        PathLock pathLock = locks.compute(key, (k, existing) -> {
+            PathLock ret = existing == null ? new PathLock() : existing;
+            ret.users++;
+            return ret;
+        });
+        Lock lock = exclusive ? pathLock.lock.writeLock() : pathLock.lock.readLock();
+        boolean acquired = false;
+        try {
+            // tryLock() 会插队，超时为 0 的 tryLock 才遵守公平顺序
+            acquired = lock.tryLock(0, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                contendedCount.incrementAndGet();
+                long start = System.nanoTime();
+                try {
+                    acquired = lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS);
+                } finally {
+                    waitNanos.addAndGet(System.nanoTime() - start);
+                }
+                if (!acquired) {
+                    timeoutCount.incrementAndGet();
+                    throw new RepositoryLockTimeoutException(key, timeoutMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待仓库锁被中断: " + key);
+        } finally {
+            if (!acquired) {
+                removeIfUnused(key, pathLock);
+            }
+        }
+        acquiredCount.incrementAndGet();
+        return new Lease(key, pathLock, lock);
+    }
+
+    private void removeIfUnused(String key, PathLock pathLock) {
+        locks.computeIfPresent(key, (k, existing) -> {
+            if (existing != pathLock) {
+                return existing;
+            }
+            existing.users--;
+            return existing.users == 0 ? null : existing;
+        });
+    }
+
+    static String canonicalPath(String localPath) throws IOException {
+        return new File(localPath).getCanonicalPath();
+    }
+
+    private static class PathLock {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+        // 持有者与等待者数，只在 ConcurrentHashMap.compute 中修改
+        int users;
+    }
+
+    /**
+     * 已获得的锁，重复关闭无效。
+     */
+    public class Lease implements AutoCloseable {
+
+        private final String path;
+        private final PathLock pathLock;
+        private final Lock lock;
+        private boolean released;
+
+        Lease(String path, PathLock pathLock, Lock lock) {
+            this.path = path;
+            this.pathLock = pathLock;
+            this.lock = lock;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            lock.unlock();
+            removeIfUnused(path, pathLock);
+        }
+    }
+}
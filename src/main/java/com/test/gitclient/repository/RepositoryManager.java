@@ -0,0 +1,301 @@
+package com.test.gitclient.repository;
+
+import com.test.gitclient.status.StatusTracker;
+import org.eclipse.jgit.api.Git;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存已打开的仓库，按规范化路径复用同一个 {@link Git} 实例。
+ * 缓存按数量与空闲时间淘汰，被淘汰的仓库在最后一个使用者释放后才真正关闭，
+ * 关闭时一并释放该仓库的 {@link StatusTracker}，避免监听（inotify 实例）随淘汰的仓库累积。
+ */
+public class RepositoryManager {
+
+    final static Logger logger = LoggerFactory.getLogger(RepositoryManager.class);
+
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final RepositoryManager DEFAULT = new RepositoryManager(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT_MILLIS);
+
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final RepositoryLocks locks = new RepositoryLocks(RepositoryLocks.DEFAULT_TIMEOUT_MILLIS);
+
+    // accessOrder = true，迭代顺序即最近最少使用顺序
+    private final LinkedHashMap<String, CachedRepository> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public RepositoryManager(int maxSize, long idleTimeoutMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public static RepositoryManager getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 获取仓库句柄并加共享锁，用于只读操作，关闭句柄时释放锁。
+     */
+    public RepositoryHandle openForRead(String localPath) throws IOException {
+        return open(locks.read(localPath));
+    }
+
+    /**
+     * 获取仓库句柄并加独占锁，用于修改工作区、索引或引用的操作，关闭句柄时释放锁。
+     */
+    public RepositoryHandle openForWrite(String localPath) throws IOException {
+        return open(locks.write(localPath));
+    }
+
+    private RepositoryHandle open(RepositoryLocks.Lease lease) throws IOException {
+        try {
+            RepositoryHandle handle = open(lease.getPath());
+            handle.setLease(lease);
+            return handle;
+        } catch (IOException | RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 获取仓库句柄，不加锁，使用完毕后必须调用 {@link RepositoryHandle#close()} 释放。
+     */
+    public RepositoryHandle open(String localPath) throws IOException {
+        String key = canonicalPath(localPath);
+        List<CachedRepository> expired;
+        CachedRepository cached;
+        synchronized (this) {
+            expired = evictIdle(System.currentTimeMillis());
+            cached = cache.get(key);
+            if (cached != null) {
+                cached.retain();
+            }
+        }
+        closeAll(expired);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return new RepositoryHandle(this, cached);
+        }
+        missCount.incrementAndGet();
+
+        // Git.open 需要读取配置与扫描 pack，不在锁内执行
+        Git git = Git.open(new File(key));
+        List<CachedRepository> overflow;
+        CachedRepository entry;
+        synchronized (this) {
+            entry = cache.get(key);
+            if (entry == null) {
+                entry = new CachedRepository(key, git);
+                cache.put(key, entry);
+                git = null;
+            }
+            entry.retain();
+            overflow = evictOverflow();
+        }
+        if (git != null) {
+            // 并发打开了同一个仓库，保留先放入缓存的实例
+            git.close();
+        }
+        closeAll(overflow);
+        return new RepositoryHandle(this, entry);
+    }
+
+    /**
+     * 从缓存中移除指定仓库，例如仓库目录被删除或重新克隆之后。
+     */
+    public void invalidate(String localPath) {
+        String key;
+        try {
+            key = canonicalPath(localPath);
+        } catch (IOException e) {
+            logger.error("解析仓库路径异常: {}", e.getMessage());
+            return;
+        }
+        CachedRepository removed;
+        synchronized (this) {
+            removed = cache.remove(key);
+            if (removed != null) {
+                removed.evicted = true;
+            }
+        }
+        if (removed != null) {
+            removed.closeIfUnused();
+        }
+    }
+
+    /**
+     * 立即淘汰所有超过空闲时间的仓库。
+     */
+    public void cleanUp() {
+        List<CachedRepository> expired;
+        synchronized (this) {
+            expired = evictIdle(System.currentTimeMillis());
+        }
+        closeAll(expired);
+    }
+
+    /**
+     * 清空缓存，正在使用中的仓库会在释放后关闭。
+     */
+    public void invalidateAll() {
+        List<CachedRepository> removed;
+        synchronized (this) {
+            removed = new ArrayList<>(cache.values());
+            for (CachedRepository entry : removed) {
+                entry.evicted = true;
+            }
+            cache.clear();
+        }
+        closeAll(removed);
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return {@link #openForRead(String)} 与 {@link #openForWrite(String)} 使用的锁，也可以单独用于还不是仓库的路径
+     */
+    public RepositoryLocks getLocks() {
+        return locks;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    void release(CachedRepository entry) {
+        boolean close;
+        synchronized (this) {
+            close = entry.release(System.currentTimeMillis()) && entry.evicted;
+        }
+        if (close) {
+            entry.close();
+        }
+    }
+
+    private List<CachedRepository> evictIdle(long now) {
+        List<CachedRepository> expired = new ArrayList<>();
+        if (idleTimeoutMillis <= 0) {
+            return expired;
+        }
+        Iterator<Map.Entry<String, CachedRepository>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            CachedRepository entry = it.next().getValue();
+            if (entry.refCount == 0 && now - entry.lastAccess >= idleTimeoutMillis) {
+                it.remove();
+                entry.evicted = true;
+                evictionCount.incrementAndGet();
+                expired.add(entry);
+            }
+        }
+        return expired;
+    }
+
+    private List<CachedRepository> evictOverflow() {
+        List<CachedRepository> overflow = new ArrayList<>();
+        Iterator<Map.Entry<String, CachedRepository>> it = cache.entrySet().iterator();
+        while (cache.size() > maxSize && it.hasNext()) {
+            CachedRepository entry = it.next().getValue();
+            it.remove();
+            entry.evicted = true;
+            evictionCount.incrementAndGet();
+            overflow.add(entry);
+        }
+        return overflow;
+    }
+
+    private static void closeAll(List<CachedRepository> entries) {
+        for (CachedRepository entry : entries) {
+            entry.closeIfUnused();
+        }
+    }
+
+    private static String canonicalPath(String localPath) throws IOException {
+        return new File(localPath).getCanonicalPath();
+    }
+
+    static class CachedRepository {
+        final String path;
+        final Git git;
+        volatile int refCount;
+        long lastAccess = System.currentTimeMillis();
+        volatile boolean evicted;
+        private boolean closed;
+
+        CachedRepository(String path, Git git) {
+            this.path = path;
+            this.git = git;
+        }
+
+        void retain() {
+            refCount++;
+            lastAccess = System.currentTimeMillis();
+        }
+
+        /**
+         * @return 释放后是否已无人使用
+         */
+        boolean release(long now) {
+            refCount--;
+            lastAccess = now;
+            return refCount == 0;
+        }
+
+        void closeIfUnused() {
+            // 已从缓存移除的仓库不会再被 retain，仍在使用时由最后一次 release 负责关闭
+            if (refCount == 0) {
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    StatusTracker.release(git.getRepository());
+                } catch (IOException e) {
+                    logger.error("停止工作区监听异常: {}", e.getMessage());
+                }
+                git.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package com.test.gitclient.search;
+
+import com.test.gitclient.format.ContentType;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.HistogramDiff;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 在历史或某个版本的文件中按行搜索。
+ * <p>
+ * 搜索历史时在调用线程中遍历提交，每个提交与父提交的比较与匹配交给 executor 并行执行，
+ * 结果仍按遍历顺序依次交给 {@link SearchHandler}，找到即返回，不必等待全部完成。
+ * 差异中的行都来自新旧文件之一，每个文件只在第一次遇到时检查是否包含匹配的行并记录在已检查集合中，
+ * 新旧文件都不包含时不读取内容也不比较。二进制文件不搜索。
+ * 被 handler 中止或出现异常时，进行中的任务检查到取消后尽快结束，方法在所有任务结束后才返回。
+ */
+public class ContentSearch {
+
+    private static final DiffAlgorithm DIFF_ALGORITHM = new HistogramDiff();
+
+    // 同时进行中的任务数为并行度的倍数，调用方处理结果较慢时限制占用的内存
+    private static final int TASKS_PER_THREAD = 4;
+
+    // 搜索内容时每个任务检查的文件数
+    private static final int FILES_PER_TASK = 64;
+
+    private final Repository repository;
+    private final Executor executor;
+    private int parallelism;
+
+    public ContentSearch(Repository repository) {
+        this(repository, ForkJoinPool.commonPool());
+    }
+
+    public ContentSearch(Repository repository, Executor executor) {
+        this.repository = repository;
+        this.executor = executor;
+        this.parallelism = executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 查找新增或删除了匹配行的提交，与 {@code git log -G<pattern> -p} 相同。
+     *
+     * @return 全部搜索完成返回 true，被 handler 中止返回 false
+     * @throws IllegalArgumentException 模式为空、正则表达式有误或版本无法解析
+     */
+    public boolean history(SearchQuery query, SearchHandler handler) throws IOException {
+        LineMatcher matcher = LineMatcher.of(query);
+        Map<ObjectId, Boolean> seen = new ConcurrentHashMap<>();
+        TreeFilter pathFilter = pathFilter(query);
+        Results results = new Results(handler);
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setFirstParent(query.isFirstParent());
+            walk.markStart(walk.parseCommit(resolve(query.getRevision())));
+            if (query.getExcludeRevision() != null) {
+                walk.markUninteresting(walk.parseCommit(resolve(query.getExcludeRevision())));
+            }
+            if (pathFilter != null) {
+                walk.setTreeFilter(AndTreeFilter.create(pathFilter, TreeFilter.ANY_DIFF));
+            }
+
+            for (RevCommit commit : walk) {
+                if (commit.getParentCount() > 1 && !query.isFirstParent()) {
+                    continue;
+                }
+                RevCommit parent = commit.getParentCount() == 0 ? null : commit.getParent(0);
+                if (parent != null) {
+                    walk.parseHeaders(parent);
+                }
+                ObjectId parentTree = parent == null ? null : parent.getTree().copy();
+                ObjectId tree = commit.getTree().copy();
+                SearchMatch template = template(commit);
+                TreeFilter filter = pathFilter == null ? null : pathFilter.clone();
+                if (!results.add(() -> scanCommit(parentTree, tree, filter, template, matcher, seen, results))) {
+                    return false;
+                }
+            }
+            return results.finish();
+        } finally {
+            results.cancel();
+        }
+    }
+
+    /**
+     * 查找版本中包含匹配行的文件，内容相同的文件只检查一次。
+     *
+     * @return 全部搜索完成返回 true，被 handler 中止返回 false
+     */
+    public boolean content(SearchQuery query, SearchHandler handler) throws IOException {
+        LineMatcher matcher = LineMatcher.of(query);
+        Map<ObjectId, List<SearchMatch>> seen = new ConcurrentHashMap<>();
+        TreeFilter pathFilter = pathFilter(query);
+        Results results = new Results(handler);
+
+        try (RevWalk walk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(walk.getObjectReader())) {
+            RevCommit commit = walk.parseCommit(resolve(query.getRevision()));
+            treeWalk.setRecursive(true);
+            if (pathFilter != null) {
+                treeWalk.setFilter(pathFilter);
+            }
+            treeWalk.addTree(commit.getTree());
+
+            List<String> paths = new ArrayList<>(FILES_PER_TASK);
+            List<ObjectId> blobs = new ArrayList<>(FILES_PER_TASK);
+            while (treeWalk.next()) {
+                if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                    continue;
+                }
+                paths.add(treeWalk.getPathString());
+                blobs.add(treeWalk.getObjectId(0));
+                if (paths.size() == FILES_PER_TASK) {
+                    if (!results.add(scanFiles(commit.name(), paths, blobs, matcher, seen, results))) {
+                        return false;
+                    }
+                    paths = new ArrayList<>(FILES_PER_TASK);
+                    blobs = new ArrayList<>(FILES_PER_TASK);
+                }
+            }
+            if (!paths.isEmpty() && !results.add(scanFiles(commit.name(), paths, blobs, matcher, seen, results))) {
+                return false;
+            }
+            return results.finish();
+        } finally {
+            results.cancel();
+        }
+    }
+
+    private List<SearchMatch> scanCommit(ObjectId parentTree, ObjectId tree, TreeFilter pathFilter,
+                                         SearchMatch template, LineMatcher matcher, Map<ObjectId, Boolean> seen,
+                                         Results results) throws IOException {
+        List<SearchMatch> ret = new ArrayList<>();
+        try (ObjectReader reader = repository.newObjectReader();
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(pathFilter == null ? TreeFilter.ANY_DIFF
+                    : AndTreeFilter.create(pathFilter, TreeFilter.ANY_DIFF));
+            if (parentTree == null) {
+                treeWalk.addTree(new EmptyTreeIterator());
+            } else {
+                treeWalk.addTree(parentTree);
+            }
+            treeWalk.addTree(tree);
+
+            while (!results.isCancelled() && treeWalk.next()) {
+                ObjectId oldBlob = isFile(treeWalk.getRawMode(0)) ? treeWalk.getObjectId(0) : null;
+                ObjectId newBlob = isFile(treeWalk.getRawMode(1)) ? treeWalk.getObjectId(1) : null;
+                boolean oldHit = oldBlob != null && contains(reader, oldBlob, matcher, seen);
+                boolean newHit = newBlob != null && contains(reader, newBlob, matcher, seen);
+                if (!oldHit && !newHit) {
+                    continue;
+                }
+                RawText a = oldBlob == null ? RawText.EMPTY_TEXT : new RawText(read(reader, oldBlob));
+                RawText b = newBlob == null ? RawText.EMPTY_TEXT : new RawText(read(reader, newBlob));
+                String path = treeWalk.getPathString();
+                for (Edit edit : DIFF_ALGORITHM.diff(RawTextComparator.DEFAULT, a, b)) {
+                    if (oldHit) {
+                        match(a, edit.getBeginA(), edit.getEndA(), ContentType.DELETE, path, template, matcher, ret);
+                    }
+                    if (newHit) {
+                        match(b, edit.getBeginB(), edit.getEndB(), ContentType.ADD, path, template, matcher, ret);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    private Task scanFiles(String commitId, List<String> paths, List<ObjectId> blobs,
+                           LineMatcher matcher, Map<ObjectId, List<SearchMatch>> seen, Results results) {
+        return () -> {
+            List<SearchMatch> ret = new ArrayList<>();
+            try (ObjectReader reader = repository.newObjectReader()) {
+                for (int i = 0; i < paths.size() && !results.isCancelled(); i++) {
+                    List<SearchMatch> lines = seen.get(blobs.get(i));
+                    if (lines == null) {
+                        lines = scanFile(reader, blobs.get(i), matcher);
+                        seen.put(blobs.get(i), lines);
+                    }
+                    for (SearchMatch line : lines) {
+                        SearchMatch match = copy(line);
+                        match.setCommitId(commitId);
+                        match.setPath(paths.get(i));
+                        ret.add(match);
+                    }
+                }
+            }
+            return ret;
+        };
+    }
+
+    private static List<SearchMatch> scanFile(ObjectReader reader, ObjectId blob, LineMatcher matcher)
+            throws IOException {
+        byte[] raw = read(reader, blob);
+        if (RawText.isBinary(raw) || !matcher.anyLine(raw)) {
+            return Collections.emptyList();
+        }
+        List<SearchMatch> ret = new ArrayList<>();
+        RawText text = new RawText(raw);
+        match(text, 0, text.size(), ContentType.ORIGINAL, null, new SearchMatch(), matcher, ret);
+        return ret;
+    }
+
+    private static void match(RawText text, int begin, int end, ContentType type, String path, SearchMatch template,
+                              LineMatcher matcher, List<SearchMatch> out) {
+        for (int i = begin; i < end; i++) {
+            String line = text.getString(i);
+            if (matcher.matches(line)) {
+                SearchMatch match = copy(template);
+                match.setPath(path);
+                match.setType(type);
+                match.setLineNumber(i + 1);
+                match.setContent(line);
+                out.add(match);
+            }
+        }
+    }
+
+    /**
+     * 文件中是否有匹配的行，每个文件只检查一次。
+     */
+    private static boolean contains(ObjectReader reader, ObjectId blob, LineMatcher matcher,
+                                    Map<ObjectId, Boolean> seen) throws IOException {
+        Boolean ret = seen.get(blob);
+        if (ret == null) {
+            byte[] raw = read(reader, blob);
+            ret = !RawText.isBinary(raw) && matcher.anyLine(raw);
+            seen.put(blob.copy(), ret);
+        }
+        return ret;
+    }
+
+    private static boolean isFile(int mode) {
+        return (mode & FileMode.TYPE_MASK) == FileMode.TYPE_FILE;
+    }
+
+    private static byte[] read(ObjectReader reader, ObjectId blob) throws IOException {
+        return reader.open(blob, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+    }
+
+    private static SearchMatch template(RevCommit commit) {
+        SearchMatch ret = new SearchMatch();
+        ret.setCommitId(commit.name());
+        PersonIdent author = commit.getAuthorIdent();
+        ret.setAuthorName(author.getName());
+        ret.setAuthorEmail(author.getEmailAddress());
+        ret.setAuthorTime(author.getWhen().getTime());
+        ret.setShortMessage(commit.getShortMessage());
+        return ret;
+    }
+
+    private static SearchMatch copy(SearchMatch source) {
+        SearchMatch ret = new SearchMatch();
+        ret.setCommitId(source.getCommitId());
+        ret.setAuthorName(source.getAuthorName());
+        ret.setAuthorEmail(source.getAuthorEmail());
+        ret.setAuthorTime(source.getAuthorTime());
+        ret.setShortMessage(source.getShortMessage());
+        ret.setPath(source.getPath());
+        ret.setType(source.getType());
+        ret.setLineNumber(source.getLineNumber());
+        ret.setContent(source.getContent());
+        return ret;
+    }
+
+    private static TreeFilter pathFilter(SearchQuery query) {
+        return query.getPaths() == null || query.getPaths().isEmpty()
+                ? null
+                : PathFilterGroup.createFromStrings(query.getPaths());
+    }
+
+    private ObjectId resolve(String revision) throws IOException {
+        ObjectId id = repository.resolve(revision + "^{commit}");
+        if (id == null) {
+            throw new IllegalArgumentException("无法解析版本: " + revision);
+        }
+        return id;
+    }
+
+    private interface Task {
+        List<SearchMatch> call() throws IOException;
+    }
+
+    /**
+     * 按提交顺序交出结果：最早提交的任务完成后立即交给 handler，进行中的任务数超过上限时等待。
+     * 取消后尚未开始的任务不再执行，正在执行的任务由 {@link #isCancelled()} 提前结束，{@link #cancel()} 等待它们结束。
+     */
+    private class Results {
+        private final SearchHandler handler;
+        private final Executor taskExecutor;
+        private final int maxPending;
+        private final Deque<CompletableFuture<List<SearchMatch>>> pending = new ArrayDeque<>();
+
+        private volatile boolean cancelled;
+        // 正在执行的任务数，由 this 保护
+        private int running;
+
+        Results(SearchHandler handler) {
+            this.handler = handler;
+            // 单线程时直接在调用线程中执行，不必切换线程
+            this.taskExecutor = parallelism == 1 ? Runnable::run : executor;
+            this.maxPending = parallelism * TASKS_PER_THREAD;
+        }
+
+        boolean add(Task task) throws IOException {
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                synchronized (this) {
+                    if (cancelled) {
+                        return Collections.emptyList();
+                    }
+                    running++;
+                }
+                try {
+                    return task.call();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    synchronized (this) {
+                        running--;
+                        notifyAll();
+                    }
+                }
+            }, taskExecutor));
+            while (!pending.isEmpty() && (pending.size() >= maxPending || pending.peek().isDone())) {
+                if (!emit(pending.poll())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean finish() throws IOException {
+            while (!pending.isEmpty()) {
+                if (!emit(pending.poll())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean emit(CompletableFuture<List<SearchMatch>> future) throws IOException {
+            List<SearchMatch> matches;
+            try {
+                matches = future.join();
+            } catch (CompletionException e) {
+                cancel();
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                throw e;
+            }
+            for (SearchMatch match : matches) {
+                if (!handler.handle(match)) {
+                    cancel();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * 取消剩余的任务并等待正在执行的任务结束，之后才能释放仓库。全部结果已交出时不做任何事。
+         */
+        void cancel() {
+            if (pending.isEmpty() && !cancelled) {
+                return;
+            }
+            synchronized (this) {
+                cancelled = true;
+            }
+            for (CompletableFuture<List<SearchMatch>> future : pending) {
+                future.cancel(false);
+            }
+            pending.clear();
+
+            boolean interrupted = false;
+            synchronized (this) {
+                while (running > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
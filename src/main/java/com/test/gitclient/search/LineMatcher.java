@@ -0,0 +1,71 @@
+package com.test.gitclient.search;
+
+import org.eclipse.jgit.diff.RawText;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * 按行匹配普通字符串或正则表达式，可以在多个线程中同时使用。
+ */
+final class LineMatcher {
+
+    // 区分大小写的普通字符串，可以直接在原始字节中查找
+    private final byte[] literal;
+    private final Pattern pattern;
+
+    private LineMatcher(byte[] literal, Pattern pattern) {
+        this.literal = literal;
+        this.pattern = pattern;
+    }
+
+    static LineMatcher of(SearchQuery query) {
+        String text = query.getPattern();
+        if (text == null || text.isEmpty()) {
+            throw new IllegalArgumentException("pattern must not be empty");
+        }
+        if (!query.isRegex() && !query.isIgnoreCase()) {
+            return new LineMatcher(text.getBytes(StandardCharsets.UTF_8), Pattern.compile(Pattern.quote(text)));
+        }
+        int flags = query.isIgnoreCase() ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+        return new LineMatcher(null, Pattern.compile(query.isRegex() ? text : Pattern.quote(text), flags));
+    }
+
+    boolean matches(String line) {
+        return pattern.matcher(line).find();
+    }
+
+    /**
+     * 文件中是否有匹配的行。普通字符串直接在字节中查找，可能把跨行的内容算作匹配，只用于排除不可能匹配的文件。
+     */
+    boolean anyLine(byte[] raw) {
+        if (literal != null) {
+            return indexOf(raw, literal) >= 0;
+        }
+        RawText text = new RawText(raw);
+        for (int i = 0; i < text.size(); i++) {
+            if (matches(text.getString(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(byte[] raw, byte[] target) {
+        byte first = target[0];
+        int max = raw.length - target.length;
+        for (int i = 0; i <= max; i++) {
+            if (raw[i] != first) {
+                continue;
+            }
+            int j = 1;
+            while (j < target.length && raw[i + j] == target[j]) {
+                j++;
+            }
+            if (j == target.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
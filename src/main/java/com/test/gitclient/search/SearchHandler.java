@@ -0,0 +1,8 @@
+package com.test.gitclient.search;
+
+/**
+ * 接收搜索结果，返回 false 时停止搜索。
+ */
+public interface SearchHandler {
+    boolean handle(SearchMatch match);
+}
@@ -0,0 +1,100 @@
+package com.test.gitclient.search;
+
+import com.test.gitclient.format.ContentType;
+
+/**
+ * 匹配的一行。搜索历史时为提交新增（ADD）或删除（DELETE）的行，行号分别为新文件与旧文件中的行号；
+ * 搜索内容时类型为 ORIGINAL，作者与提交说明为 null。行号从 1 开始。
+ */
+public class SearchMatch {
+    private String commitId;
+    private String authorName;
+    private String authorEmail;
+    private long authorTime;
+    private String shortMessage;
+    private String path;
+    private ContentType type;
+    private int lineNumber;
+    private String content;
+
+    public String getCommitId() {
+        return commitId;
+    }
+
+    public void setCommitId(String commitId) {
+        this.commitId = commitId;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        this.authorName = authorName;
+    }
+
+    public String getAuthorEmail() {
+        return authorEmail;
+    }
+
+    public void setAuthorEmail(String authorEmail) {
+        this.authorEmail = authorEmail;
+    }
+
+    /**
+     * @return 作者时间，毫秒
+     */
+    public long getAuthorTime() {
+        return authorTime;
+    }
+
+    public void setAuthorTime(long authorTime) {
+        this.authorTime = authorTime;
+    }
+
+    public String getShortMessage() {
+        return shortMessage;
+    }
+
+    public void setShortMessage(String shortMessage) {
+        this.shortMessage = shortMessage;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public ContentType getType() {
+        return type;
+    }
+
+    public void setType(ContentType type) {
+        this.type = type;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public void setLineNumber(int lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    @Override
+    public String toString() {
+        return commitId + " " + path + ":" + lineNumber + " " + (type == ContentType.ADD ? "+" :
+                type == ContentType.DELETE ? "-" : " ") + content;
+    }
+}
@@ -0,0 +1,93 @@
+package com.test.gitclient.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 搜索历史或文件内容的条件。
+ */
+public class SearchQuery {
+
+    private String pattern;
+    private boolean regex;
+    private boolean ignoreCase;
+    private String revision = "HEAD";
+    private String excludeRevision;
+    private List<String> paths = new ArrayList<>();
+    private boolean firstParent;
+
+    /**
+     * 按行匹配的字符串，默认为普通字符串，{@link #isRegex()} 为 true 时为正则表达式。
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    public boolean isRegex() {
+        return regex;
+    }
+
+    public void setRegex(boolean regex) {
+        this.regex = regex;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * 搜索历史时的起始版本，搜索内容时为要搜索的版本。
+     */
+    public String getRevision() {
+        return revision;
+    }
+
+    public void setRevision(String revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * 不搜索从该版本可达的提交，与 {@link #getRevision()} 一起相当于 {@code excludeRevision..revision}，为 null 时搜索全部历史。
+     */
+    public String getExcludeRevision() {
+        return excludeRevision;
+    }
+
+    public void setExcludeRevision(String excludeRevision) {
+        this.excludeRevision = excludeRevision;
+    }
+
+    /**
+     * 只搜索这些路径（文件或目录），为空时不限制。
+     */
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    public void addPath(String path) {
+        this.paths.add(path);
+    }
+
+    /**
+     * 只沿第一父提交搜索，合并提交与第一父提交比较。默认与 {@code git log -G} 相同，不比较合并提交。
+     */
+    public boolean isFirstParent() {
+        return firstParent;
+    }
+
+    public void setFirstParent(boolean firstParent) {
+        this.firstParent = firstParent;
+    }
+}
@@ -0,0 +1,380 @@
+package com.test.gitclient.status;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 增量工作区状态。首次调用执行完整的 status 并监听工作区目录，之后只对发生变化的路径重新执行 status，
+ * 把结果合并到上次的结果中，得到与完整 status 相同的结果。
+ * <p>
+ * 每个变化的路径会扩大到其所在的、已被索引跟踪的最近目录下的直接子路径，
+ * 这样未跟踪目录、忽略规则等按目录判断的状态与完整遍历一致。
+ * 以下情况退回完整 status：索引、HEAD、仓库配置或 info/exclude 发生变化，
+ * .gitignore/.gitattributes 发生变化，监听事件溢出，以及无法注册监听（如 inotify 数量上限）。
+ */
+public class StatusTracker implements AutoCloseable {
+
+    final static Logger logger = LoggerFactory.getLogger(StatusTracker.class);
+
+    public static final List<String> CATEGORIES = Collections.unmodifiableList(Arrays.asList(
+            "Added", "Changed", "Conflicting", "Missing", "IgnoredNotInIndex", "Modified",
+            "Removed", "Untracked", "UntrackedFolders", "UncommittedChanges"));
+
+    // 变化路径过多时直接执行完整 status
+    static final int MAX_SCOPES = 1024;
+
+    private static final Map<File, StatusTracker> TRACKERS = new ConcurrentHashMap<>();
+
+    private final Path workTree;
+    private final Path gitDir;
+
+    private WatchService watcher;
+    private final Map<WatchKey, Path> keys = new HashMap<>();
+    private final Set<Path> watched = new HashSet<>();
+    // 无法注册监听时不再重试
+    private boolean unwatchable;
+
+    private DirCache dirCache;
+    private final List<String> gitlinks = new ArrayList<>();
+    private FileSnapshot indexSnapshot;
+    private FileSnapshot configSnapshot;
+    private FileSnapshot excludeSnapshot;
+    private ObjectId head;
+    private String fullBranch;
+
+    // 为 null 表示需要完整 status
+    private Map<String, TreeSet<String>> results;
+
+    private long fullCount;
+    private long incrementalCount;
+
+    private StatusTracker(Repository repository) {
+        this.workTree = repository.getWorkTree().toPath().toAbsolutePath().normalize();
+        this.gitDir = repository.getDirectory().toPath().toAbsolutePath().normalize();
+    }
+
+    public static StatusTracker of(Repository repository) throws IOException {
+        File key = repository.getDirectory().getCanonicalFile();
+        return TRACKERS.computeIfAbsent(key, k -> new StatusTracker(repository));
+    }
+
+    /**
+     * 停止监听并丢弃缓存的状态。
+     */
+    public static void release(Repository repository) throws IOException {
+        StatusTracker tracker = TRACKERS.remove(repository.getDirectory().getCanonicalFile());
+        if (tracker != null) {
+            tracker.close();
+        }
+    }
+
+    public static void releaseAll() {
+        for (File key : new ArrayList<>(TRACKERS.keySet())) {
+            StatusTracker tracker = TRACKERS.remove(key);
+            if (tracker != null) {
+                tracker.close();
+            }
+        }
+    }
+
+    /**
+     * @return 与 {@link #CATEGORIES} 对应的状态，每类路径按字典序排列
+     */
+    public synchronized Map<String, List<String>> status(Repository repository) throws IOException, GitAPIException {
+        if (watcher == null && !unwatchable) {
+            startWatching();
+        }
+        List<String> dirty = new ArrayList<>();
+        // 即使需要完整 status 也先取出事件，避免下一次调用重复检查这些路径
+        boolean overflow = watcher == null || drain(dirty);
+        boolean full = overflow || results == null || metadataChanged(repository);
+
+        if (full) {
+            refreshAll(repository);
+        } else {
+            List<String> scopes = scopes(dirty);
+            if (scopes == null) {
+                refreshAll(repository);
+            } else if (!scopes.isEmpty()) {
+                refresh(repository, scopes);
+            }
+        }
+
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        for (String category : CATEGORIES) {
+            map.put(category, new ArrayList<>(results.get(category)));
+        }
+        return map;
+    }
+
+    public synchronized long getFullCount() {
+        return fullCount;
+    }
+
+    public synchronized long getIncrementalCount() {
+        return incrementalCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        results = null;
+        stopWatching();
+    }
+
+    private void refreshAll(Repository repository) throws IOException, GitAPIException {
+        // 先记录快照再执行 status，执行期间发生的变化会在下一次调用时发现
+        saveMetadata(repository);
+        Status status = new Git(repository).status().call();
+        Map<String, TreeSet<String>> map = new HashMap<>();
+        for (String category : CATEGORIES) {
+            map.put(category, new TreeSet<>());
+        }
+        merge(map, status);
+        results = map;
+        fullCount++;
+    }
+
+    private void refresh(Repository repository, List<String> scopes) throws GitAPIException {
+        StatusCommand command = new Git(repository).status();
+        for (String scope : scopes) {
+            command.addPath(scope);
+        }
+        Status status = command.call();
+        for (TreeSet<String> paths : results.values()) {
+            for (String scope : scopes) {
+                paths.remove(scope);
+                // '0' 紧跟在 '/' 之后，区间内即 scope 下的所有路径
+                paths.subSet(scope + "/", scope + "0").clear();
+            }
+        }
+        merge(results, status);
+        incrementalCount++;
+    }
+
+    private static void merge(Map<String, TreeSet<String>> map, Status status) {
+        map.get("Added").addAll(status.getAdded());
+        map.get("Changed").addAll(status.getChanged());
+        map.get("Conflicting").addAll(status.getConflicting());
+        map.get("Missing").addAll(status.getMissing());
+        map.get("IgnoredNotInIndex").addAll(status.getIgnoredNotInIndex());
+        map.get("Modified").addAll(status.getModified());
+        map.get("Removed").addAll(status.getRemoved());
+        map.get("Untracked").addAll(status.getUntracked());
+        map.get("UntrackedFolders").addAll(status.getUntrackedFolders());
+        map.get("UncommittedChanges").addAll(status.getUncommittedChanges());
+    }
+
+    private void saveMetadata(Repository repository) throws IOException {
+        File directory = repository.getDirectory();
+        indexSnapshot = FileSnapshot.save(repository.getIndexFile());
+        configSnapshot = FileSnapshot.save(new File(directory, "config"));
+        excludeSnapshot = FileSnapshot.save(new File(directory, Constants.INFO_EXCLUDE));
+        head = repository.resolve(Constants.HEAD);
+        fullBranch = repository.getFullBranch();
+
+        dirCache = repository.readDirCache();
+        gitlinks.clear();
+        for (int i = 0; i < dirCache.getEntryCount(); i++) {
+            DirCacheEntry entry = dirCache.getEntry(i);
+            if (entry.getFileMode() == FileMode.GITLINK) {
+                gitlinks.add(entry.getPathString());
+            }
+        }
+    }
+
+    private boolean metadataChanged(Repository repository) throws IOException {
+        File directory = repository.getDirectory();
+        return indexSnapshot.isModified(repository.getIndexFile())
+                || configSnapshot.isModified(new File(directory, "config"))
+                || excludeSnapshot.isModified(new File(directory, Constants.INFO_EXCLUDE))
+                || !Objects.equals(head, repository.resolve(Constants.HEAD))
+                || !Objects.equals(fullBranch, repository.getFullBranch());
+    }
+
+    private void startWatching() {
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            register(workTree);
+        } catch (IOException e) {
+            // 通常是超出了 inotify 监听数量上限，退回每次完整 status
+            logger.warn("无法监听工作区 {}，使用完整状态检查: {}", workTree, e.getMessage());
+            stopWatching();
+            unwatchable = true;
+        }
+    }
+
+    private void stopWatching() {
+        keys.clear();
+        watched.clear();
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                logger.warn("关闭工作区监听异常: {}", e.getMessage());
+            }
+            watcher = null;
+        }
+    }
+
+    private void register(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.equals(gitDir) || (!dir.equals(workTree) && Files.exists(dir.resolve(Constants.DOT_GIT)))) {
+                    // 子模块或嵌套仓库的内容不属于本仓库的工作区
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, dir);
+                watched.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 取出所有待处理的监听事件。
+     *
+     * @return 需要完整 status 时返回 true
+     */
+    private boolean drain(List<String> dirty) {
+        boolean full = false;
+        WatchKey key;
+        while ((key = watcher.poll()) != null) {
+            Path dir = keys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                    full = true;
+                    continue;
+                }
+                Path child = dir.resolve((Path) event.context());
+                if (child.startsWith(gitDir)) {
+                    continue;
+                }
+                String name = child.getFileName().toString();
+                if (Constants.DOT_GIT_IGNORE.equals(name) || Constants.DOT_GIT_ATTRIBUTES.equals(name)) {
+                    full = true;
+                }
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                        && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                    try {
+                        register(child);
+                    } catch (IOException e) {
+                        logger.warn("无法监听目录 {}，使用完整状态检查: {}", child, e.getMessage());
+                        stopWatching();
+                        unwatchable = true;
+                        return true;
+                    }
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY && watched.contains(child)) {
+                    // 目录自身的属性变化，目录内的变化由它自己的监听报告
+                    continue;
+                }
+                dirty.add(workTree.relativize(child).toString().replace(File.separatorChar, '/'));
+            }
+            if (!key.reset()) {
+                watched.remove(keys.remove(key));
+            }
+        }
+        return full;
+    }
+
+    /**
+     * 把变化的路径扩大为需要重新检查的范围，并去掉被其他范围包含的范围。
+     *
+     * @return 范围过多时返回 null
+     */
+    private List<String> scopes(List<String> dirty) {
+        if (dirty.isEmpty() && gitlinks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> candidates = new TreeSet<>(gitlinks);
+        for (String path : dirty) {
+            String scope = scope(path);
+            if (scope.isEmpty()) {
+                return null;
+            }
+            candidates.add(scope);
+        }
+        if (candidates.size() > MAX_SCOPES) {
+            return null;
+        }
+        List<String> scopes = new ArrayList<>();
+        String last = null;
+        for (String scope : candidates) {
+            // 有序集合中祖先路径排在其子路径之前
+            if (last != null && scope.startsWith(last + "/")) {
+                continue;
+            }
+            scopes.add(scope);
+            last = scope;
+        }
+        return scopes;
+    }
+
+    /**
+     * @return path 上第一个不是已跟踪目录的前缀
+     */
+    private String scope(String path) {
+        int from = 0;
+        while (true) {
+            int slash = path.indexOf('/', from);
+            String prefix = slash < 0 ? path : path.substring(0, slash);
+            if (slash < 0 || !isTrackedDirectory(prefix)) {
+                return prefix;
+            }
+            from = slash + 1;
+        }
+    }
+
+    private boolean isTrackedDirectory(String path) {
+        String prefix = path + "/";
+        int index = dirCache.findEntry(prefix);
+        if (index < 0) {
+            index = -(index + 1);
+        }
+        return index < dirCache.getEntryCount() && dirCache.getEntry(index).getPathString().startsWith(prefix);
+    }
+}
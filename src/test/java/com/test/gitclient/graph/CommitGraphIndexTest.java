@@ -0,0 +1,283 @@
+package com.test.gitclient.graph;
+
+import junit.framework.TestCase;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 在随机生成的历史上比较提交图与 RevWalk 的祖先、合并基与 ahead/behind 结果。
+ */
+public class CommitGraphIndexTest extends TestCase {
+
+    private static final int BRANCHES = 4;
+
+    private File directory;
+    private Git git;
+    private Repository repository;
+    private ObjectId emptyTree;
+
+    private final Random random = new Random(7);
+    private final List<ObjectId> commits = new ArrayList<>();
+    private final ObjectId[] heads = new ObjectId[BRANCHES];
+    private int time = 1500000000;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("commit-graph").toFile();
+        git = Git.init().setDirectory(directory).call();
+        repository = git.getRepository();
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            emptyTree = inserter.insert(new TreeFormatter());
+            inserter.flush();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        git.close();
+        FileUtils.delete(directory, FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    public void testQueriesMatchRevWalk() throws IOException {
+        generate(300);
+        CommitGraphIndex index = CommitGraphIndex.of(repository);
+        index.update(repository);
+        assertEquals(commits.size(), index.getGraph().size());
+        assertQueriesMatch(index, 200);
+    }
+
+    public void testUnrelatedHistories() throws IOException {
+        generate(50);
+        ObjectId other = commit();
+        other = commit(other);
+        CommitGraphIndex index = CommitGraphIndex.of(repository);
+
+        assertFalse(index.isAncestor(repository, heads[0], other));
+        assertTrue(index.mergeBases(repository, heads[0], other).isEmpty());
+        assertNull(index.mergeBase(repository, heads[0], other));
+        assertAheadBehind(index, heads[0], other);
+    }
+
+    public void testLayersMerge() throws IOException {
+        CommitGraphIndex index = CommitGraphIndex.of(repository);
+        int[] batches = {64, 16, 4, 1};
+        for (int batch : batches) {
+            generate(batch);
+            index.update(repository);
+        }
+        assertEquals(batches.length, index.getGraph().getLayers().size());
+        assertLayerFiles(index);
+
+        // 新层不小于顶层的一半时与顶层合并，逐层向下直到比下一层的一半小
+        generate(10);
+        index.update(repository);
+        assertEquals(2, index.getGraph().getLayers().size());
+        assertEquals(commits.size(), index.getGraph().size());
+        assertLayerFiles(index);
+        assertQueriesMatch(index, 100);
+
+        for (int i = 0; i < 20; i++) {
+            generate(1 + random.nextInt(3));
+            index.update(repository);
+            assertTrue(index.getGraph().getLayers().size() <= CommitGraphWriter.MAX_LAYERS);
+        }
+        assertEquals(commits.size(), index.getGraph().size());
+        assertLayerFiles(index);
+        assertQueriesMatch(index, 100);
+    }
+
+    public void testShallowBoundaryChangeRebuildsGraph() throws IOException {
+        generate(120);
+        CommitGraphIndex index = CommitGraphIndex.of(repository);
+        index.update(repository);
+        assertEquals(commits.size(), index.getGraph().size());
+
+        ObjectId boundary = commits.get(60);
+        writeShallow(boundary);
+        index = CommitGraphIndex.of(repository);
+        assertEquals(0, index.getGraph().size());
+        index.update(repository);
+        assertEquals(countReachable(), index.getGraph().size());
+        assertTrue(index.getGraph().size() < commits.size());
+        assertEquals(0, index.getGraph().parents(index.getGraph().position(boundary)).length);
+        assertQueriesMatch(index, 100);
+
+        // 只能经过边界到达的提交不再是任何分支的祖先
+        List<ObjectId> hidden = new ArrayList<>(commits);
+        hidden.removeAll(reachable());
+        for (ObjectId head : heads) {
+            if (head != null) {
+                assertFalse(index.isAncestor(repository, hidden.get(0), head));
+            }
+        }
+
+        Files.delete(new File(repository.getDirectory(), Constants.SHALLOW).toPath());
+        index = CommitGraphIndex.of(repository);
+        assertEquals(0, index.getGraph().size());
+        index.update(repository);
+        assertEquals(commits.size(), index.getGraph().size());
+        assertQueriesMatch(index, 100);
+    }
+
+    /**
+     * 在 {@link #BRANCHES} 个分支上生成提交，部分提交合并另一个分支，提交时间递增。
+     */
+    private void generate(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            int branch = random.nextInt(BRANCHES);
+            ObjectId head = heads[branch];
+            if (head == null) {
+                head = commits.isEmpty() ? commit() : commit(commits.get(random.nextInt(commits.size())));
+            } else if (random.nextInt(5) == 0) {
+                ObjectId other = heads[random.nextInt(BRANCHES)];
+                head = other == null || other.equals(head) ? commit(head) : commit(head, other);
+            } else {
+                head = commit(head);
+            }
+            heads[branch] = head;
+            updateRef(Constants.R_HEADS + "b" + branch, head);
+        }
+    }
+
+    private ObjectId commit(ObjectId... parents) throws IOException {
+        PersonIdent ident = new PersonIdent("a", "a@example.com", time * 1000L, 0);
+        time += 60;
+        CommitBuilder builder = new CommitBuilder();
+        builder.setTreeId(emptyTree);
+        builder.setParentIds(parents);
+        builder.setAuthor(ident);
+        builder.setCommitter(ident);
+        builder.setMessage("commit " + commits.size());
+        ObjectId id;
+        try (ObjectInserter inserter = repository.newObjectInserter()) {
+            id = inserter.insert(builder);
+            inserter.flush();
+        }
+        commits.add(id);
+        return id;
+    }
+
+    private void updateRef(String name, ObjectId id) throws IOException {
+        RefUpdate update = repository.updateRef(name);
+        update.setNewObjectId(id);
+        update.setForceUpdate(true);
+        RefUpdate.Result result = update.update();
+        assertTrue(result.toString(), result == RefUpdate.Result.NEW || result == RefUpdate.Result.FORCED
+                || result == RefUpdate.Result.FAST_FORWARD || result == RefUpdate.Result.NO_CHANGE);
+    }
+
+    private void writeShallow(ObjectId boundary) throws IOException {
+        File file = new File(repository.getDirectory(), Constants.SHALLOW);
+        Files.write(file.toPath(), (boundary.name() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void assertQueriesMatch(CommitGraphIndex index, int pairs) throws IOException {
+        List<ObjectId> reachable = reachable();
+        for (int i = 0; i < pairs; i++) {
+            ObjectId a = reachable.get(random.nextInt(reachable.size()));
+            ObjectId b = reachable.get(random.nextInt(reachable.size()));
+            String message = a.name() + " " + b.name();
+            assertEquals(message, isMergedInto(a, b), index.isAncestor(repository, a, b));
+            assertEquals(message, isMergedInto(b, a), index.isAncestor(repository, b, a));
+            assertEquals(message, mergeBases(a, b), new HashSet<>(index.mergeBases(repository, a, b)));
+            assertAheadBehind(index, a, b);
+        }
+    }
+
+    private void assertAheadBehind(CommitGraphIndex index, ObjectId a, ObjectId b) throws IOException {
+        AheadBehind actual = index.aheadBehind(repository, a, b);
+        assertEquals(a.name() + " " + b.name(), count(a, b), actual.getAhead());
+        assertEquals(a.name() + " " + b.name(), count(b, a), actual.getBehind());
+    }
+
+    private void assertLayerFiles(CommitGraphIndex index) {
+        Set<String> expected = new HashSet<>();
+        for (GraphLayer layer : index.getGraph().getLayers()) {
+            expected.add(layer.getName());
+        }
+        Set<String> actual = new HashSet<>();
+        File[] files = new File(repository.getDirectory(), CommitGraphIndex.DIRECTORY).listFiles();
+        for (File file : files) {
+            if (file.getName().endsWith(".dat")) {
+                actual.add(file.getName());
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    private boolean isMergedInto(ObjectId ancestor, ObjectId descendant) throws IOException {
+        try (RevWalk walk = new RevWalk(repository)) {
+            return walk.isMergedInto(walk.parseCommit(ancestor), walk.parseCommit(descendant));
+        }
+    }
+
+    private Set<ObjectId> mergeBases(ObjectId a, ObjectId b) throws IOException {
+        if (a.equals(b)) {
+            return Collections.singleton(a);
+        }
+        Set<ObjectId> ret = new HashSet<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(a));
+            walk.markStart(walk.parseCommit(b));
+            for (RevCommit commit : walk) {
+                ret.add(commit.copy());
+            }
+        }
+        return ret;
+    }
+
+    // from 可达而 exclude 不可达的提交数
+    private int count(ObjectId from, ObjectId exclude) throws IOException {
+        int ret = 0;
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.markStart(walk.parseCommit(from));
+            walk.markUninteresting(walk.parseCommit(exclude));
+            while (walk.next() != null) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    private List<ObjectId> reachable() throws IOException {
+        List<ObjectId> ret = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (ObjectId head : heads) {
+                if (head != null) {
+                    walk.markStart(walk.parseCommit(head));
+                }
+            }
+            for (RevCommit commit : walk) {
+                ret.add(commit.copy());
+            }
+        }
+        return ret;
+    }
+
+    private int countReachable() throws IOException {
+        return reachable().size();
+    }
+}